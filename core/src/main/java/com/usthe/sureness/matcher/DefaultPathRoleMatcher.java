@@ -1,6 +1,11 @@
 package com.usthe.sureness.matcher;
 
+import com.usthe.sureness.matcher.util.FirstSegmentFilter;
+import com.usthe.sureness.matcher.util.LiteralPathTable;
+import com.usthe.sureness.matcher.util.MatchTrace;
 import com.usthe.sureness.matcher.util.TirePathTree;
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.mgt.SurenessNoInitException;
 import com.usthe.sureness.subject.Subject;
 import org.slf4j.Logger;
@@ -8,8 +13,16 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * default path - role matcher
@@ -28,91 +41,288 @@ public class DefaultPathRoleMatcher implements TreePathRoleMatcher {
 
     private static final String EXCLUDE_ROLE = "exclude";
 
-    /** path-role, match tree storage **/
-    private final TirePathTree root = new TirePathTree();
+    private static final String RESOURCE_MATCHER = "resource";
 
-    /** exclude path-role, match tree storage **/
-    private final TirePathTree excludeRoot = new TirePathTree();
+    private static final int PARALLEL_THRESHOLD = 20000;
+
+    /** the trees and indexes of current resources, published together by one volatile write **/
+    private volatile MatchSnapshot snapshot = MatchSnapshot.EMPTY;
 
     /** Match tree data content provider **/
     private PathTreeProvider pathTreeProvider;
 
-    /** Whether the matching tree data has been loaded **/
-    private volatile boolean isTreeInit;
+    /** sample interval of the new trees, 0 means not sample **/
+    private volatile int probeSampleInterval;
+
+    /** automaton memory budget of the new trees, 0 means not compile **/
+    private volatile long automatonMemoryBudget;
+
+    /** whether the new trees are partitioned by http method **/
+    private volatile boolean methodPartitioned;
+
+    /** called after the new trees published **/
+    private final List<Runnable> publishListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void matchRole(Subject subject) {
-        if (!isTreeInit) {
+        MatchSnapshot current = snapshot;
+        if (current == MatchSnapshot.EMPTY) {
             logger.error("DefaultPathRoleMatcher -> root tree is not init");
             throw new SurenessNoInitException("DefaultPathRoleMatcher -> root tree is not init");
         }
-        String targetResource = (String) subject.getTargetResource();
-        //[role1,role2,role3], [role1], [], null
-        String matchRoleString = root.searchPathFilterRoles(targetResource);
-        if (matchRoleString != null && matchRoleString.startsWith(LEFT_CON)
-                && matchRoleString.endsWith(RIGHT_CON)) {
-            if (NULL_ROLE.equals(matchRoleString)) {
-                subject.setSupportRoles(new ArrayList<>(0));
+        List<String> supportRoles = matchSupportRoles(current, (String) subject.getTargetResource());
+        if (supportRoles != null) {
+            subject.setSupportRoles(supportRoles);
+        }
+    }
+
+    /**
+     * match all resources in one snapshot, the same resources are matched once
+     */
+    @Override
+    public List<Object> matchRoles(List<String> targetResources) {
+        MatchSnapshot current = snapshot;
+        if (current == MatchSnapshot.EMPTY) {
+            logger.error("DefaultPathRoleMatcher -> root tree is not init");
+            throw new SurenessNoInitException("DefaultPathRoleMatcher -> root tree is not init");
+        }
+        List<Object> supportRolesList = new ArrayList<>(targetResources.size());
+        Map<String, List<String>> matched = new HashMap<>(targetResources.size() * 2);
+        for (String targetResource : targetResources) {
+            List<String> supportRoles;
+            if (matched.containsKey(targetResource)) {
+                supportRoles = matched.get(targetResource);
             } else {
-                String[] roles = matchRoleString.substring(1, matchRoleString.length()-1).split(",");
-                subject.setSupportRoles(Arrays.asList(roles));
+                supportRoles = matchSupportRoles(current, targetResource);
+                matched.put(targetResource, supportRoles);
             }
+            supportRolesList.add(supportRoles);
+        }
+        return supportRolesList;
+    }
+
+    /**
+     * match the support roles of the resource in the snapshot
+     * @param current snapshot
+     * @param targetResource eg: /api/v2/host===get
+     * @return support roles, null when not match any rule
+     */
+    private List<String> matchSupportRoles(MatchSnapshot current, String targetResource) {
+        long start = SurenessMetricsHolder.startStage();
+        //[role1,role2,role3], [role1], [], null
+        String matchRoleString = current.literalTable.searchPathFilterRoles(targetResource);
+        if (matchRoleString == null) {
+            matchRoleString = current.root.searchPathFilterRoles(targetResource);
+        }
+        if (start != 0L) {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ROLE_MATCH, start);
+            SurenessMetricsHolder.getMetrics().recordMatch(RESOURCE_MATCHER, matchRoleString != null);
+        }
+        if (matchRoleString == null || !matchRoleString.startsWith(LEFT_CON)
+                || !matchRoleString.endsWith(RIGHT_CON)) {
+            return null;
         }
+        // the same roles instance of a rule, the authorization decision cache uses it as key
+        return current.supportRoles.computeIfAbsent(matchRoleString, roleString -> {
+            if (NULL_ROLE.equals(roleString)) {
+                return Collections.<String>emptyList();
+            }
+            String[] roles = roleString.substring(1, roleString.length() - 1).split(",");
+            return Collections.unmodifiableList(Arrays.asList(roles));
+        });
     }
 
+    /**
+     * build the whole trees off to the side, the requests still match the current ones until the new ones published
+     */
     @Override
-    public void buildTree() {
-        isTreeInit = false;
+    public synchronized void buildTree() {
         checkComponentInit();
-        clearTree();
         Set<String> resources = pathTreeProvider.providePathData();
         Set<String> excludeResource = pathTreeProvider.provideExcludedResource();
+        TirePathTree buildRoot = newTree();
+        LiteralPathTable literalTable = LiteralPathTable.EMPTY;
+        TirePathTree buildExcludeRoot = newTree();
+        LiteralPathTable excludeLiteralTable = LiteralPathTable.EMPTY;
+        FirstSegmentFilter excludeFilter = FirstSegmentFilter.EMPTY;
 
         if (resources != null) {
-            resources = resources.stream().map(String::toLowerCase).collect(Collectors.toSet());
-            root.buildTree(resources);
+            resources = lowerCaseResources(resources, "");
+            Set<String> treeResources = new HashSet<>();
+            literalTable = LiteralPathTable.build(resources, treeResources);
+            buildRoot.buildTree(treeResources);
         } else {
             logger.error("sureness - pathTreeProvider.providePathData is null, can not load resource");
         }
 
         if (excludeResource != null) {
-            excludeResource = excludeResource.stream()
-                    .map(resource -> resource.concat("===").concat(EXCLUDE_ROLE).toLowerCase())
-                    .collect(Collectors.toSet());
-            excludeRoot.buildTree(excludeResource);
+            excludeResource = lowerCaseResources(excludeResource, "===" + EXCLUDE_ROLE);
+            Set<String> excludeTreeResources = new HashSet<>();
+            excludeLiteralTable = LiteralPathTable.build(excludeResource, excludeTreeResources);
+            excludeFilter = FirstSegmentFilter.build(excludeResource);
+            buildExcludeRoot.buildTree(excludeTreeResources);
         } else {
             logger.error("sureness - pathTreeProvider.provideExcludedResource is null, can not exclude resource");
         }
-        isTreeInit = true;
+        publish(new MatchSnapshot(buildRoot, literalTable, buildExcludeRoot, excludeLiteralTable, excludeFilter));
     }
 
+    /**
+     * rebuild the trees off to the side, share the unchanged subtrees with the current ones,
+     * the resources and the excluded resources are switched at the same time
+     */
     @Override
-    public void rebuildTree() {
+    public synchronized void rebuildTree() {
         checkComponentInit();
         Set<String> resources = pathTreeProvider.providePathData();
         Set<String> excludeResource = pathTreeProvider.provideExcludedResource();
+        MatchSnapshot current = snapshot;
+        boolean isInit = current != MatchSnapshot.EMPTY;
+        TirePathTree buildRoot = isInit ? current.root : newTree();
+        LiteralPathTable literalTable = current.literalTable;
+        TirePathTree buildExcludeRoot = isInit ? current.excludeRoot : newTree();
+        LiteralPathTable excludeLiteralTable = current.excludeLiteralTable;
+        FirstSegmentFilter excludeFilter = current.excludeFilter;
         if (resources != null) {
-            resources = resources.stream().map(String::toLowerCase).collect(Collectors.toSet());
-            root.rebuildTree(resources);
+            resources = lowerCaseResources(resources, "");
+            Set<String> treeResources = new HashSet<>();
+            literalTable = LiteralPathTable.build(resources, treeResources);
+            buildRoot = buildRoot.copyAndRebuild(treeResources);
         } else {
             logger.error("sureness - pathTreeProvider.providePathData is null, can not load resource");
         }
 
         if (excludeResource != null) {
-            excludeResource = excludeResource.stream()
-                    .map(resource -> resource.concat("===").concat(EXCLUDE_ROLE).toLowerCase())
-                    .collect(Collectors.toSet());
-            excludeRoot.rebuildTree(excludeResource);
+            excludeResource = lowerCaseResources(excludeResource, "===" + EXCLUDE_ROLE);
+            Set<String> excludeTreeResources = new HashSet<>();
+            excludeLiteralTable = LiteralPathTable.build(excludeResource, excludeTreeResources);
+            excludeFilter = FirstSegmentFilter.build(excludeResource);
+            buildExcludeRoot = buildExcludeRoot.copyAndRebuild(excludeTreeResources);
         } else {
             logger.error("sureness - pathTreeProvider.provideExcludedResource is null, can not exclude resource");
         }
+        publish(new MatchSnapshot(buildRoot, literalTable, buildExcludeRoot, excludeLiteralTable, excludeFilter));
     }
 
     @Override
     public boolean isExcludedResource(Subject request) {
         checkComponentInit();
-        String exclude = excludeRoot.searchPathFilterRoles((String) request.getTargetResource());
-        return exclude != null && exclude.equals(EXCLUDE_ROLE);
+        MatchSnapshot current = snapshot;
+        long start = SurenessMetricsHolder.startStage();
+        String targetResource = (String) request.getTargetResource();
+        boolean excluded = false;
+        if (current.excludeFilter.mightContain(targetResource)) {
+            String exclude = current.excludeLiteralTable.searchPathFilterRoles(targetResource);
+            if (exclude == null) {
+                exclude = current.excludeRoot.searchPathFilterRoles(targetResource);
+            }
+            excluded = exclude != null && exclude.equals(EXCLUDE_ROLE);
+        }
+        if (start != 0L) {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.EXCLUDE_MATCH, start);
+            SurenessMetricsHolder.getMetrics().recordMatch(EXCLUDE_ROLE, excluded);
+        }
+        return excluded;
+    }
+
+    /**
+     * explain how the resource match in resource tree, for debugging
+     * @param path request path eg: /api/v2/host
+     * @param method http method eg: get
+     * @return match trace
+     */
+    public MatchTrace explain(String path, String method) {
+        MatchSnapshot current = snapshot;
+        MatchTrace trace = current.literalTable.explain(path, method);
+        return trace != null ? trace : current.root.explain(path, method);
+    }
+
+    /**
+     * explain how the resource match in excluded resource tree, for debugging
+     * @param path request path eg: /api/v2/host
+     * @param method http method eg: get
+     * @return match trace
+     */
+    public MatchTrace explainExclude(String path, String method) {
+        MatchSnapshot current = snapshot;
+        MatchTrace trace = current.excludeLiteralTable.explain(path, method);
+        return trace != null ? trace : current.excludeRoot.explain(path, method);
+    }
+
+    /**
+     * sample one of every interval matches to count the probes of path nodes
+     * @param sampleInterval sample interval, 0 means not sample
+     */
+    public synchronized void setProbeSampleInterval(int sampleInterval) {
+        probeSampleInterval = sampleInterval;
+        MatchSnapshot current = snapshot;
+        if (current != MatchSnapshot.EMPTY) {
+            current.root.setProbeSampleInterval(sampleInterval);
+            current.excludeRoot.setProbeSampleInterval(sampleInterval);
+        }
+    }
+
+    /**
+     * compile the resource and excluded resource trees to automaton when build, fallback to tree search
+     * when the estimated memory of a tree exceed the budget
+     * @param memoryBudget budget bytes of each tree, 0 means not compile
+     */
+    public synchronized void setAutomatonMemoryBudget(long memoryBudget) {
+        automatonMemoryBudget = memoryBudget;
+        MatchSnapshot current = snapshot;
+        if (current != MatchSnapshot.EMPTY) {
+            current.root.setAutomatonMemoryBudget(memoryBudget);
+            current.excludeRoot.setAutomatonMemoryBudget(memoryBudget);
+        }
+    }
+
+    /**
+     * build one tree per http method for the resource and excluded resource trees when build or rebuild,
+     * the request only backtracks the branches which have the rules of its method or the method *
+     * @param partitioned partitioned true, else false
+     */
+    public synchronized void setMethodPartitioned(boolean partitioned) {
+        methodPartitioned = partitioned;
+        MatchSnapshot current = snapshot;
+        if (current != MatchSnapshot.EMPTY) {
+            current.root.setMethodPartitioned(partitioned);
+            current.excludeRoot.setMethodPartitioned(partitioned);
+        }
+    }
+
+    /**
+     * add the listener called after the trees are built or rebuilt, eg: AuthorizationDecisionCache::invalidate,
+     * the decisions of the old trees are only garbage as the matched role instances are of one snapshot
+     * @param listener listener
+     */
+    public void addPublishListener(Runnable listener) {
+        publishListeners.add(listener);
+    }
+
+    /**
+     * Get the sampled probe count of the path patterns in resource tree
+     * @return path pattern - probe count, sort by count desc
+     */
+    public Map<String, Long> getProbeCounts() {
+        return snapshot.root.getProbeCounts();
+    }
+
+    /**
+     * lower case the resources except the regex of constrained segments, in parallel when the resources are many
+     * @param resources resources
+     * @param suffix the suffix append to each resource
+     * @return lower case resources
+     */
+    private static Set<String> lowerCaseResources(Set<String> resources, String suffix) {
+        Stream<String> stream = resources.size() >= PARALLEL_THRESHOLD ? resources.parallelStream() : resources.stream();
+        return stream.map(resource -> TirePathTree.lowerCaseResource(resource.concat(suffix))).collect(Collectors.toSet());
+    }
+
+    private void publish(MatchSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+        for (Runnable listener : publishListeners) {
+            listener.run();
+        }
     }
 
     private void checkComponentInit() {
@@ -121,11 +331,51 @@ public class DefaultPathRoleMatcher implements TreePathRoleMatcher {
         }
     }
 
-    private void clearTree() {
-        root.clearTree();
+    private TirePathTree newTree() {
+        TirePathTree tree = new TirePathTree();
+        tree.setProbeSampleInterval(probeSampleInterval);
+        tree.setAutomatonMemoryBudget(automatonMemoryBudget);
+        tree.setMethodPartitioned(methodPartitioned);
+        return tree;
     }
 
     public void setPathTreeProvider(PathTreeProvider pathTreeProvider) {
         this.pathTreeProvider = pathTreeProvider;
     }
+
+    /**
+     * the immutable snapshot of the resource tree, the excluded resource tree and their indexes
+     */
+    private static final class MatchSnapshot {
+
+        private static final MatchSnapshot EMPTY = new MatchSnapshot(new TirePathTree(), LiteralPathTable.EMPTY,
+                new TirePathTree(), LiteralPathTable.EMPTY, FirstSegmentFilter.EMPTY);
+
+        /** path-role, match tree storage, the fully literal resources are not in it **/
+        private final TirePathTree root;
+
+        /** fully literal path-role, hash table storage, checked before the tree **/
+        private final LiteralPathTable literalTable;
+
+        /** exclude path-role, match tree storage, the fully literal excluded resources are not in it **/
+        private final TirePathTree excludeRoot;
+
+        /** fully literal exclude path-role, hash table storage, checked before the tree **/
+        private final LiteralPathTable excludeLiteralTable;
+
+        /** the first segment filter of all excluded resources, reject most not excluded requests **/
+        private final FirstSegmentFilter excludeFilter;
+
+        /** matched roles string - support roles, the support roles of a rule are one instance **/
+        private final Map<String, List<String>> supportRoles = new ConcurrentHashMap<>(64);
+
+        private MatchSnapshot(TirePathTree root, LiteralPathTable literalTable, TirePathTree excludeRoot,
+                              LiteralPathTable excludeLiteralTable, FirstSegmentFilter excludeFilter) {
+            this.root = root;
+            this.literalTable = literalTable;
+            this.excludeRoot = excludeRoot;
+            this.excludeLiteralTable = excludeLiteralTable;
+            this.excludeFilter = excludeFilter;
+        }
+    }
 }
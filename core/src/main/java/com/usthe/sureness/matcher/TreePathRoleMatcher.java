@@ -2,6 +2,10 @@ package com.usthe.sureness.matcher;
 
 import com.usthe.sureness.mgt.SurenessNoInitException;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.subject.support.NoneSubject;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * path-role  matcher interface
@@ -17,6 +21,22 @@ public interface TreePathRoleMatcher {
      */
     void matchRole(Subject subject);
 
+    /**
+     * match the supported roles of many resources
+     * @param targetResources resources, eg: /api/v2/host===get
+     * @return the supported roles of each resource, null element when the resource not match any rule
+     * @throws SurenessNoInitException when matcher not init
+     */
+    default List<Object> matchRoles(List<String> targetResources) {
+        List<Object> supportRolesList = new ArrayList<>(targetResources.size());
+        for (String targetResource : targetResources) {
+            Subject subject = NoneSubject.builder().setTargetUri(targetResource).build();
+            matchRole(subject);
+            supportRolesList.add(subject.getSupportRoles());
+        }
+        return supportRolesList;
+    }
+
     /**
      * build the pathRole match tree
      * @throws SurenessNoInitException when matcher not init
@@ -0,0 +1,115 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.Set;
+
+/**
+ * a small bloom filter of the first path segments of resources, reject the request whose first segment
+ * can not match any resource before normalizing the path. it passes all requests when a resource starts
+ * with * ** or constrained segment
+ * @author agent
+ * @date 21:05 2026-10-18
+ */
+public final class FirstSegmentFilter {
+
+    /** filter of no resource, reject all **/
+    public static final FirstSegmentFilter EMPTY = new FirstSegmentFilter(new long[1]);
+
+    /** filter passes all **/
+    public static final FirstSegmentFilter ALL = new FirstSegmentFilter(null);
+
+    private static final String URL_PATH_SPLIT = "/";
+    private static final int PATH_NODE_NUM_3 = 3;
+    private static final int MIN_BITS = 256;
+    private static final int MAX_BITS = 1 << 16;
+    private static final int BITS_PER_SEGMENT = 16;
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    /** the bitmap, null means pass all **/
+    private final long[] bits;
+
+    private final int mask;
+
+    private FirstSegmentFilter(long[] bits) {
+        this.bits = bits;
+        this.mask = bits == null ? 0 : (bits.length << 6) - 1;
+    }
+
+    /**
+     * build the filter with the first segments of resources
+     * @param resources resource path set, eg: /api/v1/host/detail===GET===[role2,role3,role4]
+     * @return filter
+     */
+    public static FirstSegmentFilter build(Set<String> resources) {
+        int bitNum = MIN_BITS;
+        while (bitNum < resources.size() * BITS_PER_SEGMENT && bitNum < MAX_BITS) {
+            bitNum <<= 1;
+        }
+        FirstSegmentFilter filter = new FirstSegmentFilter(new long[bitNum >>> 6]);
+        for (String resource : resources) {
+            String[] tmp = TirePathTree.splitResource(resource, PATH_NODE_NUM_3);
+            if (tmp == null) {
+                continue;
+            }
+            int end = tmp[0].indexOf(URL_PATH_SPLIT);
+            String segment = end < 0 ? tmp[0] : tmp[0].substring(0, end);
+            if (!TirePathTree.isLiteralSegment(segment)) {
+                return ALL;
+            }
+            filter.add(segment);
+        }
+        return filter;
+    }
+
+    /**
+     * Whether the first segment of the request may match a resource
+     * @param target /api/v2/host/detail===get
+     * @return false when not match any resource for sure
+     */
+    public boolean mightContain(String target) {
+        if (bits == null) {
+            return true;
+        }
+        if (target == null || target.isEmpty() || target.charAt(0) != '/') {
+            return false;
+        }
+        int length = target.length();
+        int index = 1;
+        while (index < length && target.charAt(index) == '/') {
+            index++;
+        }
+        int hash = FNV_OFFSET;
+        for (; index < length; index++) {
+            char ch = target.charAt(index);
+            if (ch == '/' || ch == '=' && target.startsWith("===", index)) {
+                break;
+            }
+            if (ch > '\u007f') {
+                // the not ascii lower case may differ, not filter
+                return true;
+            }
+            if (ch >= 'A' && ch <= 'Z') {
+                ch += 'a' - 'A';
+            }
+            hash = (hash ^ ch) * FNV_PRIME;
+        }
+        return isSet(hash);
+    }
+
+    private void add(String segment) {
+        int hash = FNV_OFFSET;
+        for (int index = 0; index < segment.length(); index++) {
+            hash = (hash ^ segment.charAt(index)) * FNV_PRIME;
+        }
+        int first = hash & mask;
+        int second = (hash >>> 16 ^ hash * 31) & mask;
+        bits[first >>> 6] |= 1L << first;
+        bits[second >>> 6] |= 1L << second;
+    }
+
+    private boolean isSet(int hash) {
+        int first = hash & mask;
+        int second = (hash >>> 16 ^ hash * 31) & mask;
+        return (bits[first >>> 6] & 1L << first) != 0 && (bits[second >>> 6] & 1L << second) != 0;
+    }
+}
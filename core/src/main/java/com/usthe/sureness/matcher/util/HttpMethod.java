@@ -0,0 +1,48 @@
+package com.usthe.sureness.matcher.util;
+
+/**
+ * the standard http methods, index the method table of the path end node
+ * @author agent
+ * @date 20:51 2026-10-18
+ */
+enum HttpMethod {
+
+    /** http methods **/
+    GET, POST, PUT, DELETE, PATCH, HEAD, OPTIONS, TRACE, CONNECT;
+
+    /** the method of resource which matches any http method **/
+    static final String ANY_METHOD = "*";
+
+    /** the index of not standard method starts from **/
+    static final int STANDARD_METHOD_NUM = values().length;
+
+    /**
+     * Get the index of standard http method
+     * @param method lower case http method, eg: get
+     * @return index, -1 when not standard method
+     */
+    static int indexOf(String method) {
+        switch (method) {
+            case "get":
+                return GET.ordinal();
+            case "post":
+                return POST.ordinal();
+            case "put":
+                return PUT.ordinal();
+            case "delete":
+                return DELETE.ordinal();
+            case "patch":
+                return PATCH.ordinal();
+            case "head":
+                return HEAD.ordinal();
+            case "options":
+                return OPTIONS.ordinal();
+            case "trace":
+                return TRACE.ordinal();
+            case "connect":
+                return CONNECT.ordinal();
+            default:
+                return -1;
+        }
+    }
+}
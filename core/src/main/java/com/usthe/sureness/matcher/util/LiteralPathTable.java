@@ -0,0 +1,226 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * the hash table of the fully literal resources, the path has no * ** or constrained segment
+ * a literal resource is the first branch the tree search tries, so check the table before the tree,
+ * when the table has the path but not the method, the tree may match it by wildcard and the table is not used
+ * open addressing, the normalized path hash is computed once for a lookup
+ * @author agent
+ * @date 21:03 2026-10-18
+ */
+public final class LiteralPathTable {
+
+    public static final LiteralPathTable EMPTY = new LiteralPathTable(0);
+
+    private static final String URL_PATH_SPLIT = "/";
+    private static final String PATH_METHOD_SPLIT = "===";
+    private static final int PATH_NODE_NUM_3 = 3;
+
+    /** the hash of the path, 0 means the slot is empty **/
+    private final int[] hashes;
+
+    /** normalized path eg: api/v2/host **/
+    private final String[] paths;
+
+    /** the method table of the path **/
+    private final MethodRoles[] methodRoles;
+
+    private final int mask;
+
+    private int size;
+
+    /** the not standard http method - index **/
+    private Map<String, Integer> methodIndexes = Collections.emptyMap();
+
+    private LiteralPathTable(int expectedSize) {
+        int capacity = 2;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.hashes = new int[capacity];
+        this.paths = new String[capacity];
+        this.methodRoles = new MethodRoles[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * build the table with the literal resources, the other resources are left for the tree
+     * @param resources resource path set, eg: /api/v1/host/detail===GET===[role2,role3,role4]
+     * @param otherResources the resources not literal are added to it
+     * @return literal table
+     */
+    public static LiteralPathTable build(Set<String> resources, Set<String> otherResources) {
+        LiteralPathTable table = new LiteralPathTable(resources.size());
+        Map<String, String> segmentPool = new HashMap<>(256);
+        for (String resource : resources) {
+            String[] tmp = TirePathTree.splitResource(resource, PATH_NODE_NUM_3);
+            if (tmp == null || !isLiteralPath(tmp[0])) {
+                otherResources.add(resource);
+                continue;
+            }
+            String path = tmp[0];
+            if (path.endsWith(URL_PATH_SPLIT)) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String roles = segmentPool.putIfAbsent(tmp[2], tmp[2]);
+            table.put(path, tmp[1], roles == null ? tmp[2] : roles);
+        }
+        return table;
+    }
+
+    private static boolean isLiteralPath(String path) {
+        for (String segment : path.split(URL_PATH_SPLIT)) {
+            if (!TirePathTree.isLiteralSegment(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Use the resource path to match supported roles in table
+     * @param target /api/v2/host/detail===get
+     * @return roles eg: [role1,role2], null when the table not has the path and method
+     */
+    public String searchPathFilterRoles(String target) {
+        if (size == 0 || target == null || !target.startsWith(URL_PATH_SPLIT)) {
+            return null;
+        }
+        int methodStart = target.indexOf(PATH_METHOD_SPLIT);
+        if (methodStart < 0 || methodStart + PATH_METHOD_SPLIT.length() == target.length()
+                || target.indexOf(PATH_METHOD_SPLIT, methodStart + PATH_METHOD_SPLIT.length()) >= 0) {
+            // leave the illegal one to the tree
+            return null;
+        }
+        MethodRoles roles = get(normalizePath(target, methodStart));
+        if (roles == null) {
+            return null;
+        }
+        String method = target.substring(methodStart + PATH_METHOD_SPLIT.length()).toLowerCase();
+        return roles.get(methodIndexOf(method));
+    }
+
+    /**
+     * explain the match in table
+     * @param path request path eg: /api/v2/host/detail
+     * @param method http method eg: get
+     * @return match trace, null when the table not has the path and method
+     */
+    public MatchTrace explain(String path, String method) {
+        String target = path + PATH_METHOD_SPLIT + method;
+        String roles = searchPathFilterRoles(target);
+        if (roles == null) {
+            return null;
+        }
+        int methodStart = target.indexOf(PATH_METHOD_SPLIT);
+        String normalizedPath = normalizePath(target, methodStart);
+        String lowerMethod = method.toLowerCase();
+        String matchedMethod = get(normalizedPath).contains(methodIndexOf(lowerMethod))
+                ? lowerMethod : HttpMethod.ANY_METHOD;
+        return new MatchTrace(target.toLowerCase(),
+                Collections.singletonList(URL_PATH_SPLIT + normalizedPath + " <- literal table"), 0,
+                URL_PATH_SPLIT + normalizedPath + PATH_METHOD_SPLIT + matchedMethod + PATH_METHOD_SPLIT + roles,
+                roles);
+    }
+
+    /**
+     * Get the number of literal paths
+     * @return path number
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * normalize the path the same as the tree, remove the repeated / and the first and last /, lower case
+     * @param target /api/v2/host/detail===get
+     * @param end the end index of path
+     * @return normalized path eg: api/v2/host/detail
+     */
+    private static String normalizePath(String target, int end) {
+        boolean normalized = end == 1 || target.charAt(end - 1) != '/';
+        for (int index = 1; normalized && index < end; index++) {
+            char ch = target.charAt(index);
+            if (ch == '/' && target.charAt(index - 1) == '/' || ch >= 'A' && ch <= 'Z' || ch > '\u007f') {
+                normalized = false;
+            }
+        }
+        if (normalized) {
+            return target.substring(1, end);
+        }
+        StringBuilder builder = new StringBuilder(end);
+        for (int index = 1; index < end; index++) {
+            char ch = target.charAt(index);
+            if (ch != '/' || builder.length() > 0 && builder.charAt(builder.length() - 1) != '/') {
+                builder.append(ch);
+            }
+        }
+        if (builder.length() > 0 && builder.charAt(builder.length() - 1) == '/') {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString().toLowerCase();
+    }
+
+    private int methodIndexOf(String method) {
+        int index = HttpMethod.indexOf(method);
+        if (index < 0) {
+            Integer extraIndex = methodIndexes.get(method);
+            return extraIndex == null ? -1 : extraIndex;
+        }
+        return index;
+    }
+
+    private static int hash(String path) {
+        int hash = path.hashCode();
+        hash ^= hash >>> 16;
+        // 0 means the empty slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    private MethodRoles get(String path) {
+        int hash = hash(path);
+        for (int slot = hash & mask; hashes[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && paths[slot].equals(path)) {
+                return methodRoles[slot];
+            }
+        }
+        return null;
+    }
+
+    private void put(String path, String method, String roles) {
+        int hash = hash(path);
+        int slot = hash & mask;
+        while (hashes[slot] != 0 && !(hashes[slot] == hash && paths[slot].equals(path))) {
+            slot = (slot + 1) & mask;
+        }
+        if (hashes[slot] == 0) {
+            hashes[slot] = hash;
+            paths[slot] = path;
+            methodRoles[slot] = new MethodRoles();
+            size++;
+        }
+        // each resource only mapping a roles, if existed, not overwrite the original configuration
+        if (HttpMethod.ANY_METHOD.equals(method)) {
+            methodRoles[slot].putAnyIfAbsent(roles);
+        } else {
+            methodRoles[slot].putIfAbsent(insertMethodIndex(method), roles);
+        }
+    }
+
+    private int insertMethodIndex(String method) {
+        int index = methodIndexOf(method);
+        if (index < 0) {
+            if (methodIndexes.isEmpty()) {
+                methodIndexes = new HashMap<>(4);
+            }
+            index = HttpMethod.STANDARD_METHOD_NUM + methodIndexes.size();
+            methodIndexes.put(method, index);
+        }
+        return index;
+    }
+}
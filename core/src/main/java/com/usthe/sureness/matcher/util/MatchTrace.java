@@ -0,0 +1,73 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the explain result of a path match, for debugging slow or surprising wildcard matches
+ * @author agent
+ * @date 20:29 2026-10-18
+ */
+public class MatchTrace {
+
+    /** the normalized request path and method, eg: /api/v2/host===get **/
+    private final String target;
+
+    /** the visited nodes in search order, eg: /api/* <- v2 **/
+    private final List<String> visitedNodes;
+
+    /** the number of the branches tried but not matched **/
+    private final int backtrackCount;
+
+    /** the winning rule, eg: /api/*===get===[role1], null when not matched **/
+    private final String matchedRule;
+
+    /** the match result, eg: [role1], null when not matched **/
+    private final String matchedRoles;
+
+    MatchTrace(String target, List<String> visitedNodes, int backtrackCount,
+               String matchedRule, String matchedRoles) {
+        this.target = target;
+        this.visitedNodes = Collections.unmodifiableList(visitedNodes);
+        this.backtrackCount = backtrackCount;
+        this.matchedRule = matchedRule;
+        this.matchedRoles = matchedRoles;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public List<String> getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public int getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    public String getMatchedRule() {
+        return matchedRule;
+    }
+
+    public String getMatchedRoles() {
+        return matchedRoles;
+    }
+
+    public boolean isMatched() {
+        return matchedRule != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(256)
+                .append("target: ").append(target)
+                .append("\nmatched rule: ").append(matchedRule)
+                .append("\nvisited: ").append(visitedNodes.size())
+                .append(", backtrack: ").append(backtrackCount);
+        for (String node : visitedNodes) {
+            builder.append("\n  ").append(node);
+        }
+        return builder.toString();
+    }
+}
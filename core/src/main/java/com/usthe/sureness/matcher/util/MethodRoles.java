@@ -0,0 +1,148 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * the method table of path end node, http method index - supported roles
+ * the explicit method has priority over the any method *
+ * @author agent
+ * @date 20:51 2026-10-18
+ */
+final class MethodRoles {
+
+    private static final String[] EMPTY_ROLES = new String[0];
+
+    static final MethodRoles EMPTY = new MethodRoles();
+
+    /** method index - roles eg: [role1,role2] **/
+    private String[] roles = EMPTY_ROLES;
+
+    /** the roles of any method *, null when not have **/
+    private String anyRoles;
+
+    MethodRoles() {
+    }
+
+    MethodRoles(MethodRoles other) {
+        this.roles = other.roles.length == 0 ? EMPTY_ROLES : other.roles.clone();
+        this.anyRoles = other.anyRoles;
+    }
+
+    /**
+     * Get the roles of the method
+     * @param methodIndex method index, -1 means the method not in the tree
+     * @return roles, null when not match
+     */
+    String get(int methodIndex) {
+        if (methodIndex >= 0 && methodIndex < roles.length) {
+            String methodRoles = roles[methodIndex];
+            if (methodRoles != null) {
+                return methodRoles;
+            }
+        }
+        return anyRoles;
+    }
+
+    /**
+     * put the roles of the method, not overwrite the existed one
+     * @param methodIndex method index
+     * @param methodRoles roles
+     */
+    void putIfAbsent(int methodIndex, String methodRoles) {
+        if (methodIndex >= roles.length) {
+            roles = Arrays.copyOf(roles, Math.max(methodIndex + 1, HttpMethod.STANDARD_METHOD_NUM));
+        }
+        if (roles[methodIndex] == null) {
+            roles[methodIndex] = methodRoles;
+        }
+    }
+
+    /**
+     * put the roles of any method, not overwrite the existed one
+     * @param methodRoles roles
+     */
+    void putAnyIfAbsent(String methodRoles) {
+        if (anyRoles == null) {
+            anyRoles = methodRoles;
+        }
+    }
+
+    /**
+     * merge the other method table with lower priority,
+     * once this table has any method, the other one can not match anymore
+     * @param other the method table with lower priority
+     */
+    void mergeLowerPriority(MethodRoles other) {
+        if (anyRoles != null) {
+            return;
+        }
+        for (int index = 0; index < other.roles.length; index++) {
+            if (other.roles[index] != null) {
+                putIfAbsent(index, other.roles[index]);
+            }
+        }
+        anyRoles = other.anyRoles;
+    }
+
+    /**
+     * Whether the method is explicitly in the table, not by the any method
+     * @param methodIndex method index
+     * @return explicit true, else false
+     */
+    boolean contains(int methodIndex) {
+        return methodIndex >= 0 && methodIndex < roles.length && roles[methodIndex] != null;
+    }
+
+    /**
+     * Whether the table has the any method *
+     * @return has true, else false
+     */
+    boolean containsAny() {
+        return anyRoles != null;
+    }
+
+    /**
+     * Get the number of the methods
+     * @return method number, include any method
+     */
+    int size() {
+        int size = anyRoles == null ? 0 : 1;
+        for (String methodRoles : roles) {
+            if (methodRoles != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MethodRoles)) {
+            return false;
+        }
+        MethodRoles that = (MethodRoles) o;
+        int length = Math.max(roles.length, that.roles.length);
+        for (int index = 0; index < length; index++) {
+            if (!Objects.equals(index < roles.length ? roles[index] : null,
+                    index < that.roles.length ? that.roles[index] : null)) {
+                return false;
+            }
+        }
+        return Objects.equals(anyRoles, that.anyRoles);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(anyRoles);
+        for (String methodRoles : roles) {
+            if (methodRoles != null) {
+                hash = 31 * hash + methodRoles.hashCode();
+            }
+        }
+        return hash;
+    }
+}
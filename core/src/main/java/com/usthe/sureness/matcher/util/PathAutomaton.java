@@ -0,0 +1,466 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * deterministic automaton over path segments, compiled from the dictionary matching tree
+ * a state is the ordered list of the pending tree searches at a segment index, ordered by the search priority,
+ * so the first accepted rule of a transition is the same one the backtracking tree search returns:
+ * Raw string > constrained segment > * > **. matching is a single forward pass with a map lookup per segment,
+ * the segments not in the map choose the transition by which constrained segment patterns of the state they match
+ * @author agent
+ * @date 20:43 2026-10-18
+ */
+final class PathAutomaton {
+
+    /** search the children of the node with the segment **/
+    private static final int KIND_CHILDREN = 0;
+
+    /** search the node itself with the segment **/
+    private static final int KIND_NODE = 1;
+
+    /** estimated bytes of a state, a transition, an accepted method and a pending search **/
+    private static final int STATE_BYTES = 64;
+    private static final int TRANSITION_BYTES = 80;
+    private static final int ACCEPT_BYTES = 48;
+    private static final int SEARCH_BYTES = 4;
+
+    /** the max different constrained segment patterns of a state, a state has 2^n pattern transitions **/
+    private static final int MAX_STATE_PATTERNS = 8;
+
+    private final State start;
+
+    private final int stateNum;
+
+    private final long estimatedBytes;
+
+    private PathAutomaton(State start, int stateNum, long estimatedBytes) {
+        this.start = start;
+        this.stateNum = stateNum;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * compile the tree to automaton
+     * @param root tree root node
+     * @param memoryBudget the max estimated bytes
+     * @return automaton, null when exceed the memory budget or a state has too many patterns
+     */
+    static PathAutomaton compile(TirePathTree.Node root, long memoryBudget) {
+        Compiler compiler = new Compiler(root, memoryBudget);
+        State start = compiler.compile();
+        if (start == null) {
+            return null;
+        }
+        return new PathAutomaton(start, compiler.states.size(), compiler.usedBytes);
+    }
+
+    /**
+     * match the roles
+     * @param urlPac url segments, eg: [api, v2, host]
+     * @param methodIndex http method index, -1 when the method not in tree
+     * @return roles eg: [role1,role2], null when not match
+     */
+    String match(String[] urlPac, int methodIndex) {
+        if (urlPac == null || urlPac.length == 0) {
+            return null;
+        }
+        State state = start;
+        int last = urlPac.length - 1;
+        for (int index = 0; ; index++) {
+            Transition transition = state.transitions.get(urlPac[index]);
+            if (transition == null) {
+                transition = state.otherTransition(urlPac[index]);
+            }
+            if (transition == null) {
+                return null;
+            }
+            if (index == last) {
+                return transition.accepts.get(methodIndex);
+            }
+            state = transition.next;
+            if (state == null) {
+                return null;
+            }
+        }
+    }
+
+    int getStateNum() {
+        return stateNum;
+    }
+
+    long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private static class State {
+
+        /** segment - transition, only the segments differ from the other transition **/
+        private Map<String, Transition> transitions = Collections.emptyMap();
+
+        /** the transition of the segments not in transitions and not match any pattern, null means not match **/
+        private Transition otherTransition;
+
+        /** the constrained segment patterns, null when not have **/
+        private Pattern[] patterns;
+
+        /** index is the bit mask of the matched patterns **/
+        private Transition[] patternTransitions;
+
+        private Transition otherTransition(String segment) {
+            if (patterns == null) {
+                return otherTransition;
+            }
+            return patternTransitions[patternMask(patterns, segment)];
+        }
+    }
+
+    private static int patternMask(Pattern[] patterns, String segment) {
+        int mask = 0;
+        for (int index = 0; index < patterns.length; index++) {
+            if (patterns[index].matcher(segment).matches()) {
+                mask |= 1 << index;
+            }
+        }
+        return mask;
+    }
+
+    private static class Transition {
+
+        /** dead transition, override the other transition **/
+        private static final Transition DEAD = new Transition(null, MethodRoles.EMPTY);
+
+        /** next state, null means not match the following segments **/
+        private final State next;
+
+        /** http method table, accepted when the segment is the last one **/
+        private final MethodRoles accepts;
+
+        private Transition(State next, MethodRoles accepts) {
+            this.next = next;
+            this.accepts = accepts;
+        }
+
+        private boolean isSame(Transition other) {
+            if (other == null) {
+                return next == null && accepts.size() == 0;
+            }
+            return next == other.next && accepts.equals(other.accepts);
+        }
+    }
+
+    /**
+     * the key of state, the ordered pending searches
+     */
+    private static class SearchList {
+
+        private final int[] searches;
+
+        private final int hash;
+
+        private SearchList(int[] searches) {
+            this.searches = searches;
+            this.hash = Arrays.hashCode(searches);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof SearchList && Arrays.equals(searches, ((SearchList) o).searches);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * subset construction, a search is nodeId * 2 + kind
+     */
+    private static class Compiler {
+
+        private final long memoryBudget;
+
+        private final TirePathTree.Node[] nodes;
+
+        private final Map<TirePathTree.Node, Integer> nodeIds;
+
+        private final Map<SearchList, State> states = new HashMap<>(64);
+
+        private final Queue<Object[]> pendingStates = new ArrayDeque<>();
+
+        private long usedBytes;
+
+        /** the search visited stamp of current segment and the next segment **/
+        private final int[] visitedStamps;
+        private final int[] nextStamps;
+        private int stamp;
+
+        private int[] nextSearches = new int[16];
+        private int nextSize;
+
+        private MethodRoles accepts;
+
+        /** collect the segments which the visited searches care about, null when not collect **/
+        private Set<String> visitedSegments;
+
+        /** the constrained segment pattern - bit index of current state **/
+        private Map<String, Integer> statePatterns;
+
+        /** the matched patterns of the segment when the segment is null, other segment **/
+        private int otherMask;
+
+        private Compiler(TirePathTree.Node root, long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            Map<TirePathTree.Node, Integer> ids = new IdentityHashMap<>();
+            Queue<TirePathTree.Node> nodeQueue = new LinkedList<>();
+            nodeQueue.add(root);
+            ids.put(root, 0);
+            while (!nodeQueue.isEmpty()) {
+                for (TirePathTree.Node child : nodeQueue.poll().getChildren().values()) {
+                    if (!ids.containsKey(child)) {
+                        ids.put(child, ids.size());
+                        nodeQueue.add(child);
+                    }
+                }
+            }
+            this.nodeIds = ids;
+            this.nodes = new TirePathTree.Node[ids.size()];
+            ids.forEach((node, id) -> nodes[id] = node);
+            this.visitedStamps = new int[ids.size() * 2];
+            this.nextStamps = new int[ids.size() * 2];
+        }
+
+        private State compile() {
+            State start = stateOf(new int[]{KIND_CHILDREN});
+            while (!pendingStates.isEmpty()) {
+                if (usedBytes > memoryBudget) {
+                    return null;
+                }
+                Object[] pending = pendingStates.poll();
+                if (!fillState((State) pending[0], (int[]) pending[1])) {
+                    return null;
+                }
+            }
+            return usedBytes > memoryBudget ? null : start;
+        }
+
+        private boolean fillState(State state, int[] searches) {
+            // the * and ** expand to the deeper nodes at the same segment index,
+            // collect the segments and patterns of all the visited searches, other segments share the other transition
+            Set<String> segments = new HashSet<>();
+            Map<String, Integer> patterns = new LinkedHashMap<>();
+            visitedSegments = segments;
+            statePatterns = patterns;
+            otherMask = 0;
+            Transition otherTransition = transition(searches, null);
+            visitedSegments = null;
+            state.otherTransition = otherTransition;
+            if (!patterns.isEmpty()) {
+                if (patterns.size() > MAX_STATE_PATTERNS) {
+                    return false;
+                }
+                Pattern[] statePatternArray = new Pattern[patterns.size()];
+                patterns.forEach((regex, index) -> statePatternArray[index] = Pattern.compile(regex));
+                Transition[] patternTransitions = new Transition[1 << patterns.size()];
+                patternTransitions[0] = otherTransition;
+                for (int mask = 1; mask < patternTransitions.length; mask++) {
+                    otherMask = mask;
+                    patternTransitions[mask] = transition(searches, null);
+                    usedBytes += TRANSITION_BYTES;
+                }
+                otherMask = 0;
+                state.patterns = statePatternArray;
+                state.patternTransitions = patternTransitions;
+            }
+            Map<String, Transition> transitions = null;
+            for (String segment : segments) {
+                Transition transition = transition(searches, segment);
+                Transition fallback = state.otherTransition(segment);
+                if (transition == null ? fallback == null : transition.isSame(fallback)) {
+                    continue;
+                }
+                if (transitions == null) {
+                    transitions = new HashMap<>(segments.size() * 2);
+                }
+                transitions.put(segment, transition == null ? Transition.DEAD : transition);
+                usedBytes += TRANSITION_BYTES;
+            }
+            if (transitions != null) {
+                state.transitions = transitions;
+            }
+            statePatterns = null;
+            return true;
+        }
+
+        /**
+         * compute the transition of the searches with the segment
+         * @param searches the ordered pending searches
+         * @param segment segment, null means the segment not equals any node
+         * @return transition, null means not match
+         */
+        private Transition transition(int[] searches, String segment) {
+            stamp++;
+            nextSize = 0;
+            accepts = null;
+            for (int search : searches) {
+                visit(search, segment);
+            }
+            if (nextSize == 0 && accepts == null) {
+                return null;
+            }
+            State next = nextSize == 0 ? null : stateOf(Arrays.copyOf(nextSearches, nextSize));
+            MethodRoles transitionAccepts = accepts == null ? MethodRoles.EMPTY : accepts;
+            usedBytes += (long) transitionAccepts.size() * ACCEPT_BYTES;
+            return new Transition(next, transitionAccepts);
+        }
+
+        /**
+         * the same order as TirePathTree searchPathRole and searchPathRoleInChildren
+         */
+        private void visit(int search, String segment) {
+            if (visitedStamps[search] == stamp) {
+                return;
+            }
+            visitedStamps[search] = stamp;
+            TirePathTree.Node node = nodes[search >> 1];
+            if ((search & 1) == KIND_CHILDREN) {
+                if (visitedSegments != null) {
+                    visitedSegments.addAll(node.getChildren().keySet());
+                }
+                TirePathTree.Node child = segment == null ? null : node.getChild(segment);
+                if (child != null) {
+                    visit(nodeSearch(child), segment);
+                }
+                List<TirePathTree.Node> patternChildren = node.getPatternChildren();
+                if (patternChildren != null) {
+                    for (TirePathTree.Node patternNode : patternChildren) {
+                        visit(nodeSearch(patternNode), segment);
+                    }
+                }
+                TirePathTree.Node matchOneNode = node.getChild(TirePathTree.MATCH_ONE);
+                if (matchOneNode != null) {
+                    visit(nodeSearch(matchOneNode), segment);
+                }
+                TirePathTree.Node matchAllNode = node.getChild(TirePathTree.MATCH_ALL);
+                if (matchAllNode != null) {
+                    visit(nodeSearch(matchAllNode), segment);
+                }
+                return;
+            }
+            String data = node.getData();
+            boolean isEqual;
+            if (node.getPattern() != null) {
+                isEqual = isPatternMatch(node.getPattern(), segment);
+            } else {
+                if (visitedSegments != null) {
+                    visitedSegments.add(data);
+                }
+                isEqual = data.equals(segment);
+            }
+            boolean isMatchOne = TirePathTree.MATCH_ONE.equals(data);
+            boolean isMatchAll = TirePathTree.MATCH_ALL.equals(data);
+            if (!isEqual && !isMatchOne && !isMatchAll) {
+                return;
+            }
+            if (TirePathTree.NODE_TYPE_MAY_PATH_END.equals(node.getNodeType())) {
+                acceptNode(node);
+            }
+            int childrenSearch = search - KIND_NODE + KIND_CHILDREN;
+            if (isEqual) {
+                emit(childrenSearch);
+            }
+            if (isMatchOne) {
+                visit(childrenSearch, segment);
+                emit(childrenSearch);
+            }
+            if (isMatchAll) {
+                visit(childrenSearch, segment);
+                emit(childrenSearch);
+                emit(search);
+            }
+        }
+
+        /**
+         * the roles when the node is the end of path, the same as TirePathTree searchPathRole
+         */
+        private void acceptNode(TirePathTree.Node node) {
+            acceptMethods(node.getMethodRoles());
+            TirePathTree.Node nextNode = node.getChild(TirePathTree.MATCH_ONE);
+            if (nextNode == null) {
+                nextNode = node.getChild(TirePathTree.MATCH_ALL);
+            }
+            if (nextNode != null && TirePathTree.NODE_TYPE_MAY_PATH_END.equals(nextNode.getNodeType())) {
+                // the methods of current node have priority
+                acceptMethods(nextNode.getMethodRoles());
+            }
+        }
+
+        private void acceptMethods(MethodRoles methodRoles) {
+            if (methodRoles.size() == 0) {
+                return;
+            }
+            if (accepts == null) {
+                accepts = new MethodRoles();
+            }
+            // the first accepted one has the highest priority
+            accepts.mergeLowerPriority(methodRoles);
+        }
+
+        private boolean isPatternMatch(Pattern pattern, String segment) {
+            if (segment != null) {
+                return pattern.matcher(segment).matches();
+            }
+            Integer index = statePatterns.get(pattern.pattern());
+            if (index == null) {
+                // the same patterns are visited whatever the segment is, all collected with the other segment
+                index = statePatterns.size();
+                statePatterns.put(pattern.pattern(), index);
+            }
+            return index < Integer.SIZE && (otherMask & (1 << index)) != 0;
+        }
+
+        private void emit(int search) {
+            if (nextStamps[search] == stamp) {
+                return;
+            }
+            nextStamps[search] = stamp;
+            // the children search of leaf node never match, skip it
+            if ((search & 1) == KIND_CHILDREN && !nodes[search >> 1].hasChildren()) {
+                return;
+            }
+            if (nextSize == nextSearches.length) {
+                nextSearches = Arrays.copyOf(nextSearches, nextSize * 2);
+            }
+            nextSearches[nextSize++] = search;
+        }
+
+        private int nodeSearch(TirePathTree.Node node) {
+            return (nodeIds.get(node) << 1) + KIND_NODE;
+        }
+
+        private State stateOf(int[] searches) {
+            SearchList key = new SearchList(searches);
+            State state = states.get(key);
+            if (state == null) {
+                state = new State();
+                states.put(key, state);
+                pendingStates.add(new Object[]{state, searches});
+                usedBytes += STATE_BYTES + (long) searches.length * SEARCH_BYTES;
+            }
+            return state;
+        }
+    }
+}
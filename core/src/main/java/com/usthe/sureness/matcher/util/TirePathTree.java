@@ -4,19 +4,46 @@ package com.usthe.sureness.matcher.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Improved dictionary matching tree
  * support regular * **
  * the * can match zero or one directory
  * the ** can match zero or more directories
- * Match priority: Raw string > * > **
+ * support constrained segment, it matches one directory:
+ * {id} any not empty directory, {id:[0-9]+} regex directory, *.json or user-* glob directory
+ * the resource is lower case except the regex of constrained segment, the regex matches case insensitive
+ * Match priority: Raw string > constrained segment > * > **
+ * the path end node holds a method table indexed by http method, the method * matches any http method,
+ * the explicit method has priority over the method * of the same path
+ * the failed (wildcard node, segment index) searches are memoized per lookup, so matching stays polynomial
+ * the same segments and roles of a build share one string, the leaf and single child nodes do not allocate a map
+ * a chain of single child literal nodes is linked to its tail, the search compares the chain segments at once
+ * rebuild copies only the paths of the changed resources, the unchanged subtrees are shared with the current tree
+ * the optional method partitioned layout holds one tree per http method, each has the rules of the method
+ * and the method * rules, so a search only backtracks the branches may match its method
  * @author tomsun28
  * @date 19:25 2019-01-18
  */
@@ -24,22 +51,66 @@ public class TirePathTree {
 
     private static final Logger logger = LoggerFactory.getLogger(TirePathTree.class);
 
-    private static final String NODE_TYPE_PATH_NODE = "pathNode";
-    private static final String NODE_TYPE_MAY_PATH_END = "mayPathEnd";
-    private static final String NODE_TYPE_METHOD = "methodNode";
-    private static final String NODE_TYPE_FILTER_ROLES = "rolesNode";
+    static final String NODE_TYPE_PATH_NODE = "pathNode";
+    static final String NODE_TYPE_MAY_PATH_END = "mayPathEnd";
     private static final String URL_PATH_SPLIT = "/";
-    private static final String MATCH_ONE = "*";
-    private static final String MATCH_ALL = "**";
+    static final String MATCH_ONE = "*";
+    static final String MATCH_ALL = "**";
+    private static final String PATH_VARIABLE_PREFIX = "{";
+    private static final String PATH_VARIABLE_SUFFIX = "}";
     private static final int PATH_NODE_NUM_3 = 3;
     private static final int PATH_NODE_NUM_2 = 2;
     private static final Pattern PATH_SPLIT_PATTERN = Pattern.compile("/+");
+    private static final String PATH_METHOD_SPLIT = "===";
+    /** rebuild the whole tree when more than 1/4 resources changed **/
+    private static final int REBUILD_CHANGED_RATIO = 4;
+    private static final int DEFAULT_PARALLEL_BUILD_THRESHOLD = 20000;
 
     /**
      * root node
      */
     private volatile Node root;
 
+    /**
+     * sample one of every probeSampleInterval searches to count node probes, 0 means not sample
+     */
+    private volatile int probeSampleInterval;
+
+    /**
+     * the memory budget bytes of compiling the tree to automaton, 0 means not compile
+     */
+    private volatile long automatonMemoryBudget;
+
+    /**
+     * build the tree in parallel when the resources are more than it, 0 means always build sequentially
+     */
+    private volatile int parallelBuildThreshold = DEFAULT_PARALLEL_BUILD_THRESHOLD;
+
+    /**
+     * the resource paths of current tree, diff with them when rebuild, null when unknown
+     */
+    private Set<String> resourcePaths;
+
+    /**
+     * the number of the wildcard indexes whose node is removed by rebuild, rebuild the whole tree when too many
+     */
+    private int removedWildcardNum;
+
+    /**
+     * the automaton memory budget of the current tree compiled with
+     */
+    private long compiledAutomatonBudget;
+
+    /**
+     * build one tree per http method, take effect at next build or rebuild
+     */
+    private volatile boolean methodPartitioned;
+
+    /**
+     * the trees partitioned by http method, null when not partitioned
+     */
+    private volatile MethodTrees methodTrees;
+
     public TirePathTree() {
         this.root = new Node("root");
     }
@@ -53,9 +124,17 @@ public class TirePathTree {
             logger.debug("sureness - start buildTree...");
         }
         clearTree();
-        for (String path : paths) {
-            insertNode(path, this.root);
+        if (methodPartitioned) {
+            this.methodTrees = buildMethodTrees(paths, null);
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - buildTree {} method partitions finish", methodTrees.methods.length);
+            }
+            return;
         }
+        insertNodes(paths, this.root);
+        linkLiteralChains(this.root);
+        this.root.automaton = compileAutomaton(this.root);
+        this.resourcePaths = new HashSet<>(paths);
         if (logger.isDebugEnabled()) {
             logger.debug("sureness - buildTree finish");
         }
@@ -65,20 +144,426 @@ public class TirePathTree {
      * rebuild and update dictionary matching tree
      * Concurrency type:RCU -- read copy update
      * Ensure that reading is not affected during reconstruction
+     * when only a few resources changed, copy the paths of them and share the unchanged subtrees
      * @param paths resources paths set
      */
     public synchronized void rebuildTree(Set<String> paths) {
         if (logger.isDebugEnabled()) {
             logger.debug("sureness - start rebuildTree..., try rcu current way");
         }
+        if (methodPartitioned) {
+            this.methodTrees = buildMethodTrees(paths, methodTrees);
+            this.root = new Node("root");
+            this.resourcePaths = null;
+            this.removedWildcardNum = 0;
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - rebuildTree {} method partitions finish", methodTrees.methods.length);
+            }
+            return;
+        }
+        if (resourcePaths != null && rebuildChangedPaths(paths)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - rebuildTree changed paths finish");
+            }
+            return;
+        }
         Node buildRoot = new Node("root");
+        insertNodes(paths, buildRoot);
+        linkLiteralChains(buildRoot);
+        buildRoot.automaton = compileAutomaton(buildRoot);
+        this.root = buildRoot;
+        this.methodTrees = null;
+        this.resourcePaths = new HashSet<>(paths);
+        this.removedWildcardNum = 0;
+        if (logger.isDebugEnabled()) {
+            logger.debug("sureness - rebuildTree finish");
+        }
+    }
+
+    /**
+     * rebuild to a new tree off to the side, this tree is not changed,
+     * the new tree shares the unchanged subtrees and the settings with this tree
+     * @param paths resources paths set
+     * @return the new tree
+     */
+    public TirePathTree copyAndRebuild(Set<String> paths) {
+        return copyAndRebuild(paths, this, methodPartitioned);
+    }
+
+    /**
+     * rebuild to a new tree off to the side with the settings of another tree
+     * @param paths resources paths set
+     * @param settings the tree whose settings are used
+     * @param partitioned whether the new tree is method partitioned
+     * @return the new tree
+     */
+    private synchronized TirePathTree copyAndRebuild(Set<String> paths, TirePathTree settings, boolean partitioned) {
+        TirePathTree tree = new TirePathTree();
+        tree.probeSampleInterval = settings.probeSampleInterval;
+        tree.automatonMemoryBudget = settings.automatonMemoryBudget;
+        tree.parallelBuildThreshold = settings.parallelBuildThreshold;
+        tree.methodPartitioned = partitioned;
+        if (resourcePaths != null) {
+            tree.root = root;
+            tree.resourcePaths = new HashSet<>(resourcePaths);
+            tree.removedWildcardNum = removedWildcardNum;
+            tree.compiledAutomatonBudget = compiledAutomatonBudget;
+        }
+        tree.methodTrees = methodTrees;
+        tree.rebuildTree(paths);
+        return tree;
+    }
+
+    /**
+     * partition the resources by http method and build a tree of each partition off to the side,
+     * the method * resources are in every partition, the order of resources is kept in partitions,
+     * so a partition matches the same as the whole tree for its method, except at the end of path
+     * a * which only has the rules of other methods hides the sibling ** in the whole tree, not in a partition
+     * @param paths resources paths set
+     * @param previous the current method trees, share the unchanged subtrees with them, null when build
+     * @return method trees
+     */
+    private MethodTrees buildMethodTrees(Set<String> paths, MethodTrees previous) {
+        List<String> resources = new ArrayList<>(paths.size());
+        List<String> resourceMethods = new ArrayList<>(paths.size());
+        Map<String, Set<String>> methodPaths = new LinkedHashMap<>();
         for (String path : paths) {
-            insertNode(path, buildRoot);
+            String[] tmp = splitResource(path, PATH_NODE_NUM_3);
+            if (tmp == null) {
+                continue;
+            }
+            resources.add(path);
+            resourceMethods.add(tmp[1]);
+            if (!HttpMethod.ANY_METHOD.equals(tmp[1])) {
+                methodPaths.computeIfAbsent(tmp[1], method -> new LinkedHashSet<>());
+            }
+        }
+        Set<String> anyPaths = new LinkedHashSet<>();
+        for (int index = 0; index < resources.size(); index++) {
+            String path = resources.get(index);
+            String method = resourceMethods.get(index);
+            if (HttpMethod.ANY_METHOD.equals(method)) {
+                anyPaths.add(path);
+                for (Set<String> partitionPaths : methodPaths.values()) {
+                    partitionPaths.add(path);
+                }
+            } else {
+                methodPaths.get(method).add(path);
+            }
+        }
+        String[] methods = methodPaths.keySet().toArray(new String[0]);
+        TirePathTree[] trees = new TirePathTree[methods.length];
+        for (int index = 0; index < methods.length; index++) {
+            TirePathTree previousTree = previous == null ? null : previous.get(methods[index]);
+            trees[index] = (previousTree == null ? new TirePathTree() : previousTree)
+                    .copyAndRebuild(methodPaths.get(methods[index]), this, false);
         }
+        TirePathTree anyTree = (previous == null ? new TirePathTree() : previous.anyTree)
+                .copyAndRebuild(anyPaths, this, false);
+        return new MethodTrees(methods, trees, anyTree);
+    }
+
+    /**
+     * insert the resources to the tree, partition the resources by the first segment and build
+     * the partitions in parallel when the resources are more than the parallel build threshold
+     * @param paths resources paths set
+     * @param buildRoot root node
+     */
+    private void insertNodes(Set<String> paths, Node buildRoot) {
+        int threshold = parallelBuildThreshold;
+        if (threshold <= 0 || paths.size() < threshold || ForkJoinPool.getCommonPoolParallelism() < PATH_NODE_NUM_2) {
+            TreeBuilder builder = new TreeBuilder(buildRoot, false, null);
+            for (String path : paths) {
+                builder.insertNode(path, buildRoot);
+            }
+            return;
+        }
+        // the partitions keep the order of the first appearance, so the constrained segment priority is the same
+        Map<String, List<String>> partitions = new LinkedHashMap<>();
+        for (String path : paths) {
+            partitions.computeIfAbsent(firstSegment(path), segment -> new ArrayList<>()).add(path);
+        }
+        List<List<String>> partitionPaths = new ArrayList<>(partitions.values());
+        Node[] partitionRoots = new Node[partitionPaths.size()];
+        TreeBuilder builder = new TreeBuilder(buildRoot, true, null);
+        ForkJoinPool.commonPool().invoke(new PartitionBuildTask(builder, partitionPaths, partitionRoots,
+                0, partitionRoots.length));
+        // each partition only has the subtree of its first segment, merge them under the root
+        for (Node partitionRoot : partitionRoots) {
+            for (Node child : partitionRoot.getChildren().values()) {
+                buildRoot.addChild(child);
+                if (child.pattern != null) {
+                    buildRoot.insertPatternChild(child);
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("sureness - parallel build {} resources in {} partitions", paths.size(), partitionRoots.length);
+        }
+    }
+
+    /**
+     * Get the lower case first segment of the resource for partition, not need to be exact for the illegal one
+     * @param path resource eg: /api/v1/host/detail===GET===[role2,role3,role4]
+     * @return first segment eg: api
+     */
+    private static String firstSegment(String path) {
+        int pathEnd = path.indexOf(PATH_METHOD_SPLIT);
+        if (pathEnd < 0) {
+            pathEnd = path.length();
+        }
+        int start = 0;
+        while (start < pathEnd && path.charAt(start) == '/') {
+            start++;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0 || end > pathEnd) {
+            end = pathEnd;
+        }
+        return path.substring(start, end).toLowerCase();
+    }
+
+    /**
+     * copy on write rebuild, only copy the nodes on the paths of the changed resources
+     * @param paths resources paths set
+     * @return rebuild true, false when too many changed and should rebuild the whole tree
+     */
+    private boolean rebuildChangedPaths(Set<String> paths) {
+        int changeLimit = Math.max(paths.size(), resourcePaths.size()) / REBUILD_CHANGED_RATIO;
+        List<String> removedPaths = new ArrayList<>();
+        for (String path : resourcePaths) {
+            if (!paths.contains(path)) {
+                removedPaths.add(path);
+                if (removedPaths.size() > changeLimit) {
+                    return false;
+                }
+            }
+        }
+        List<String> addedPaths = new ArrayList<>();
+        for (String path : paths) {
+            if (!resourcePaths.contains(path)) {
+                addedPaths.add(path);
+                if (removedPaths.size() + addedPaths.size() > changeLimit) {
+                    return false;
+                }
+            }
+        }
+        Node currentRoot = root;
+        if (removedPaths.isEmpty() && addedPaths.isEmpty()) {
+            if (compiledAutomatonBudget != automatonMemoryBudget) {
+                // the root may be shared with another tree, compile on a copy
+                Node buildRoot = currentRoot.copy();
+                buildRoot.automaton = compileAutomaton(buildRoot);
+                this.root = buildRoot;
+            }
+            return true;
+        }
+        if (removedWildcardNum * 2 > currentRoot.wildcardNum) {
+            // too many wildcard indexes are not used, rebuild to compact the failed search memo
+            return false;
+        }
+        Set<Node> copiedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        Node buildRoot = currentRoot.copy();
+        copiedNodes.add(buildRoot);
+        TreeBuilder builder = new TreeBuilder(buildRoot, false, copiedNodes);
+        // the node of removed resource and the previous node of the removed * or **, reset and insert again
+        Map<List<String>, String[]> resetPaths = new LinkedHashMap<>();
+        for (String path : removedPaths) {
+            String[] resource = splitResource(path, PATH_NODE_NUM_3);
+            if (resource == null) {
+                continue;
+            }
+            String[] urlPac = resource[0].split(URL_PATH_SPLIT);
+            resetPaths.put(Arrays.asList(urlPac), urlPac);
+            String last = urlPac[urlPac.length - 1];
+            if (MATCH_ONE.equals(last) || MATCH_ALL.equals(last)) {
+                String[] preUrlPac = Arrays.copyOf(urlPac, urlPac.length - 1);
+                resetPaths.put(Arrays.asList(preUrlPac), preUrlPac);
+            }
+        }
+        // the added resource has the same path and method with a kept one, the first in order wins as a build,
+        // reset the node and insert again
+        for (String path : addedPaths) {
+            String[] resource = splitResource(path, PATH_NODE_NUM_3);
+            if (resource == null) {
+                continue;
+            }
+            String[] urlPac = resource[0].split(URL_PATH_SPLIT);
+            if (hasMethod(currentRoot, urlPac, resource[1])) {
+                resetPaths.put(Arrays.asList(urlPac), urlPac);
+            }
+        }
+        List<List<Node>> resetNodePaths = new ArrayList<>(resetPaths.size());
+        for (String[] urlPac : resetPaths.values()) {
+            List<Node> nodePath = mutablePath(buildRoot, urlPac, copiedNodes);
+            if (nodePath != null) {
+                Node resetNode = nodePath.get(nodePath.size() - 1);
+                resetNode.methodRoles = null;
+                resetNode.setNodeType(NODE_TYPE_PATH_NODE);
+                resetNodePaths.add(nodePath);
+            }
+        }
+        if (resetNodePaths.isEmpty()) {
+            for (String path : addedPaths) {
+                builder.insertNode(path, buildRoot);
+            }
+        } else {
+            // insert the added resources and the resources of reset nodes in order, keep the configuration priority
+            for (String path : paths) {
+                if (!resourcePaths.contains(path) || isResetPath(path, resetPaths.values())) {
+                    builder.insertNode(path, buildRoot);
+                }
+            }
+            for (List<Node> nodePath : resetNodePaths) {
+                removeEmptyNodes(nodePath);
+            }
+        }
+        // the chains of the shared nodes are not changed, their subtrees are the same
+        for (Node node : copiedNodes) {
+            node.chain = LiteralChain.of(node);
+        }
+        buildRoot.automaton = compileAutomaton(buildRoot);
         this.root = buildRoot;
+        resourcePaths.removeAll(removedPaths);
+        resourcePaths.addAll(addedPaths);
         if (logger.isDebugEnabled()) {
-            logger.debug("sureness - rebuildTree finish");
+            logger.debug("sureness - rebuildTree changed paths, removed: {}, added: {}, copied nodes: {}",
+                    removedPaths.size(), addedPaths.size(), copiedNodes.size());
         }
+        return true;
+    }
+
+    /**
+     * Determine whether the node of the url segments has the method in the tree
+     * @param currentRoot root node
+     * @param urlPac url segments
+     * @param method lower case http method or *
+     * @return has return true, else false
+     */
+    private static boolean hasMethod(Node currentRoot, String[] urlPac, String method) {
+        Node current = currentRoot;
+        for (String urlData : urlPac) {
+            current = current.getChild(urlData);
+            if (current == null) {
+                return false;
+            }
+        }
+        MethodRoles methodRoles = current.getMethodRoles();
+        return HttpMethod.ANY_METHOD.equals(method) ? methodRoles.containsAny()
+                : methodRoles.contains(currentRoot.methodIndexOf(method));
+    }
+
+    /**
+     * copy the nodes on the path which are shared with the current tree
+     * @param buildRoot the copied root node
+     * @param urlPac url segments
+     * @param copiedNodes the nodes copied or created in this rebuild
+     * @return copied nodes from root to the end of path, null when the path not in tree
+     */
+    private List<Node> mutablePath(Node buildRoot, String[] urlPac, Set<Node> copiedNodes) {
+        List<Node> nodePath = new ArrayList<>(urlPac.length + 1);
+        Node current = buildRoot;
+        nodePath.add(current);
+        if (urlPac.length == 0) {
+            return nodePath;
+        }
+        for (String urlData : urlPac) {
+            Node child = current.getChild(urlData);
+            if (child == null) {
+                return null;
+            }
+            current = mutableChild(current, child, copiedNodes);
+            nodePath.add(current);
+        }
+        return nodePath;
+    }
+
+    private static Node mutableChild(Node parent, Node child, Set<Node> copiedNodes) {
+        if (copiedNodes == null || copiedNodes.contains(child)) {
+            return child;
+        }
+        Node copy = child.copy();
+        parent.replaceChild(child, copy);
+        copiedNodes.add(copy);
+        return copy;
+    }
+
+    /**
+     * remove the nodes which have no child and no method from the end of path
+     * @param nodePath copied nodes from root to the end of path
+     */
+    private void removeEmptyNodes(List<Node> nodePath) {
+        for (int index = nodePath.size() - 1; index > 0; index--) {
+            Node node = nodePath.get(index);
+            if (node.hasChildren() || node.getMethodRoles().size() > 0) {
+                return;
+            }
+            nodePath.get(index - 1).removeChild(node);
+            if (node.wildcardIndex >= 0) {
+                removedWildcardNum++;
+            }
+        }
+    }
+
+    private static boolean isResetPath(String path, Collection<String[]> resetPaths) {
+        for (String[] urlPac : resetPaths) {
+            if (comparePath(path, urlPac) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * compare the normalized path of resource with the url segments, not allocate
+     * @param path resource eg: /api/v1/host/detail===GET===[role2,role3,role4]
+     * @param urlPac lower case url segments
+     * @return 0 when equals, 1 when the path is the url segments with a * or ** following, else -1
+     */
+    private static int comparePath(String path, String[] urlPac) {
+        int pathEnd = path.indexOf(PATH_METHOD_SPLIT);
+        if (pathEnd < 0 || !path.startsWith(URL_PATH_SPLIT)) {
+            return -1;
+        }
+        int segmentIndex = 0;
+        int extraStart = -1;
+        int extraLength = 0;
+        int start = 0;
+        while (start < pathEnd) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > pathEnd) {
+                end = pathEnd;
+            }
+            if (segmentIndex < urlPac.length) {
+                String segment = urlPac[segmentIndex];
+                if (segment.length() != end - start || !path.regionMatches(true, start, segment, 0, end - start)) {
+                    return -1;
+                }
+            } else if (segmentIndex == urlPac.length) {
+                extraStart = start;
+                extraLength = end - start;
+            } else {
+                return -1;
+            }
+            segmentIndex++;
+            start = end;
+        }
+        if (segmentIndex == 0) {
+            // the path / is a empty segment
+            return urlPac.length == 1 && urlPac[0].isEmpty() ? 0 : -1;
+        }
+        if (segmentIndex == urlPac.length) {
+            return 0;
+        }
+        if (segmentIndex == urlPac.length + 1 && (path.startsWith(MATCH_ONE, extraStart) && extraLength == 1
+                || path.startsWith(MATCH_ALL, extraStart) && extraLength == 2)) {
+            return 1;
+        }
+        return -1;
     }
 
     /**
@@ -88,7 +573,14 @@ public class TirePathTree {
         if (logger.isDebugEnabled()) {
             logger.debug("sureness - clearTree");
         }
-        root.getChildren().clear();
+        root.automaton = null;
+        root.clearChildren();
+        root.patternChildren = null;
+        root.methodRoles = null;
+        root.methodIndexes = null;
+        root.wildcardNum = 0;
+        resourcePaths = null;
+        methodTrees = null;
     }
 
     /**
@@ -96,16 +588,24 @@ public class TirePathTree {
      * @return int resource number
      */
     public int getResourceNum() {
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            // the method * resources are counted once
+            int anyNum = currentMethodTrees.anyTree.getResourceNum();
+            int resourceNum = anyNum;
+            for (TirePathTree tree : currentMethodTrees.trees) {
+                resourceNum += tree.getResourceNum() - anyNum;
+            }
+            return resourceNum;
+        }
         int resourceNum = 0;
         // Breadth First Search - bfs
         Queue<Node> resourceList = new LinkedList<>();
         resourceList.add(root);
         while (!resourceList.isEmpty()) {
             Node currentNode = resourceList.poll();
-            if (NODE_TYPE_METHOD.equals(currentNode.nodeType)) {
-                resourceNum ++;
-            }
-            if (currentNode.getChildren() != null && !currentNode.getChildren().isEmpty()) {
+            resourceNum += currentNode.getMethodRoles().size();
+            if (currentNode.hasChildren()) {
                 resourceList.addAll(currentNode.getChildren().values());
             }
         }
@@ -121,6 +621,168 @@ public class TirePathTree {
      * @return java.lang.String roles eg: [role1,role2]
      */
     public String searchPathFilterRoles(String path) {
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            return currentMethodTrees.select(path).searchPathFilterRoles(path);
+        }
+        SearchContext context = null;
+        int sampleInterval = probeSampleInterval;
+        if (sampleInterval > 0 && ThreadLocalRandom.current().nextInt(sampleInterval) == 0) {
+            context = new SearchContext(false);
+        }
+        return searchPathFilterRoles(path, root, context);
+    }
+
+    /**
+     * explain how the path and method match in tree, visited nodes, backtrack count and the winning rule
+     * it is slow, only for debugging, do not call it in every request
+     * @param path request path eg: /api/v2/host/detail
+     * @param method http method eg: get
+     * @return match trace
+     */
+    public MatchTrace explain(String path, String method) {
+        String target = path + "===" + method;
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            return currentMethodTrees.select(target).explain(path, method);
+        }
+        Node currentRoot = root;
+        SearchContext context = new SearchContext(true);
+        String roles = searchPathFilterRoles(target, currentRoot, context);
+        Map<Node, String> patterns = collectPatterns(currentRoot);
+        List<String> visitedNodes = new ArrayList<>(context.visitedNodes.size());
+        for (int index = 0; index < context.visitedNodes.size(); index++) {
+            visitedNodes.add(patterns.get(context.visitedNodes.get(index)) + " <- " + context.visitedSegments.get(index));
+        }
+        String matchedRule = null;
+        if (roles != null && context.matchedNode != null) {
+            String matchedMethod = context.matchedNode.getMethodRoles().contains(context.methodIndex)
+                    ? method.toLowerCase() : HttpMethod.ANY_METHOD;
+            matchedRule = patterns.get(context.matchedNode) + "===" + matchedMethod + "===" + roles;
+        }
+        return new MatchTrace(target.toLowerCase(), visitedNodes, context.backtrackCount, matchedRule, roles);
+    }
+
+    /**
+     * set the probe sample interval, sample one of every interval searches to count the probes of path nodes.
+     * the counts of the changed paths are reset when rebuild tree
+     * @param sampleInterval sample interval, eg: 100, 0 means not sample
+     */
+    public void setProbeSampleInterval(int sampleInterval) {
+        this.probeSampleInterval = Math.max(sampleInterval, 0);
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            currentMethodTrees.forEach(tree -> tree.setProbeSampleInterval(sampleInterval));
+        }
+    }
+
+    /**
+     * Get the sampled probe count of the path pattern nodes, the pathological patterns are probed much more
+     * @return path pattern - probe count, sort by count desc, only contain the probed nodes
+     */
+    public Map<String, Long> getProbeCounts() {
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            // the method * resources are in every partition, sum their counts
+            Map<String, Long> counts = new HashMap<>(64);
+            currentMethodTrees.forEach(tree -> tree.getProbeCounts().forEach((pattern, count) ->
+                    counts.merge(pattern, count, Long::sum)));
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort((left, right) -> Long.compare(right.getValue(), left.getValue()));
+            Map<String, Long> probeCounts = new LinkedHashMap<>(entries.size() * 2);
+            for (Map.Entry<String, Long> entry : entries) {
+                probeCounts.put(entry.getKey(), entry.getValue());
+            }
+            return probeCounts;
+        }
+        Node currentRoot = root;
+        List<Map.Entry<Node, String>> nodes = new ArrayList<>(collectPatterns(currentRoot).entrySet());
+        nodes.removeIf(entry -> entry.getKey().probeCount == 0);
+        nodes.sort((left, right) -> Long.compare(right.getKey().probeCount, left.getKey().probeCount));
+        Map<String, Long> probeCounts = new LinkedHashMap<>(nodes.size() * 2);
+        for (Map.Entry<Node, String> entry : nodes) {
+            probeCounts.put(entry.getValue(), entry.getKey().probeCount);
+        }
+        return probeCounts;
+    }
+
+    /**
+     * reset the probe count of all nodes
+     */
+    public void resetProbeCounts() {
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            currentMethodTrees.forEach(TirePathTree::resetProbeCounts);
+        }
+        collectPatterns(root).keySet().forEach(node -> Node.PROBE_COUNT_UPDATER.set(node, 0));
+    }
+
+    /**
+     * set the memory budget of compiling the tree to a deterministic automaton over path segments,
+     * take effect at next build or rebuild. the automaton matches in a single forward pass,
+     * when the estimated memory exceed the budget, fallback to the tree search
+     * @param memoryBudget budget bytes, eg: 64 * 1024 * 1024, 0 means not compile
+     */
+    public void setAutomatonMemoryBudget(long memoryBudget) {
+        this.automatonMemoryBudget = Math.max(memoryBudget, 0);
+    }
+
+    /**
+     * set the threshold of parallel build, the resources more than it are partitioned by the first segment
+     * and built in parallel in the common fork join pool, take effect at next build or whole rebuild
+     * @param threshold resource number threshold, eg: 20000, 0 means always build sequentially
+     */
+    public void setParallelBuildThreshold(int threshold) {
+        this.parallelBuildThreshold = Math.max(threshold, 0);
+    }
+
+    /**
+     * set whether build one tree per http method, take effect at next build or rebuild.
+     * a partition has the rules of its method and the method * rules, the method * rules are copied to
+     * each partition, a search picks the partition of its method and not backtrack the branches
+     * only have the rules of other methods, the automaton memory budget is of each partition.
+     * at the end of path, a * which only has the rules of other methods does not hide the sibling ** in a partition
+     * @param partitioned partitioned true, else false
+     */
+    public void setMethodPartitioned(boolean partitioned) {
+        this.methodPartitioned = partitioned;
+    }
+
+    /**
+     * Whether the current tree is compiled to automaton
+     * @return compiled true, else false
+     */
+    public boolean isAutomatonCompiled() {
+        MethodTrees currentMethodTrees = methodTrees;
+        if (currentMethodTrees != null) {
+            boolean compiled = currentMethodTrees.anyTree.isAutomatonCompiled();
+            for (TirePathTree tree : currentMethodTrees.trees) {
+                compiled &= tree.isAutomatonCompiled();
+            }
+            return compiled;
+        }
+        return root.automaton != null;
+    }
+
+    private PathAutomaton compileAutomaton(Node buildRoot) {
+        long memoryBudget = automatonMemoryBudget;
+        compiledAutomatonBudget = memoryBudget;
+        if (memoryBudget <= 0) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        PathAutomaton automaton = PathAutomaton.compile(buildRoot, memoryBudget);
+        if (automaton == null) {
+            logger.warn("sureness - path automaton exceed the memory budget {} bytes or the state pattern limit, "
+                    + "fallback to tree search", memoryBudget);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("sureness - compile path automaton finish, states: {}, estimated bytes: {}, cost: {}ms",
+                    automaton.getStateNum(), automaton.getEstimatedBytes(), System.currentTimeMillis() - start);
+        }
+        return automaton;
+    }
+
+    private String searchPathFilterRoles(String path, Node currentRoot, SearchContext context) {
         if (path == null || "".equals(path) || !path.startsWith(URL_PATH_SPLIT)) {
             return null;
         }
@@ -134,79 +796,144 @@ public class TirePathTree {
             return null;
         }
         String[] urlPac = tmp[0].split("/");
-        String method = tmp[1];
+        int methodIndex = currentRoot.methodIndexOf(tmp[1]);
+        if (context != null) {
+            context.methodIndex = methodIndex;
+        }
 
+        PathAutomaton automaton = currentRoot.automaton;
+        if (automaton != null && context == null) {
+            return automaton.match(urlPac, methodIndex);
+        }
         // Pattern matching   * **
-        Node current = root;
-        return searchPathRoleInChildren(current, urlPac, -1, method);
+        // memoize the failed (wildcard node, segment index) when the tree has wildcard node,
+        // keep the wildcard backtracking polynomial. one memo per search, no memo kept by the threads
+        MatchMemo memo = currentRoot.wildcardNum > 0 ? MatchMemo.of(currentRoot.wildcardNum, urlPac.length) : null;
+        return searchPathRoleInChildren(currentRoot, urlPac, -1, methodIndex, context, memo);
     }
 
+    /**
+     * collect the path pattern of the path nodes in tree, eg: /api/*
+     * @param currentRoot root node
+     * @return node - path pattern
+     */
+    private Map<Node, String> collectPatterns(Node currentRoot) {
+        Map<Node, String> patterns = new IdentityHashMap<>();
+        Queue<Node> nodeQueue = new LinkedList<>();
+        nodeQueue.add(currentRoot);
+        patterns.put(currentRoot, "");
+        while (!nodeQueue.isEmpty()) {
+            Node currentNode = nodeQueue.poll();
+            String pattern = patterns.get(currentNode);
+            for (Node child : currentNode.getChildren().values()) {
+                if (NODE_TYPE_PATH_NODE.equals(child.getNodeType()) || NODE_TYPE_MAY_PATH_END.equals(child.getNodeType())) {
+                    patterns.put(child, pattern + URL_PATH_SPLIT + child.getData());
+                    nodeQueue.add(child);
+                }
+            }
+        }
+        patterns.remove(currentRoot);
+        return patterns;
+    }
 
     /**
      * Find the leaf node of the corresponding branch from the current node
      * @param current current node
      * @param urlPac urlPath arr
      * @param currentFlow current Flow
-     * @param method http method: post get delete put...
+     * @param methodIndex http method index, -1 when the method not in tree, only match the method *
+     * @param context search context, record trace or probes, null when not record
+     * @param memo failed search memo of this lookup, null when not memoize
      * @return match return roles eg:[role,role2], else return null
      */
-    private String searchPathRole(Node current, String[] urlPac, int currentFlow, String method) {
-        if (current == null || urlPac == null || currentFlow >= urlPac.length
-                || currentFlow < 0 || method == null || "".equals(method)) {
+    private String searchPathRole(Node current, String[] urlPac, int currentFlow, int methodIndex,
+                                  SearchContext context, MatchMemo memo) {
+        if (current == null || urlPac == null || currentFlow >= urlPac.length || currentFlow < 0) {
             return null;
         }
+        boolean memoize = memo != null && current.wildcardIndex >= 0;
+        if (memoize && memo.isFailed(current.wildcardIndex, currentFlow, false)) {
+            return null;
+        }
+        String matchRole;
+        if (context == null) {
+            matchRole = matchPathRole(current, urlPac, currentFlow, methodIndex, null, memo);
+        } else {
+            context.visit(current, urlPac[currentFlow]);
+            matchRole = matchPathRole(current, urlPac, currentFlow, methodIndex, context, memo);
+            if (matchRole == null) {
+                context.backtrackCount++;
+            }
+        }
+        if (matchRole == null && memoize) {
+            memo.markFailed(current.wildcardIndex, currentFlow, false);
+        }
+        return matchRole;
+    }
 
+    private String matchPathRole(Node current, String[] urlPac, int currentFlow, int methodIndex,
+                                 SearchContext context, MatchMemo memo) {
         // fast fail
-        if (isNoMatchString(current.getData(), urlPac[currentFlow])) {
-            return null;
+        boolean isEqual;
+        if (current.pattern != null) {
+            isEqual = current.pattern.matcher(urlPac[currentFlow]).matches();
+            if (!isEqual) {
+                return null;
+            }
+        } else {
+            if (isNoMatchString(current.getData(), urlPac[currentFlow])) {
+                return null;
+            }
+            isEqual = current.getData().equals(urlPac[currentFlow]);
         }
         if (currentFlow == urlPac.length - 1 && (NODE_TYPE_MAY_PATH_END.equals(current.getNodeType()))) {
-            Node methodNode = current.getChildren().get(method);
-            if (methodNode != null) {
-                if (NODE_TYPE_METHOD.equals(methodNode.getNodeType())) {
-                    return methodNode.getChildren().keySet().iterator().next();
-                }
-            } else {
-                Node nextNode = current.getChildren().get(MATCH_ONE);
+            Node matchedNode = current;
+            String matchRole = current.getMethodRoles().get(methodIndex);
+            if (matchRole == null) {
+                Node nextNode = current.getChild(MATCH_ONE);
                 if (nextNode == null) {
-                    nextNode = current.getChildren().get(MATCH_ALL);
+                    nextNode = current.getChild(MATCH_ALL);
                 }
                 if (nextNode != null && NODE_TYPE_MAY_PATH_END.equals(nextNode.getNodeType())) {
-                    methodNode = nextNode.getChildren().get(method);
-                    if (methodNode != null && NODE_TYPE_METHOD.equals(methodNode.getNodeType())) {
-                        return methodNode.getChildren().keySet().iterator().next();
-                    }
+                    matchedNode = nextNode;
+                    matchRole = nextNode.getMethodRoles().get(methodIndex);
                 }
             }
+            if (matchRole != null) {
+                if (context != null) {
+                    context.matched(matchedNode);
+                }
+                return matchRole;
+            }
         }
 
         String matchRole = null;
-        if (current.getData().equals(urlPac[currentFlow])) {
-            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, method);
+        if (isEqual) {
+            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
         }
         if (current.getData().equals(MATCH_ONE)) {
-            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow - 1, method);
+            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow - 1, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
-            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, method);
+            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
         }
         if (current.getData().equals(MATCH_ALL)) {
-            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow - 1, method);
+            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow - 1, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
-            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, method);
+            matchRole = searchPathRoleInChildren(current, urlPac, currentFlow, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
-            matchRole = searchPathRole(current, urlPac, currentFlow + 1, method);
+            matchRole = searchPathRole(current, urlPac, currentFlow + 1, methodIndex, context, memo);
         }
         return matchRole;
     }
@@ -217,37 +944,86 @@ public class TirePathTree {
      * @param current current node
      * @param urlPac urlPath arr
      * @param currentFlow current flow
-     * @param method http method
+     * @param methodIndex http method index
+     * @param context search context, null when not record
+     * @param memo failed search memo of this lookup, null when not memoize
      * @return match return roles eg:[role,role2], else return null
      */
-    private String searchPathRoleInChildren(Node current, String[] urlPac, int currentFlow,  String method) {
-        if (current == null || urlPac == null || currentFlow >= urlPac.length - 1
-                || currentFlow < -1 || method == null || "".equals(method)) {
+    private String searchPathRoleInChildren(Node current, String[] urlPac, int currentFlow, int methodIndex,
+                                            SearchContext context, MatchMemo memo) {
+        if (current == null || urlPac == null || currentFlow >= urlPac.length - 1 || currentFlow < -1) {
             return null;
         }
+        if (memo == null || current.wildcardIndex < 0) {
+            return matchPathRoleInChildren(current, urlPac, currentFlow, methodIndex, context, memo);
+        }
+        if (memo.isFailed(current.wildcardIndex, currentFlow, true)) {
+            return null;
+        }
+        String matchRole = matchPathRoleInChildren(current, urlPac, currentFlow, methodIndex, context, memo);
+        if (matchRole == null) {
+            memo.markFailed(current.wildcardIndex, currentFlow, true);
+        }
+        return matchRole;
+    }
 
+    private String matchPathRoleInChildren(Node current, String[] urlPac, int currentFlow, int methodIndex,
+                                           SearchContext context, MatchMemo memo) {
         String matchRole = null;
-        String nextUrlPac = urlPac[currentFlow + 1];
-        if (current.getChildren().containsKey(nextUrlPac)) {
-            matchRole = searchPathRole(current.getChildren().get(nextUrlPac), urlPac, currentFlow + 1, method);
+        Node nextNode = current.getChild(urlPac[currentFlow + 1]);
+        if (nextNode != null) {
+            LiteralChain chain = nextNode.chain;
+            if (chain != null && context == null) {
+                // the nodes of chain only have a literal child, jump to the tail when all segments are equal
+                int tailFlow = chain.match(urlPac, currentFlow + 2);
+                if (tailFlow >= 0) {
+                    matchRole = searchPathRole(chain.tail, urlPac, tailFlow, methodIndex, null, memo);
+                }
+            } else {
+                matchRole = searchPathRole(nextNode, urlPac, currentFlow + 1, methodIndex, context, memo);
+            }
             if (matchRole != null) {
                 return matchRole;
             }
         }
-        if (current.getChildren().containsKey(MATCH_ONE)) {
-            Node matchOneNode = current.getChildren().get(MATCH_ONE);
-            matchRole = searchPathRole(matchOneNode, urlPac, currentFlow + 1, method);
+        if (current.patternChildren != null) {
+            for (Node patternNode : current.patternChildren) {
+                matchRole = searchPathRole(patternNode, urlPac, currentFlow + 1, methodIndex, context, memo);
+                if (matchRole != null) {
+                    return matchRole;
+                }
+            }
+        }
+        Node matchOneNode = current.getChild(MATCH_ONE);
+        if (matchOneNode != null) {
+            matchRole = searchPathRole(matchOneNode, urlPac, currentFlow + 1, methodIndex, context, memo);
             if (matchRole != null) {
                 return matchRole;
             }
         }
-        if (current.getChildren().containsKey(MATCH_ALL)) {
-            Node matchAllNode = current.getChildren().get(MATCH_ALL);
-            matchRole = searchPathRole(matchAllNode, urlPac, currentFlow + 1, method);
+        Node matchAllNode = current.getChild(MATCH_ALL);
+        if (matchAllNode != null) {
+            matchRole = searchPathRole(matchAllNode, urlPac, currentFlow + 1, methodIndex, context, memo);
         }
         return matchRole;
     }
 
+    /**
+     * link the literal chains of all nodes in tree
+     * @param buildRoot root node
+     */
+    private static void linkLiteralChains(Node buildRoot) {
+        Queue<Node> nodeQueue = new LinkedList<>();
+        nodeQueue.add(buildRoot);
+        while (!nodeQueue.isEmpty()) {
+            Node node = nodeQueue.poll();
+            node.chain = LiteralChain.of(node);
+            if (node.hasChildren()) {
+                nodeQueue.addAll(node.getChildren().values());
+            }
+        }
+    }
+
     /**
      * Determine whether the pattern does not match pathNode
      * @param pattern pattern eg: * **
@@ -266,60 +1042,136 @@ public class TirePathTree {
     }
 
     /**
-     * insert pathNode
+     * Whether the segment is raw string, not * ** or constrained segment
+     * @param segment lower case segment
+     * @return raw string true, else false
+     */
+    static boolean isLiteralSegment(String segment) {
+        return !segment.contains(MATCH_ONE) && !isPathVariable(segment);
+    }
+
+    private static boolean isPathVariable(String segment) {
+        return segment.length() > PATH_VARIABLE_PREFIX.length() + PATH_VARIABLE_SUFFIX.length()
+                && segment.startsWith(PATH_VARIABLE_PREFIX) && segment.endsWith(PATH_VARIABLE_SUFFIX);
+    }
+
+    /**
+     * compile the constrained segment to pattern
+     * @param segment segment eg: {id}, {id:[0-9]+}, *.json
+     * @return pattern, null when the segment is raw string, * or **
+     * @throws PatternSyntaxException when the regex is illegal
+     */
+    static Pattern compileSegmentPattern(String segment) {
+        if (isPathVariable(segment)) {
+            String variable = segment.substring(1, segment.length() - 1);
+            int regexIndex = variable.indexOf(':');
+            if (regexIndex < 0) {
+                return Pattern.compile(".+");
+            }
+            // the regex keeps its case, eg: \D is not \d, the lower case path matches it case insensitive
+            return Pattern.compile(variable.substring(regexIndex + 1), Pattern.CASE_INSENSITIVE);
+        }
+        if (MATCH_ONE.equals(segment) || MATCH_ALL.equals(segment) || !segment.contains(MATCH_ONE)) {
+            return null;
+        }
+        // glob segment, * matches any characters in the directory
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int index;
+        while ((index = segment.indexOf(MATCH_ONE, start)) >= 0) {
+            if (index > start) {
+                regex.append(Pattern.quote(segment.substring(start, index)));
+            }
+            regex.append(".*");
+            start = index + 1;
+        }
+        if (start < segment.length()) {
+            regex.append(Pattern.quote(segment.substring(start)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * normalize and split the resource
      * @param path path = /api/v1/host/detail===GET===[role2,role3,role4]
+     * @param partNum the number of parts split by ===
+     * @return lower case parts eg: [api/v1/host/detail, get, [role2,role3,role4]], null when illegal
      */
-    private void insertNode(String path, Node rootNode) {
+    static String[] splitResource(String path, int partNum) {
         if (path == null || "".equals(path) || !path.startsWith(URL_PATH_SPLIT)) {
-            return;
-        }
-        if (logger.isTraceEnabled()) {
-            logger.trace("sureness - begin insertNode, path is {}", path);
+            return null;
         }
         path = PATH_SPLIT_PATTERN.matcher(path).replaceAll("/");
         // remove the first /
-        path = path.substring(1).toLowerCase();
-        String[] tmp = path.split("===");
-        if (tmp.length != PATH_NODE_NUM_3) {
-            return;
-        }
-        String[] urlPac = tmp[0].split(URL_PATH_SPLIT);
-        String method = tmp[1];
-        String supportRoles = tmp[2];
-        Node current = rootNode;
-        Node pre = current;
-        // start inserting URL node
-        for (String urlData : urlPac) {
-            if (!current.getChildren().containsKey(urlData)) {
-                current.insertChild(urlData);
-            }
-            pre = current;
-            current = current.getChildren().get(urlData);
-        }
-        if (MATCH_ONE.equals(current.getData()) || MATCH_ALL.equals(current.getData())) {
-            // When the last one is * or **, it may match empty,
-            // and the previous one may also be NODE_TYPE_MAY_PATH_END type
-            pre.setNodeType(NODE_TYPE_MAY_PATH_END);
+        path = lowerCaseResource(path.substring(1));
+        String[] tmp = path.split(PATH_METHOD_SPLIT);
+        return tmp.length == partNum ? tmp : null;
+    }
+
+    /**
+     * lower case the resource except the regex of constrained segments, the case of regex matters, eg: \D \d
+     * @param resource resource eg: /api/{id:\D+}/Detail===GET===[role2,role3,role4]
+     * @return lower case resource eg: /api/{id:\D+}/detail===get===[role2,role3,role4]
+     */
+    public static String lowerCaseResource(String resource) {
+        if (resource.indexOf(PATH_VARIABLE_PREFIX) < 0) {
+            return resource.toLowerCase();
         }
-        // set node type is NODE_TYPE_MAY_PATH_END
-        current.setNodeType(NODE_TYPE_MAY_PATH_END);
-        // start insert httpMethod method, if existed, not overwrite and modify the original configuration
-        if (!current.getChildren().containsKey(method)) {
-            current.insertChild(method, NODE_TYPE_METHOD);
+        int pathEnd = resource.indexOf(PATH_METHOD_SPLIT);
+        if (pathEnd < 0) {
+            pathEnd = resource.length();
         }
-        current = current.getChildren().get(method);
-        // Start inserting leaf nodes - supportRoles
-        // each resource only mapping a left node, that is, at most one child node under supportRoles--httpMethod
-        // if existed, not overwrite and modify the original configuration
-        if (current.getChildren().isEmpty()) {
-            current.insertChild(supportRoles, NODE_TYPE_FILTER_ROLES);
+        StringBuilder builder = new StringBuilder(resource.length());
+        int lowerStart = 0;
+        int start = 0;
+        while (start < pathEnd) {
+            int end = resource.indexOf('/', start);
+            if (end < 0 || end > pathEnd) {
+                end = pathEnd;
+            }
+            int regexStart = resource.indexOf(':', start) + 1;
+            if (regexStart > start && regexStart < end - 1
+                    && isPathVariable(resource.substring(start, end))) {
+                builder.append(resource.substring(lowerStart, regexStart).toLowerCase())
+                        .append(resource, regexStart, end - 1);
+                lowerStart = end - 1;
+            }
+            start = end + 1;
         }
+        return builder.append(resource.substring(lowerStart).toLowerCase()).toString();
     }
 
     /**
      * Dictionary matching tree node
      */
-    private static class Node {
+    static class Node {
+
+        private static final AtomicLongFieldUpdater<Node> PROBE_COUNT_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(Node.class, "probeCount");
+
+        /** sampled probe count of this node **/
+        private volatile long probeCount;
+
+        /** the index of * or ** node in tree, -1 when not wildcard node **/
+        private int wildcardIndex = -1;
+
+        /** the number of wildcard nodes in tree, only used in root node **/
+        private int wildcardNum;
+
+        /** the compiled automaton of tree, only used in root node, null when not compile **/
+        private volatile PathAutomaton automaton;
+
+        /** the compiled pattern of constrained segment node, null when raw string, * or ** **/
+        private Pattern pattern;
+
+        /** the constrained segment children, in insertion order, null when not have **/
+        private List<Node> patternChildren;
+
+        /** the method table of path end node, null when not have **/
+        private MethodRoles methodRoles;
+
+        /** the not standard http method - index, only used in root node, null when not have **/
+        private Map<String, Integer> methodIndexes;
 
         /** current node type **/
         private String nodeType;
@@ -327,29 +1179,167 @@ public class TirePathTree {
         /** current node data **/
         private String data;
 
-        /** children nodes **/
+        /** children nodes when have multi children, else the shared empty map **/
         private Map<String, Node> children;
 
-        private Node(String data, String nodeType) {
-            this.data = data;
-            this.nodeType = nodeType;
-            this.children = new HashMap<>();
-        }
+        /** the only child node, its data is the key, null when not have or have multi children **/
+        private Node singleChild;
+
+        /** the single child literal chain from this node, null when not a chain **/
+        private LiteralChain chain;
+
         private Node(String data) {
             this.data = data;
             this.nodeType = NODE_TYPE_PATH_NODE;
-            this.children = new HashMap<>();
+            this.children = Collections.emptyMap();
+        }
+
+        private Node insertChild(String data) {
+            Node child = new Node(data);
+            addChild(child);
+            return child;
+        }
+
+        private void addChild(Node child) {
+            if (singleChild == null && children.isEmpty()) {
+                singleChild = child;
+                return;
+            }
+            if (singleChild != null) {
+                children = new HashMap<>(4);
+                children.put(singleChild.data, singleChild);
+                singleChild = null;
+            }
+            children.put(child.data, child);
+        }
+
+        /**
+         * replace the child with its copy
+         * @param child the current child
+         * @param copy the copy of child
+         */
+        private void replaceChild(Node child, Node copy) {
+            if (singleChild == child) {
+                singleChild = copy;
+            } else {
+                children.put(copy.data, copy);
+            }
+            if (patternChildren != null && child.pattern != null) {
+                patternChildren.set(patternChildren.indexOf(child), copy);
+            }
+        }
+
+        private void removeChild(Node child) {
+            if (singleChild == child) {
+                singleChild = null;
+            } else {
+                children.remove(child.data);
+                if (children.size() == 1) {
+                    singleChild = children.values().iterator().next();
+                    children = Collections.emptyMap();
+                }
+            }
+            if (patternChildren != null && patternChildren.remove(child) && patternChildren.isEmpty()) {
+                patternChildren = null;
+            }
         }
 
-        private void insertChild(String data) {
-            this.children.put(data, new Node(data));
+        /**
+         * copy the node, the children nodes are shared
+         * @return the copy of node
+         */
+        private Node copy() {
+            Node node = new Node(data);
+            node.nodeType = nodeType;
+            node.pattern = pattern;
+            node.wildcardIndex = wildcardIndex;
+            node.wildcardNum = wildcardNum;
+            node.singleChild = singleChild;
+            node.children = children.isEmpty() ? children : new HashMap<>(children);
+            node.patternChildren = patternChildren == null ? null : new ArrayList<>(patternChildren);
+            node.methodRoles = methodRoles == null ? null : new MethodRoles(methodRoles);
+            node.methodIndexes = methodIndexes == null ? null : new HashMap<>(methodIndexes);
+            return node;
         }
 
-        private void insertChild(String data,String nodeType) {
-            this.children.put(data, new Node(data, nodeType));
+        private void clearChildren() {
+            singleChild = null;
+            children = Collections.emptyMap();
         }
 
-        private String getNodeType() {
+        /**
+         * Get the child node
+         * @param data child data
+         * @return child node, null when not have
+         */
+        Node getChild(String data) {
+            Node child = singleChild;
+            if (child != null) {
+                return child.data.equals(data) ? child : null;
+            }
+            return children.get(data);
+        }
+
+        boolean hasChildren() {
+            return singleChild != null || !children.isEmpty();
+        }
+
+        private void insertPatternChild(Node child) {
+            if (this.patternChildren == null) {
+                this.patternChildren = new ArrayList<>(2);
+            }
+            this.patternChildren.add(child);
+        }
+
+        Pattern getPattern() {
+            return pattern;
+        }
+
+        List<Node> getPatternChildren() {
+            return patternChildren;
+        }
+
+        MethodRoles getMethodRoles() {
+            return methodRoles == null ? MethodRoles.EMPTY : methodRoles;
+        }
+
+        /**
+         * Get the method index, only used in root node
+         * @param method lower case http method
+         * @return index, -1 when the method not in tree
+         */
+        private int methodIndexOf(String method) {
+            int index = HttpMethod.indexOf(method);
+            if (index < 0 && methodIndexes != null) {
+                Integer extraIndex = methodIndexes.get(method);
+                return extraIndex == null ? -1 : extraIndex;
+            }
+            return index;
+        }
+
+        private int insertMethodIndex(String method) {
+            int index = HttpMethod.indexOf(method);
+            if (index >= 0) {
+                return index;
+            }
+            synchronized (this) {
+                index = methodIndexOf(method);
+                if (index < 0) {
+                    if (methodIndexes == null) {
+                        methodIndexes = new HashMap<>(4);
+                    }
+                    index = HttpMethod.STANDARD_METHOD_NUM + methodIndexes.size();
+                    methodIndexes.put(method, index);
+                }
+                return index;
+            }
+        }
+
+        private synchronized int nextWildcardIndex() {
+            return wildcardNum++;
+        }
+
+        String getNodeType() {
             return nodeType;
         }
 
@@ -357,7 +1347,7 @@ public class TirePathTree {
             this.nodeType = nodeType;
         }
 
-        private String getData() {
+        String getData() {
             return data;
         }
 
@@ -365,13 +1355,404 @@ public class TirePathTree {
             this.data = data;
         }
 
-        private Map<String, Node> getChildren() {
-            return children;
+        /**
+         * Get the read only children nodes, not for the search path
+         * @return child data - child node
+         */
+        Map<String, Node> getChildren() {
+            Node child = singleChild;
+            return child == null ? children : Collections.singletonMap(child.data, child);
+        }
+
+    }
+
+    /**
+     * insert the resources to a tree, the partitions of a parallel build share one builder
+     */
+    private static class TreeBuilder {
+
+        /** the root node, index the wildcard nodes and the http methods **/
+        private final Node rootNode;
+
+        /** the same segments and roles share one string **/
+        private final Map<String, String> segmentPool;
+
+        /** the nodes copied or created in this copy on write rebuild, null when build in place **/
+        private final Set<Node> copiedNodes;
+
+        private TreeBuilder(Node rootNode, boolean concurrent, Set<Node> copiedNodes) {
+            this.rootNode = rootNode;
+            this.segmentPool = concurrent ? new ConcurrentHashMap<>(256) : new HashMap<>(256);
+            this.segmentPool.put(MATCH_ONE, MATCH_ONE);
+            this.segmentPool.put(MATCH_ALL, MATCH_ALL);
+            this.copiedNodes = copiedNodes;
+        }
+
+        private String intern(String segment) {
+            String shared = segmentPool.putIfAbsent(segment, segment);
+            return shared == null ? segment : shared;
+        }
+
+        /**
+         * insert pathNode
+         * @param path path = /api/v1/host/detail===GET===[role2,role3,role4]
+         * @param startNode the node to insert from, the root node or the root of a partition
+         */
+        private void insertNode(String path, Node startNode) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("sureness - begin insertNode, path is {}", path);
+            }
+            String[] tmp = splitResource(path, PATH_NODE_NUM_3);
+            if (tmp == null) {
+                return;
+            }
+            String[] urlPac = tmp[0].split(URL_PATH_SPLIT);
+            String method = tmp[1];
+            String supportRoles = intern(tmp[2]);
+            Pattern[] segmentPatterns = new Pattern[urlPac.length];
+            try {
+                for (int index = 0; index < urlPac.length; index++) {
+                    segmentPatterns[index] = compileSegmentPattern(urlPac[index]);
+                }
+            } catch (PatternSyntaxException e) {
+                logger.warn("sureness - illegal segment pattern, ignore the resource: {}, {}", path, e.getMessage());
+                return;
+            }
+            Node current = startNode;
+            Node pre = current;
+            // start inserting URL node
+            for (int index = 0; index < urlPac.length; index++) {
+                String urlData = urlPac[index];
+                Node child = current.getChild(urlData);
+                if (child == null) {
+                    child = current.insertChild(intern(urlData));
+                    if (MATCH_ONE.equals(urlData) || MATCH_ALL.equals(urlData)) {
+                        // index the wildcard node for memoizing the failed search
+                        child.wildcardIndex = rootNode.nextWildcardIndex();
+                    } else if (segmentPatterns[index] != null) {
+                        child.pattern = segmentPatterns[index];
+                        current.insertPatternChild(child);
+                    }
+                    if (copiedNodes != null) {
+                        copiedNodes.add(child);
+                    }
+                } else {
+                    child = mutableChild(current, child, copiedNodes);
+                }
+                pre = current;
+                current = child;
+            }
+            if (MATCH_ONE.equals(current.getData()) || MATCH_ALL.equals(current.getData())) {
+                // When the last one is * or **, it may match empty,
+                // and the previous one may also be NODE_TYPE_MAY_PATH_END type
+                pre.setNodeType(NODE_TYPE_MAY_PATH_END);
+            }
+            // set node type is NODE_TYPE_MAY_PATH_END
+            current.setNodeType(NODE_TYPE_MAY_PATH_END);
+            // start insert httpMethod - supportRoles into the method table
+            // each resource only mapping a roles, if existed, not overwrite and modify the original configuration
+            if (current.methodRoles == null) {
+                current.methodRoles = new MethodRoles();
+            }
+            if (HttpMethod.ANY_METHOD.equals(method)) {
+                current.methodRoles.putAnyIfAbsent(supportRoles);
+            } else {
+                current.methodRoles.putIfAbsent(rootNode.insertMethodIndex(method), supportRoles);
+            }
+        }
+    }
+
+    /**
+     * build the partitions of resources in fork join pool, each partition is built in its own root node
+     */
+    private static class PartitionBuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient TreeBuilder builder;
+
+        private final transient List<List<String>> partitionPaths;
+
+        private final transient Node[] partitionRoots;
+
+        private final int start;
+
+        private final int end;
+
+        private PartitionBuildTask(TreeBuilder builder, List<List<String>> partitionPaths, Node[] partitionRoots,
+                                   int start, int end) {
+            this.builder = builder;
+            this.partitionPaths = partitionPaths;
+            this.partitionRoots = partitionRoots;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new PartitionBuildTask(builder, partitionPaths, partitionRoots, start, middle),
+                        new PartitionBuildTask(builder, partitionPaths, partitionRoots, middle, end));
+                return;
+            }
+            Node partitionRoot = new Node("root");
+            for (String path : partitionPaths.get(start)) {
+                builder.insertNode(path, partitionRoot);
+            }
+            partitionRoots[start] = partitionRoot;
+        }
+    }
+
+    /**
+     * the state of a traced or sampled search
+     */
+    private static class SearchContext {
+
+        /** record the visited nodes for explain, else only count probes **/
+        private final boolean explain;
+
+        private final List<Node> visitedNodes;
+
+        private final List<String> visitedSegments;
+
+        private int backtrackCount;
+
+        private Node matchedNode;
+
+        private int methodIndex;
+
+        private SearchContext(boolean explain) {
+            this.explain = explain;
+            this.visitedNodes = explain ? new ArrayList<>() : null;
+            this.visitedSegments = explain ? new ArrayList<>() : null;
+        }
+
+        private void visit(Node node, String segment) {
+            if (explain) {
+                visitedNodes.add(node);
+                visitedSegments.add(segment);
+            } else {
+                Node.PROBE_COUNT_UPDATER.incrementAndGet(node);
+            }
+        }
+
+        private void matched(Node node) {
+            // the first matched is the deepest one, it is the winner
+            if (matchedNode == null) {
+                matchedNode = node;
+            }
+        }
+    }
+
+    /**
+     * a chain of the nodes which only have a literal child and are not the end of path, from the head node
+     * the search of them can only go to the only child, so compare the segments and jump to the tail node
+     */
+    private static final class LiteralChain {
+
+        /** the segments of the nodes after the head, eg: v2 tenant of /api/v2/tenant/billing **/
+        private final String[] segments;
+
+        /** the first node after the chain, eg: billing **/
+        private final Node tail;
+
+        private LiteralChain(String[] segments, Node tail) {
+            this.segments = segments;
+            this.tail = tail;
+        }
+
+        /**
+         * Get the chain from the head node
+         * @param head head node
+         * @return chain, null when the chain has no node after the head
+         */
+        private static LiteralChain of(Node head) {
+            if (!isChainNode(head)) {
+                return null;
+            }
+            List<String> segments = new ArrayList<>();
+            Node current = head.singleChild;
+            while (isChainNode(current)) {
+                segments.add(current.data);
+                current = current.singleChild;
+            }
+            return segments.isEmpty() ? null : new LiteralChain(segments.toArray(new String[0]), current);
+        }
+
+        private static boolean isChainNode(Node node) {
+            Node child = node.singleChild;
+            return isLiteralNode(node) && NODE_TYPE_PATH_NODE.equals(node.nodeType) && node.patternChildren == null
+                    && child != null && isLiteralNode(child);
+        }
+
+        private static boolean isLiteralNode(Node node) {
+            return node.pattern == null && node.wildcardIndex < 0
+                    && !MATCH_ONE.equals(node.data) && !MATCH_ALL.equals(node.data);
+        }
+
+        /**
+         * compare the segments of chain and the tail with the url segments
+         * @param urlPac url segments
+         * @param start the url segment index of the first chain segment
+         * @return the url segment index of the tail, -1 when not equal
+         */
+        private int match(String[] urlPac, int start) {
+            int tailFlow = start + segments.length;
+            if (tailFlow >= urlPac.length || !tail.data.equals(urlPac[tailFlow])) {
+                return -1;
+            }
+            for (int index = 0; index < segments.length; index++) {
+                if (!segments[index].equals(urlPac[start + index])) {
+                    return -1;
+                }
+            }
+            return tailFlow;
+        }
+    }
+
+    /**
+     * the trees partitioned by http method, the any tree only has the method * rules
+     */
+    private static final class MethodTrees {
+
+        /** lower case http methods of the partitions **/
+        private final String[] methods;
+
+        private final TirePathTree[] trees;
+
+        /** the tree of the methods without partition **/
+        private final TirePathTree anyTree;
+
+        private MethodTrees(String[] methods, TirePathTree[] trees, TirePathTree anyTree) {
+            this.methods = methods;
+            this.trees = trees;
+            this.anyTree = anyTree;
         }
 
-        private void setChildren(Map<String, Node> children) {
-            this.children = children;
+        private TirePathTree get(String method) {
+            for (int index = 0; index < methods.length; index++) {
+                if (methods[index].equals(method)) {
+                    return trees[index];
+                }
+            }
+            return null;
         }
 
+        /**
+         * select the partition of the request method
+         * @param path /api/v2/host/detail===get
+         * @return the tree of the method, the any tree when the method has no partition
+         */
+        private TirePathTree select(String path) {
+            int methodStart = path == null ? -1 : path.indexOf(PATH_METHOD_SPLIT);
+            if (methodStart < 0) {
+                return anyTree;
+            }
+            methodStart += PATH_METHOD_SPLIT.length();
+            int methodLength = path.length() - methodStart;
+            boolean simple = true;
+            for (int index = methodStart; index < path.length() && simple; index++) {
+                char ch = path.charAt(index);
+                simple = ch != '/' && ch <= '\u007f';
+            }
+            if (!simple) {
+                // normalize the same as the tree
+                String method = PATH_SPLIT_PATTERN.matcher(path.substring(methodStart)).replaceAll("/").toLowerCase();
+                TirePathTree tree = get(method);
+                return tree == null ? anyTree : tree;
+            }
+            for (int index = 0; index < methods.length; index++) {
+                if (methods[index].length() == methodLength
+                        && path.regionMatches(true, methodStart, methods[index], 0, methodLength)) {
+                    return trees[index];
+                }
+            }
+            return anyTree;
+        }
+
+        private void forEach(Consumer<TirePathTree> action) {
+            for (TirePathTree tree : trees) {
+                action.accept(tree);
+            }
+            action.accept(anyTree);
+        }
+    }
+
+    /**
+     * the failed search memo of a lookup, a bitmap of (wildcard node, segment index, search type)
+     * the result of a search only depends on the node and segment index, so a failed one fails forever
+     * in this lookup, skip it to avoid the exponential backtracking of consecutive ** and keep the priority.
+     * the bitmap is sized from the wildcard num of the tree and split into pages of 4096 bits,
+     * a page is allocated when a failed search in it is marked, so a lookup only pays for the nodes it backtracks
+     */
+    private static final class MatchMemo {
+
+        /** the max bits of a memo, 128KB, not memoize when exceed **/
+        private static final int MAX_MEMO_BITS = 1 << 20;
+
+        /** 4096 bits, 64 words of a page **/
+        private static final int PAGE_SHIFT = 12;
+
+        private static final int PAGE_WORD_MASK = (1 << (PAGE_SHIFT - 6)) - 1;
+
+        /** bits of a wildcard node **/
+        private final int stride;
+
+        private final int bitNum;
+
+        /** allocated when the first failed search is marked **/
+        private long[][] pages;
+
+        private MatchMemo(int stride, int bitNum) {
+            this.stride = stride;
+            this.bitNum = bitNum;
+        }
+
+        /**
+         * @param wildcardNum the number of wildcard nodes
+         * @param urlLength the number of url segments
+         * @return memo of a lookup, null when too large to memoize
+         */
+        private static MatchMemo of(int wildcardNum, int urlLength) {
+            long bitNum = (long) wildcardNum * (urlLength + 1) * 2;
+            if (bitNum > MAX_MEMO_BITS) {
+                return null;
+            }
+            return new MatchMemo((urlLength + 1) * 2, (int) bitNum);
+        }
+
+        private boolean isFailed(int wildcardIndex, int currentFlow, boolean inChildren) {
+            if (pages == null) {
+                return false;
+            }
+            int bit = bitIndex(wildcardIndex, currentFlow, inChildren);
+            if (bit >= bitNum) {
+                return false;
+            }
+            long[] page = pages[bit >>> PAGE_SHIFT];
+            return page != null && (page[(bit >>> 6) & PAGE_WORD_MASK] & (1L << bit)) != 0;
+        }
+
+        private void markFailed(int wildcardIndex, int currentFlow, boolean inChildren) {
+            int bit = bitIndex(wildcardIndex, currentFlow, inChildren);
+            if (bit >= bitNum) {
+                return;
+            }
+            if (pages == null) {
+                pages = new long[((bitNum - 1) >>> PAGE_SHIFT) + 1][];
+            }
+            long[] page = pages[bit >>> PAGE_SHIFT];
+            if (page == null) {
+                page = new long[PAGE_WORD_MASK + 1];
+                pages[bit >>> PAGE_SHIFT] = page;
+            }
+            page[(bit >>> 6) & PAGE_WORD_MASK] |= 1L << bit;
+        }
+
+        private int bitIndex(int wildcardIndex, int currentFlow, boolean inChildren) {
+            // currentFlow is -1 ~ urlLength - 1
+            return wildcardIndex * stride + ((currentFlow + 1) << 1) + (inChildren ? 1 : 0);
+        }
     }
 }
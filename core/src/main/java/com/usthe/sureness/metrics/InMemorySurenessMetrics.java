@@ -0,0 +1,141 @@
+package com.usthe.sureness.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free in memory metrics recorder, can be scraped by snapshot
+ * stage latency: LatencyHistogram per stage
+ * counters: auth.success.{scheme}, auth.failure.{scheme}.{exception}, match.hit.{matcher}, match.miss.{matcher}
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public class InMemorySurenessMetrics implements SurenessMetrics {
+
+    private static final String SUCCESS_PREFIX = "auth.success.";
+    private static final String FAILURE_PREFIX = "auth.failure.";
+    private static final String HIT_PREFIX = "match.hit.";
+    private static final String MISS_PREFIX = "match.miss.";
+
+    private final Map<Stage, LatencyHistogram> stageHistograms;
+
+    private final ConcurrentMap<String, SchemeCounter> schemeCounters = new ConcurrentHashMap<>(8);
+
+    private final ConcurrentMap<String, MatchCounter> matchCounters = new ConcurrentHashMap<>(4);
+
+    public InMemorySurenessMetrics() {
+        Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+        this.stageHistograms = histograms;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stageHistograms.get(stage).record(nanos);
+    }
+
+    @Override
+    public void recordSuccess(String scheme) {
+        getSchemeCounter(scheme).success.increment();
+    }
+
+    @Override
+    public void recordFailure(String scheme, Class<? extends Throwable> exceptionClass) {
+        SchemeCounter counter = getSchemeCounter(scheme);
+        LongAdder failure = counter.failures.get(exceptionClass);
+        if (failure == null) {
+            failure = counter.failures.computeIfAbsent(exceptionClass, key -> new LongAdder());
+        }
+        failure.increment();
+    }
+
+    @Override
+    public void recordMatch(String matcher, boolean hit) {
+        MatchCounter counter = matchCounters.get(matcher);
+        if (counter == null) {
+            counter = matchCounters.computeIfAbsent(matcher, key -> new MatchCounter());
+        }
+        if (hit) {
+            counter.hit.increment();
+        } else {
+            counter.miss.increment();
+        }
+    }
+
+    /**
+     * Get the latency histogram of the stage
+     * @param stage stage
+     * @return histogram, ns
+     */
+    public LatencyHistogram getStageHistogram(Stage stage) {
+        return stageHistograms.get(stage);
+    }
+
+    /**
+     * Get the hit rate of the matcher
+     * @param matcher matcher name
+     * @return hit rate 0 - 1, 0 when no lookup
+     */
+    public double getMatchHitRate(String matcher) {
+        MatchCounter counter = matchCounters.get(matcher);
+        if (counter == null) {
+            return 0;
+        }
+        long hit = counter.hit.sum();
+        long total = hit + counter.miss.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * snapshot all the counters
+     * @return counter name - value, sorted by name
+     */
+    public Map<String, Long> snapshotCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        schemeCounters.forEach((scheme, counter) -> {
+            snapshot.put(SUCCESS_PREFIX + scheme, counter.success.sum());
+            counter.failures.forEach((exceptionClass, failure) ->
+                    snapshot.put(FAILURE_PREFIX + scheme + "." + exceptionClass.getSimpleName(), failure.sum()));
+        });
+        matchCounters.forEach((matcher, counter) -> {
+            snapshot.put(HIT_PREFIX + matcher, counter.hit.sum());
+            snapshot.put(MISS_PREFIX + matcher, counter.miss.sum());
+        });
+        return snapshot;
+    }
+
+    private SchemeCounter getSchemeCounter(String scheme) {
+        SchemeCounter counter = schemeCounters.get(scheme);
+        if (counter == null) {
+            counter = schemeCounters.computeIfAbsent(scheme, key -> new SchemeCounter());
+        }
+        return counter;
+    }
+
+    /**
+     * counters of an auth scheme
+     */
+    private static class SchemeCounter {
+        private final LongAdder success = new LongAdder();
+        private final ConcurrentMap<Class<? extends Throwable>, LongAdder> failures = new ConcurrentHashMap<>(8);
+    }
+
+    /**
+     * counters of a matcher
+     */
+    private static class MatchCounter {
+        private final LongAdder hit = new LongAdder();
+        private final LongAdder miss = new LongAdder();
+    }
+}
@@ -0,0 +1,117 @@
+package com.usthe.sureness.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free latency histogram, HDR style log-linear buckets
+ * each power of 2 range is split into 16 linear sub buckets, the relative error is less than 1/16
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_NUM = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_NUM = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_NUM;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NUM);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * record a value
+     * @param value value, eg: latency ns, negative is treated as 0
+     */
+    public void record(long value) {
+        long target = value < 0 ? 0 : value;
+        buckets.incrementAndGet(bucketIndex(target));
+        count.increment();
+        sum.add(target);
+        long currentMax = max.get();
+        while (target > currentMax && !max.compareAndSet(currentMax, target)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * Get the value at the percentile
+     * @param percentile percentile, 0 - 100, eg: 99.9
+     * @return the upper bound of the bucket which the percentile in, 0 when no value
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_NUM];
+        long total = 0;
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double ratio = Math.min(Math.max(percentile, 0), 100) / 100;
+        long rank = Math.max(1, (long) Math.ceil(ratio * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            accumulated += snapshot[i];
+            if (accumulated >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * reset all recorded values, not atomic with concurrent record
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_NUM) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_NUM - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_NUM + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_NUM) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_NUM + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_NUM;
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        long upperBound = lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+}
@@ -0,0 +1,30 @@
+package com.usthe.sureness.metrics;
+
+/**
+ * the default no-op metrics
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public final class NoneSurenessMetrics implements SurenessMetrics {
+
+    public static final NoneSurenessMetrics INSTANCE = new NoneSurenessMetrics();
+
+    private NoneSurenessMetrics() {}
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {}
+
+    @Override
+    public void recordSuccess(String scheme) {}
+
+    @Override
+    public void recordFailure(String scheme, Class<? extends Throwable> exceptionClass) {}
+
+    @Override
+    public void recordMatch(String matcher, boolean hit) {}
+}
@@ -0,0 +1,64 @@
+package com.usthe.sureness.metrics;
+
+/**
+ * metrics SPI of the checkIn pipeline
+ * sureness components call it at stage boundaries, implement it to bridge to micrometer, prometheus etc.
+ * the implementation must be thread safe and cheap, it is called in every request
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public interface SurenessMetrics {
+
+    /**
+     * the stages of checkIn pipeline
+     */
+    enum Stage {
+        /** create subjects from request by subject creators **/
+        SUBJECT_CREATE,
+        /** match the request resource in excluded resource tree **/
+        EXCLUDE_MATCH,
+        /** match the support roles of request resource in resource tree **/
+        ROLE_MATCH,
+        /** load account from account provider **/
+        ACCOUNT_LOAD,
+        /** verify the credential, eg: password hash, digest, jwt signature **/
+        CREDENTIAL_VERIFY,
+        /** authorize the subject roles **/
+        AUTHORIZE,
+        /** the whole checkIn **/
+        CHECK_IN
+    }
+
+    /**
+     * Whether record metrics, components skip timing when disabled
+     * @return enabled true, else false
+     */
+    boolean isEnabled();
+
+    /**
+     * record the latency of a stage
+     * @param stage stage
+     * @param nanos latency, ns
+     */
+    void recordStage(Stage stage, long nanos);
+
+    /**
+     * record a success process of the auth scheme
+     * @param scheme auth scheme, eg: PasswordProcessor
+     */
+    void recordSuccess(String scheme);
+
+    /**
+     * record a fail process of the auth scheme
+     * @param scheme auth scheme, eg: PasswordProcessor
+     * @param exceptionClass the exception type of the fail, eg: IncorrectCredentialsException
+     */
+    void recordFailure(String scheme, Class<? extends Throwable> exceptionClass);
+
+    /**
+     * record a lookup of the matcher
+     * @param matcher matcher name, eg: resource, exclude
+     * @param hit hit true, miss false
+     */
+    void recordMatch(String matcher, boolean hit);
+}
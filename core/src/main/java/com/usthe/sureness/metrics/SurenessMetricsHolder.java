@@ -0,0 +1,42 @@
+package com.usthe.sureness.metrics;
+
+/**
+ * hold the global sureness metrics, default is no-op
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public class SurenessMetricsHolder {
+
+    private static volatile SurenessMetrics metrics = NoneSurenessMetrics.INSTANCE;
+
+    public static SurenessMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * set the global metrics
+     * @param surenessMetrics metrics, null means no-op
+     */
+    public static void setMetrics(SurenessMetrics surenessMetrics) {
+        metrics = surenessMetrics == null ? NoneSurenessMetrics.INSTANCE : surenessMetrics;
+    }
+
+    /**
+     * start timing a stage
+     * @return start time ns, 0 when metrics disabled
+     */
+    public static long startStage() {
+        return metrics.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * end timing a stage and record it
+     * @param stage stage
+     * @param startNanos the start time from startStage
+     */
+    public static void endStage(SurenessMetrics.Stage stage, long startNanos) {
+        if (startNanos != 0L) {
+            metrics.recordStage(stage, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -4,8 +4,11 @@ import com.usthe.sureness.processor.exception.UnsupportedSubjectException;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
 import com.usthe.sureness.processor.exception.BaseSurenessException;
+import com.usthe.sureness.util.SurenessFutureUtil;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Authentication authorization entrance interface
@@ -32,6 +35,43 @@ public interface SecurityManager {
      */
     SubjectSum checkIn(Object var1) throws BaseSurenessException;
 
+    /**
+     * async auth entrance, put the subject in authentication and authorization process
+     * @param subject subject
+     * @return stage of subject summary, complete exceptionally with BaseSurenessException when auth error
+     */
+    default CompletionStage<SubjectSum> checkInAsync(Subject subject) {
+        try {
+            return CompletableFuture.completedFuture(checkIn(subject));
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+    }
+
+    /**
+     * async auth entrance, put the request in authentication and authorization process,
+     * the account loading of AsyncSurenessAccountProvider not block the caller thread
+     * @param var1 request
+     * @return stage of subject summary, complete with null when the request uri===method is in excluded resource,
+     * complete exceptionally with BaseSurenessException when auth error
+     */
+    default CompletionStage<SubjectSum> checkInAsync(Object var1) {
+        try {
+            return CompletableFuture.completedFuture(checkIn(var1));
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+    }
+
+    /**
+     * batch auth entrance, authenticate the request once and authorize each resource
+     * @param var1 request
+     * @param resources resources, eg: /api/v2/host===get
+     * @return allowed of each resource, the excluded resource is allowed
+     * @throws BaseSurenessException sureness exception when authentication error
+     */
+    boolean[] checkInAll(Object var1, List<String> resources) throws BaseSurenessException;
+
     /**
      * Create the corresponding type of subject according to the request information
      * @param var1 request eg: httpRequest
@@ -1,16 +1,24 @@
 package com.usthe.sureness.mgt;
 
 import com.usthe.sureness.matcher.TreePathRoleMatcher;
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.processor.ProcessorManager;
 import com.usthe.sureness.processor.exception.UnsupportedSubjectException;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
 import com.usthe.sureness.subject.SubjectFactory;
+import com.usthe.sureness.subject.support.NoneSubject;
 import com.usthe.sureness.processor.exception.BaseSurenessException;
+import com.usthe.sureness.util.SurenessFutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 
 /**
@@ -71,23 +79,131 @@ public class SurenessSecurityManager implements SecurityManager {
     @Override
     public SubjectSum checkIn(Object var1) throws BaseSurenessException {
         checkComponentInit();
+        long start = SurenessMetricsHolder.startStage();
+        try {
+            // Create a subject list to try auth one by one
+            List<Subject> subjectList = createSubject(var1);
+            RuntimeException lastException = new UnsupportedSubjectException("this request can not " +
+                    "create subject by creators");
+
+            // for the subject keys, try one by one
+            // if one success, pass and return directly
+            for (Subject thisSubject : subjectList) {
+                try {
+                    return checkIn(thisSubject);
+                } catch (BaseSurenessException e) {
+                    lastException = e;
+                }
+            }
+            // if no one success, the throw exception is the lastException
+            throw lastException;
+        } finally {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CHECK_IN, start);
+        }
+    }
 
-        // Create a subject list to try auth one by one
-        List<Subject> subjectList = createSubject(var1);
+    @Override
+    public boolean[] checkInAll(Object var1, List<String> resources) throws BaseSurenessException {
+        checkComponentInit();
+        long start = SurenessMetricsHolder.startStage();
+        try {
+            boolean[] allowed = new boolean[resources.size()];
+            // the excluded resources pass directly, the others match roles in one batch
+            List<String> targetResources = new ArrayList<>(resources.size());
+            List<Integer> targetIndexes = new ArrayList<>(resources.size());
+            for (int index = 0; index < allowed.length; index++) {
+                String resource = resources.get(index);
+                if (pathRoleMatcher.isExcludedResource(NoneSubject.builder().setTargetUri(resource).build())) {
+                    allowed[index] = true;
+                } else {
+                    targetResources.add(resource);
+                    targetIndexes.add(index);
+                }
+            }
+            if (targetResources.isEmpty()) {
+                return allowed;
+            }
+            List<Object> supportRolesList = pathRoleMatcher.matchRoles(targetResources);
+            List<Subject> subjectList = createSubject(var1);
+            RuntimeException lastException = new UnsupportedSubjectException("this request can not " +
+                    "create subject by creators");
+
+            // for the subject keys, try one by one
+            // if one authenticate success, it authorizes all resources
+            for (Subject thisSubject : subjectList) {
+                try {
+                    boolean[] targetAllowed = processorManager.processAll(thisSubject, supportRolesList);
+                    for (int index = 0; index < targetAllowed.length; index++) {
+                        allowed[targetIndexes.get(index)] = targetAllowed[index];
+                    }
+                    return allowed;
+                } catch (BaseSurenessException e) {
+                    lastException = e;
+                }
+            }
+            // if no one success, the throw exception is the lastException
+            throw lastException;
+        } finally {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CHECK_IN, start);
+        }
+    }
+
+    @Override
+    public CompletionStage<SubjectSum> checkInAsync(Subject token) {
+        try {
+            // Determine whether the requested resource is a filtered resource
+            // if yes, pass directly
+            if (pathRoleMatcher.isExcludedResource(token)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            pathRoleMatcher.matchRole(token);
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+        return processorManager.processAsync(token);
+    }
+
+    @Override
+    public CompletionStage<SubjectSum> checkInAsync(Object var1) {
+        List<Subject> subjectList;
+        long start;
+        try {
+            checkComponentInit();
+            start = SurenessMetricsHolder.startStage();
+            // Create a subject list to try auth one by one
+            subjectList = createSubject(var1);
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
         RuntimeException lastException = new UnsupportedSubjectException("this request can not " +
                 "create subject by creators");
+        CompletionStage<SubjectSum> result = checkInAsync(subjectList, 0, lastException);
+        if (start == 0L) {
+            return result;
+        }
+        return result.whenComplete((subjectSum, throwable) ->
+                SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CHECK_IN, start));
+    }
 
-        // for the subject keys, try one by one
-        // if one success, pass and return directly
-        for (Subject thisSubject : subjectList) {
-            try {
-                return checkIn(thisSubject);
-            } catch (BaseSurenessException e) {
-                lastException = e;
-            }
+    /**
+     * for the subject keys, try one by one asynchronously
+     * if one success, pass and return directly, if no one success, the exception is the lastException
+     */
+    private CompletionStage<SubjectSum> checkInAsync(List<Subject> subjectList, int index,
+                                                     RuntimeException lastException) {
+        if (index >= subjectList.size()) {
+            return SurenessFutureUtil.failedFuture(lastException);
         }
-        // if no one success, the throw exception is the lastException
-        throw lastException;
+        return checkInAsync(subjectList.get(index)).<CompletionStage<SubjectSum>>handle((subjectSum, throwable) -> {
+            if (throwable == null) {
+                return CompletableFuture.completedFuture(subjectSum);
+            }
+            Throwable cause = SurenessFutureUtil.unwrap(throwable);
+            if (cause instanceof BaseSurenessException) {
+                return checkInAsync(subjectList, index + 1, (BaseSurenessException) cause);
+            }
+            return SurenessFutureUtil.failedFuture(cause);
+        }).thenCompose(Function.identity());
     }
 
     @Override
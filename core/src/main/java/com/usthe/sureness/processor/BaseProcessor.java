@@ -1,9 +1,15 @@
 package com.usthe.sureness.processor;
 
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.processor.exception.SurenessAuthenticationException;
 import com.usthe.sureness.processor.exception.SurenessAuthorizationException;
+import com.usthe.sureness.processor.support.AuthorizationDecisionCache;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.util.SurenessFutureUtil;
+
+import java.util.List;
 
 /**
  * abstract processor
@@ -12,6 +18,9 @@ import com.usthe.sureness.subject.Subject;
  */
 public abstract class BaseProcessor implements Processor{
 
+    /** authorization decision cache, null when not cache **/
+    private AuthorizationDecisionCache decisionCache;
+
     /**
      * Determine whether this Processor supports the corresponding SubjectClass
      *
@@ -31,8 +40,117 @@ public abstract class BaseProcessor implements Processor{
 
     @Override
     public SubjectSum process(Subject var) throws SurenessAuthenticationException, SurenessAuthorizationException {
-        authorized(authenticated(var));
-        return var.generateSubjectSummary();
+        Subject subject;
+        try {
+            subject = authenticated(var);
+            timedAuthorized(subject);
+        } catch (RuntimeException e) {
+            recordProcessResult(e);
+            throw e;
+        }
+        recordProcessResult(null);
+        // the authenticated subject has the principal roles and claims of credential
+        return subject.generateSubjectSummary();
+    }
+
+    @Override
+    public boolean[] processAll(Subject var, List<Object> supportRolesList) throws SurenessAuthenticationException {
+        Subject subject;
+        try {
+            subject = authenticated(var);
+        } catch (RuntimeException e) {
+            recordProcessResult(e);
+            throw e;
+        }
+        recordProcessResult(null);
+        // authenticate once, authorize each resource with the support roles of it
+        boolean[] allowed = new boolean[supportRolesList.size()];
+        for (int index = 0; index < allowed.length; index++) {
+            subject.setSupportRoles(supportRolesList.get(index));
+            try {
+                timedAuthorized(subject);
+                allowed[index] = true;
+            } catch (SurenessAuthorizationException e) {
+                allowed[index] = false;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * call authorized and record the AUTHORIZE stage latency
+     * @param var authenticated subject
+     * @throws SurenessAuthorizationException when authorize error
+     */
+    protected void timedAuthorized(Subject var) throws SurenessAuthorizationException {
+        long start = SurenessMetricsHolder.startStage();
+        try {
+            AuthorizationDecisionCache cache = decisionCache;
+            if (cache == null || !isRoleBasedAuthorized()) {
+                authorized(var);
+                return;
+            }
+            Object ownRoles = var.getOwnRoles();
+            Object supportRoles = var.getSupportRoles();
+            if (cache.isAllowed(ownRoles, supportRoles)) {
+                return;
+            }
+            authorized(var);
+            cache.markAllowed(ownRoles, supportRoles);
+        } finally {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.AUTHORIZE, start);
+        }
+    }
+
+    /**
+     * Whether the authorization decision only depends on the own roles and the support roles of subject,
+     * only this kind of decision can be cached
+     * @return only depends on roles true, else false
+     */
+    protected boolean isRoleBasedAuthorized() {
+        return false;
+    }
+
+    /**
+     * Get the canonical instance of the own roles, so the decision cache can use the instance as key
+     * @param ownRoles own roles
+     * @return canonical own roles, the ownRoles itself when not cache
+     */
+    protected List<String> canonicalRoles(List<String> ownRoles) {
+        AuthorizationDecisionCache cache = decisionCache;
+        return cache == null ? ownRoles : cache.canonicalRoles(ownRoles);
+    }
+
+    /**
+     * set the authorization decision cache, only used when the decision only depends on roles
+     * @param decisionCache decision cache, null means not cache
+     */
+    public void setDecisionCache(AuthorizationDecisionCache decisionCache) {
+        this.decisionCache = decisionCache;
+    }
+
+    /**
+     * record the process result of this auth scheme
+     * @param throwable the process exception, null when success
+     */
+    protected void recordProcessResult(Throwable throwable) {
+        SurenessMetrics metrics = SurenessMetricsHolder.getMetrics();
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        if (throwable == null) {
+            metrics.recordSuccess(getSchemeName());
+        } else {
+            metrics.recordFailure(getSchemeName(), SurenessFutureUtil.unwrap(throwable).getClass());
+        }
+    }
+
+    /**
+     * Get the auth scheme name used in metrics
+     * @return scheme name, default is the processor class simple name
+     */
+    protected String getSchemeName() {
+        return getClass().getSimpleName();
     }
     /**
      * The interface that the authentication will call to complete the authentication
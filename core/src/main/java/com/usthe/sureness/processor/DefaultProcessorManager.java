@@ -6,10 +6,15 @@ import com.usthe.sureness.processor.exception.SurenessAuthenticationException;
 import com.usthe.sureness.processor.exception.SurenessAuthorizationException;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.util.SurenessFutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * sureness default process manager
@@ -61,6 +66,96 @@ public class DefaultProcessorManager implements ProcessorManager {
         throw lastAuthenticationException == null ? lastAuthorizationException : lastAuthenticationException;
     }
 
+    @Override
+    public boolean[] processAll(Subject subject, List<Object> supportRolesList)
+            throws SurenessAuthenticationException {
+        checkComponentInit();
+        SurenessAuthenticationException lastAuthenticationException = null;
+        Class<? extends Subject> subjectClazz = subject.getClass();
+
+        // the first processor authenticate the subject success decides all resources
+        for (Processor processor : getProcessorList()) {
+            if (processor.canSupportSubjectClass(subjectClazz)) {
+                try {
+                    return processor.processAll(subject, supportRolesList);
+                } catch (SurenessAuthenticationException var1) {
+                    lastAuthenticationException = var1;
+                }
+            }
+        }
+        if (lastAuthenticationException == null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("not found token : {} -- target processor", subject.getClass() );
+            }
+            throw new ProcessorNotFoundException("not found token : " + subject.getClass()
+                    + " --target processor");
+        }
+        throw lastAuthenticationException;
+    }
+
+    @Override
+    public CompletionStage<SubjectSum> processAsync(Subject subject) {
+        try {
+            checkComponentInit();
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+        Class<? extends Subject> subjectClazz = subject.getClass();
+        List<Processor> supportProcessors = getProcessorList().stream()
+                .filter(processor -> processor.canSupportSubjectClass(subjectClazz))
+                .collect(Collectors.toList());
+        if (supportProcessors.isEmpty()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("not found token : {} -- target processor", subject.getClass() );
+            }
+            return SurenessFutureUtil.failedFuture(new ProcessorNotFoundException("not found token : "
+                    + subject.getClass() + " --target processor"));
+        }
+        return processAsync(subject, supportProcessors, 0, null, null);
+    }
+
+    /**
+     * Process chain cyclic processing asynchronously, the same as process,
+     * try next processor when the current one fail, one process can be successful
+     */
+    private CompletionStage<SubjectSum> processAsync(Subject subject, List<Processor> processors, int index,
+                                                     SurenessAuthenticationException lastAuthenticationException,
+                                                     SurenessAuthorizationException lastAuthorizationException) {
+        if (index >= processors.size()) {
+            if (lastAuthenticationException == null && lastAuthorizationException == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return SurenessFutureUtil.failedFuture(lastAuthenticationException == null
+                    ? lastAuthorizationException : lastAuthenticationException);
+        }
+        CompletionStage<SubjectSum> stage;
+        try {
+            stage = processors.get(index).processAsync(subject);
+        } catch (RuntimeException e) {
+            stage = SurenessFutureUtil.failedFuture(e);
+        }
+        return stage.<CompletionStage<SubjectSum>>handle((subjectResult, throwable) -> {
+            if (throwable == null) {
+                // if process auth success, return
+                if (subjectResult != null) {
+                    return CompletableFuture.completedFuture(subjectResult);
+                }
+                return processAsync(subject, processors, index + 1,
+                        lastAuthenticationException, lastAuthorizationException);
+            }
+            Throwable cause = SurenessFutureUtil.unwrap(throwable);
+            if (cause instanceof SurenessAuthenticationException) {
+                return processAsync(subject, processors, index + 1,
+                        (SurenessAuthenticationException) cause, lastAuthorizationException);
+            }
+            if (cause instanceof SurenessAuthorizationException) {
+                return processAsync(subject, processors, index + 1,
+                        lastAuthenticationException, (SurenessAuthorizationException) cause);
+            }
+            return SurenessFutureUtil.failedFuture(cause);
+        }).thenCompose(Function.identity());
+    }
+
     private List<Processor> getProcessorList() {
         return processorList;
     }
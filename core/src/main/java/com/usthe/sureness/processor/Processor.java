@@ -4,6 +4,11 @@ import com.usthe.sureness.processor.exception.SurenessAuthenticationException;
 import com.usthe.sureness.processor.exception.SurenessAuthorizationException;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.util.SurenessFutureUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * processor
@@ -37,4 +42,41 @@ public interface Processor {
      * @return com.usthe.sureness.subject.Subject
      */
     SubjectSum process(Subject var) throws SurenessAuthenticationException, SurenessAuthorizationException;
+
+    /**
+     * process the subject asynchronously
+     * default run process in caller thread, override it when the processor can load data non-blocking
+     * @param var subject
+     * @return stage of subject summary, complete exceptionally with
+     * SurenessAuthenticationException or SurenessAuthorizationException when auth error
+     */
+    default CompletionStage<SubjectSum> processAsync(Subject var) {
+        try {
+            return CompletableFuture.completedFuture(process(var));
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+    }
+
+    /**
+     * process the subject for many resources, authenticate the subject and authorize each resource
+     * default process the subject of each resource, override it to authenticate once
+     * @param var subject
+     * @param supportRolesList the support roles of each resource, null element means not need role
+     * @return allowed of each resource
+     * @throws SurenessAuthenticationException when Authentication error
+     */
+    default boolean[] processAll(Subject var, List<Object> supportRolesList) throws SurenessAuthenticationException {
+        boolean[] allowed = new boolean[supportRolesList.size()];
+        for (int index = 0; index < allowed.length; index++) {
+            var.setSupportRoles(supportRolesList.get(index));
+            try {
+                process(var);
+                allowed[index] = true;
+            } catch (SurenessAuthorizationException e) {
+                allowed[index] = false;
+            }
+        }
+        return allowed;
+    }
 }
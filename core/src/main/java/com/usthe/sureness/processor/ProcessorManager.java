@@ -1,7 +1,13 @@
 package com.usthe.sureness.processor;
 
+import com.usthe.sureness.processor.exception.SurenessAuthorizationException;
 import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.util.SurenessFutureUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * processor manager
@@ -17,4 +23,40 @@ public interface ProcessorManager {
      * @return com.usthe.sureness.subject.Subject
      */
     SubjectSum process(Subject subject);
+
+    /**
+     * The async entry which processor handles subject
+     *
+     * @param subject subject
+     * @return stage of subject summary
+     */
+    default CompletionStage<SubjectSum> processAsync(Subject subject) {
+        try {
+            return CompletableFuture.completedFuture(process(subject));
+        } catch (RuntimeException e) {
+            return SurenessFutureUtil.failedFuture(e);
+        }
+    }
+
+    /**
+     * The entry which processor handles subject for many resources,
+     * authenticate the subject and authorize each resource, default process the subject of each resource
+     *
+     * @param subject subject
+     * @param supportRolesList the support roles of each resource, null element means not need role
+     * @return allowed of each resource
+     */
+    default boolean[] processAll(Subject subject, List<Object> supportRolesList) {
+        boolean[] allowed = new boolean[supportRolesList.size()];
+        for (int index = 0; index < allowed.length; index++) {
+            subject.setSupportRoles(supportRolesList.get(index));
+            try {
+                process(subject);
+                allowed[index] = true;
+            } catch (SurenessAuthorizationException e) {
+                allowed[index] = false;
+            }
+        }
+        return allowed;
+    }
 }
@@ -0,0 +1,122 @@
+package com.usthe.sureness.processor.encoder;
+
+import com.usthe.sureness.processor.exception.ExcessiveAttemptsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * run the expensive encode and verify of the delegate encoder in a bounded worker pool,
+ * so a login storm can not occupy all request threads and cpu.
+ * when the pool and queue is full or waiting timeout, throw ExcessiveAttemptsException fast
+ * the timeout task is cancelled, the pbkdf2 and scrypt loops stop when the worker is interrupted
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000L;
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    /** the max time request thread wait for result, ms **/
+    private final long timeoutMillis;
+
+    /**
+     * default worker num is cpu num, queue size is 16 times of worker num
+     * @param delegate the expensive encoder
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * 16, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param delegate the expensive encoder
+     * @param workerNum worker thread num
+     * @param queueSize the max num of waiting task
+     * @param timeoutMillis the max time request thread wait for result, ms
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int workerNum, int queueSize, long timeoutMillis) {
+        if (delegate == null || workerNum < 1 || queueSize < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("BoundedPasswordEncoder illegal param");
+        }
+        this.delegate = delegate;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadNum = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerNum, workerNum, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "sureness-password-" + threadNum.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword, String salt) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword, salt));
+    }
+
+    @Override
+    public boolean supports(String encodedPassword) {
+        return delegate.supports(encodedPassword);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        return delegate.needsRehash(encodedPassword);
+    }
+
+    /**
+     * shutdown the worker pool
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - password verify pool is full, reject");
+            }
+            throw new ExcessiveAttemptsException("too many password verification in progress, try later");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ExcessiveAttemptsException("password verification timeout, try later");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ExcessiveAttemptsException("password verification interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.usthe.sureness.processor.encoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * delegating password encoder, encode with the primary encoder,
+ * verify with the first encoder which supports the stored password.
+ * the password not encoded by primary encoder needs rehash, so the accounts migrate on login
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class DelegatingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder primaryEncoder;
+
+    /** primary encoder first, then the legacy encoders **/
+    private final List<PasswordEncoder> encoders;
+
+    /**
+     * @param primaryEncoder encoder used to encode new password
+     * @param legacyEncoders encoders only used to verify the old stored password
+     */
+    public DelegatingPasswordEncoder(PasswordEncoder primaryEncoder, PasswordEncoder... legacyEncoders) {
+        if (primaryEncoder == null) {
+            throw new IllegalArgumentException("DelegatingPasswordEncoder primaryEncoder can not null");
+        }
+        this.primaryEncoder = primaryEncoder;
+        this.encoders = new ArrayList<>();
+        this.encoders.add(primaryEncoder);
+        if (legacyEncoders != null) {
+            this.encoders.addAll(Arrays.asList(legacyEncoders));
+        }
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return primaryEncoder.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword, String salt) {
+        for (PasswordEncoder encoder : encoders) {
+            if (encoder.supports(encodedPassword)) {
+                return encoder.matches(rawPassword, encodedPassword, salt);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supports(String encodedPassword) {
+        return encoders.stream().anyMatch(encoder -> encoder.supports(encodedPassword));
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        return !primaryEncoder.supports(encodedPassword) || primaryEncoder.needsRehash(encodedPassword);
+    }
+}
@@ -0,0 +1,115 @@
+package com.usthe.sureness.processor.encoder;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the encoded password format: $algorithm$v=version$param1=value1,param2=value2$base64(salt)$base64(hash)
+ * eg: $pbkdf2-sha256$v=1$i=310000$c2FsdA$aGFzaA
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+final class EncodedPassword {
+
+    static final String PREFIX = "$";
+    private static final String SPLIT_REGEX = "\\$";
+    private static final String PARAM_SPLIT = ",";
+    private static final String VALUE_SPLIT = "=";
+    private static final String VERSION_KEY = "v";
+    private static final int PART_NUM = 6;
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    /** algorithm id **/
+    private final String algorithm;
+
+    /** format version **/
+    private final int version;
+
+    /** work factor params **/
+    private final Map<String, Integer> params;
+
+    private final byte[] salt;
+
+    private final byte[] hash;
+
+    EncodedPassword(String algorithm, int version, Map<String, Integer> params, byte[] salt, byte[] hash) {
+        this.algorithm = algorithm;
+        this.version = version;
+        this.params = params;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /**
+     * parse the encoded password
+     * @param encodedPassword encoded password
+     * @param algorithm expected algorithm id
+     * @return EncodedPassword, null when format error or not this algorithm
+     */
+    static EncodedPassword parse(String encodedPassword, String algorithm) {
+        if (encodedPassword == null || !encodedPassword.startsWith(PREFIX + algorithm + PREFIX)) {
+            return null;
+        }
+        String[] parts = encodedPassword.split(SPLIT_REGEX);
+        if (parts.length != PART_NUM) {
+            return null;
+        }
+        try {
+            String[] version = parts[2].split(VALUE_SPLIT);
+            if (version.length != 2 || !VERSION_KEY.equals(version[0])) {
+                return null;
+            }
+            Map<String, Integer> params = new HashMap<>(4);
+            for (String param : parts[3].split(PARAM_SPLIT)) {
+                String[] kv = param.split(VALUE_SPLIT);
+                if (kv.length != 2) {
+                    return null;
+                }
+                params.put(kv[0], Integer.parseInt(kv[1]));
+            }
+            return new EncodedPassword(algorithm, Integer.parseInt(version[1]), params,
+                    DECODER.decode(parts[4]), DECODER.decode(parts[5]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * format to encoded password string
+     * @return encoded password
+     */
+    String format() {
+        StringBuilder builder = new StringBuilder(PREFIX).append(algorithm)
+                .append(PREFIX).append(VERSION_KEY).append(VALUE_SPLIT).append(version).append(PREFIX);
+        boolean first = true;
+        for (Map.Entry<String, Integer> param : params.entrySet()) {
+            if (!first) {
+                builder.append(PARAM_SPLIT);
+            }
+            builder.append(param.getKey()).append(VALUE_SPLIT).append(param.getValue());
+            first = false;
+        }
+        return builder.append(PREFIX).append(ENCODER.encodeToString(salt))
+                .append(PREFIX).append(ENCODER.encodeToString(hash)).toString();
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    int getParam(String key, int defaultValue) {
+        Integer value = params.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    byte[] getSalt() {
+        return salt;
+    }
+
+    byte[] getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+package com.usthe.sureness.processor.encoder;
+
+/**
+ * password encoder interface
+ * encode the raw password for storage and verify the presented password against the stored one
+ * the encoded password should contain the algorithm, version and work factor,
+ * so the stored password can be rehashed when the encoder is upgraded
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public interface PasswordEncoder {
+
+    /**
+     * encode the raw password for storage
+     * @param rawPassword raw password
+     * @return encoded password, eg: $pbkdf2-sha256$v=1$i=310000$salt$hash
+     */
+    String encode(CharSequence rawPassword);
+
+    /**
+     * verify the raw password against the stored encoded password, must be constant-time
+     * @param rawPassword the presented raw password
+     * @param encodedPassword the stored encoded password
+     * @param salt the account salt, only used by legacy encoder which not embed salt
+     * @return match return true, else false
+     */
+    boolean matches(CharSequence rawPassword, String encodedPassword, String salt);
+
+    /**
+     * Determine whether this encoder can verify the encoded password
+     * @param encodedPassword the stored encoded password
+     * @return support true, else false
+     */
+    boolean supports(String encodedPassword);
+
+    /**
+     * Determine whether the encoded password should be encoded again for a stronger hash,
+     * eg: an older version or lower work factor than this encoder current config
+     * @param encodedPassword the stored encoded password
+     * @return need rehash return true, else false
+     */
+    default boolean needsRehash(String encodedPassword) {
+        return false;
+    }
+}
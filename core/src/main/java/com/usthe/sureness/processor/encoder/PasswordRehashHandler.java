@@ -0,0 +1,18 @@
+package com.usthe.sureness.processor.encoder;
+
+/**
+ * the handler called when an account login success but the stored password needs rehash,
+ * implement it to persist the new encoded password to database, file or other persistence layer
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+@FunctionalInterface
+public interface PasswordRehashHandler {
+
+    /**
+     * persist the new encoded password of the account
+     * @param appId account appId
+     * @param encodedPassword new encoded password
+     */
+    void rehash(String appId, String encodedPassword);
+}
@@ -0,0 +1,152 @@
+package com.usthe.sureness.processor.encoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+
+/**
+ * PBKDF2 with HMAC-SHA256 password encoder
+ * encoded password: $pbkdf2-sha256$v=1$i=iterations$base64(salt)$base64(hash)
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class Pbkdf2PasswordEncoder implements PasswordEncoder {
+
+    /** check the interrupt every 1024 iterations **/
+    static final int INTERRUPT_CHECK_MASK = 1023;
+
+    static final String ALGORITHM = "pbkdf2-sha256";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String ITERATIONS_KEY = "i";
+    private static final int VERSION = 1;
+    private static final int DEFAULT_ITERATIONS = 310000;
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int HMAC_LENGTH = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /** iteration count, the work factor **/
+    private final int iterations;
+
+    public Pbkdf2PasswordEncoder() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * @param iterations iteration count, the work factor
+     */
+    public Pbkdf2PasswordEncoder(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Pbkdf2PasswordEncoder iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(toBytes(rawPassword), salt, iterations, HASH_LENGTH);
+        return new EncodedPassword(ALGORITHM, VERSION,
+                Collections.singletonMap(ITERATIONS_KEY, iterations), salt, hash).format();
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword, String salt) {
+        EncodedPassword encoded = EncodedPassword.parse(encodedPassword, ALGORITHM);
+        if (rawPassword == null || encoded == null) {
+            return false;
+        }
+        int encodedIterations = encoded.getParam(ITERATIONS_KEY, 0);
+        if (encodedIterations < 1 || encoded.getHash().length == 0) {
+            return false;
+        }
+        byte[] hash = pbkdf2(toBytes(rawPassword), encoded.getSalt(), encodedIterations, encoded.getHash().length);
+        return MessageDigest.isEqual(hash, encoded.getHash());
+    }
+
+    @Override
+    public boolean supports(String encodedPassword) {
+        return encodedPassword != null && encodedPassword.startsWith(EncodedPassword.PREFIX + ALGORITHM + EncodedPassword.PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        EncodedPassword encoded = EncodedPassword.parse(encodedPassword, ALGORITHM);
+        return encoded == null || encoded.getVersion() < VERSION
+                || encoded.getParam(ITERATIONS_KEY, 0) < iterations;
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA256, RFC 8018
+     * @param password password bytes
+     * @param salt salt
+     * @param iterations iteration count
+     * @param length derived key length, byte
+     * @return derived key
+     */
+    static byte[] pbkdf2(byte[] password, byte[] salt, int iterations, int length) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            // hmac key can not be empty, the empty password is padded with zero as hmac do
+            mac.init(new SecretKeySpec(password.length == 0 ? new byte[1] : password, HMAC_ALGORITHM));
+            byte[] derived = new byte[length];
+            byte[] u = new byte[HMAC_LENGTH];
+            byte[] t = new byte[HMAC_LENGTH];
+            int blocks = (length + HMAC_LENGTH - 1) / HMAC_LENGTH;
+            for (int block = 1; block <= blocks; block++) {
+                mac.update(salt);
+                mac.update((byte) (block >>> 24));
+                mac.update((byte) (block >>> 16));
+                mac.update((byte) (block >>> 8));
+                mac.update((byte) block);
+                mac.doFinal(u, 0);
+                System.arraycopy(u, 0, t, 0, HMAC_LENGTH);
+                for (int i = 1; i < iterations; i++) {
+                    if ((i & INTERRUPT_CHECK_MASK) == 0) {
+                        checkInterrupted();
+                    }
+                    mac.update(u);
+                    mac.doFinal(u, 0);
+                    for (int j = 0; j < HMAC_LENGTH; j++) {
+                        t[j] ^= u[j];
+                    }
+                }
+                int offset = (block - 1) * HMAC_LENGTH;
+                System.arraycopy(t, 0, derived, offset, Math.min(HMAC_LENGTH, length - offset));
+            }
+            return derived;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 with " + HMAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    /**
+     * stop the hash when the thread is interrupted, eg: the BoundedPasswordEncoder wait timeout
+     * @throws CancellationException when interrupted
+     */
+    static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("password hash is interrupted");
+        }
+    }
+
+    /**
+     * utf-8 bytes of the password, avoid creating intermediate String
+     * @param rawPassword raw password
+     * @return bytes
+     */
+    static byte[] toBytes(CharSequence rawPassword) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(rawPassword));
+        return Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit());
+    }
+}
@@ -0,0 +1,58 @@
+package com.usthe.sureness.processor.encoder;
+
+import com.usthe.sureness.util.Md5Util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * the legacy sureness password encoder, the default one of PasswordProcessor
+ * stored password is plaintext when account has no salt, else is Md5Util.md5(password + salt)
+ * suggest use it as the legacy one of DelegatingPasswordEncoder to rehash on login
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class SaltMd5PasswordEncoder implements PasswordEncoder {
+
+    /**
+     * encode the raw password of the account without salt, it is the plaintext
+     * @param rawPassword raw password
+     * @return plaintext password
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encode(rawPassword, null);
+    }
+
+    /**
+     * encode the raw password in the legacy format
+     * @param rawPassword raw password
+     * @param salt account salt, can be null
+     * @return plaintext when no salt, else Md5Util.md5(password + salt)
+     */
+    public String encode(CharSequence rawPassword, String salt) {
+        if (rawPassword == null) {
+            return null;
+        }
+        String password = rawPassword.toString();
+        if (salt != null && !"".equals(salt)) {
+            return Md5Util.md5(password + salt);
+        }
+        return password;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword, String salt) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        String password = encode(rawPassword, salt);
+        return password != null && MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                encodedPassword.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean supports(String encodedPassword) {
+        return encodedPassword != null && !encodedPassword.startsWith(EncodedPassword.PREFIX);
+    }
+}
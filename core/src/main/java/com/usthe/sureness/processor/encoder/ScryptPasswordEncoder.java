@@ -0,0 +1,221 @@
+package com.usthe.sureness.processor.encoder;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * scrypt password encoder, RFC 7914, implement with jdk only
+ * encoded password: $scrypt$v=1$n=cpuCost,r=blockSize,p=parallelization$base64(salt)$base64(hash)
+ * memory cost of one hash is 128 * n * r bytes, default 16MB, max 64MB
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class ScryptPasswordEncoder implements PasswordEncoder {
+
+    static final String ALGORITHM = "scrypt";
+    private static final String CPU_COST_KEY = "n";
+    private static final String BLOCK_SIZE_KEY = "r";
+    private static final String PARALLELIZATION_KEY = "p";
+    private static final int VERSION = 1;
+    private static final int DEFAULT_CPU_COST = 16384;
+    private static final int DEFAULT_BLOCK_SIZE = 8;
+    private static final int DEFAULT_PARALLELIZATION = 1;
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    /** max memory of one hash, a stored or migrated password can not ask more **/
+    private static final int MAX_MEMORY_COST = 64 << 20;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final int cpuCost;
+
+    private final int blockSize;
+
+    private final int parallelization;
+
+    public ScryptPasswordEncoder() {
+        this(DEFAULT_CPU_COST, DEFAULT_BLOCK_SIZE, DEFAULT_PARALLELIZATION);
+    }
+
+    /**
+     * @param cpuCost cpu/memory cost n, must be power of 2
+     * @param blockSize block size r
+     * @param parallelization parallelization p
+     */
+    public ScryptPasswordEncoder(int cpuCost, int blockSize, int parallelization) {
+        if (!isValidParam(cpuCost, blockSize, parallelization)) {
+            throw new IllegalArgumentException("ScryptPasswordEncoder illegal param n: " + cpuCost
+                    + ", r: " + blockSize + ", p: " + parallelization);
+        }
+        this.cpuCost = cpuCost;
+        this.blockSize = blockSize;
+        this.parallelization = parallelization;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = scrypt(Pbkdf2PasswordEncoder.toBytes(rawPassword), salt,
+                cpuCost, blockSize, parallelization, HASH_LENGTH);
+        Map<String, Integer> params = new LinkedHashMap<>(4);
+        params.put(CPU_COST_KEY, cpuCost);
+        params.put(BLOCK_SIZE_KEY, blockSize);
+        params.put(PARALLELIZATION_KEY, parallelization);
+        return new EncodedPassword(ALGORITHM, VERSION, params, salt, hash).format();
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword, String salt) {
+        EncodedPassword encoded = EncodedPassword.parse(encodedPassword, ALGORITHM);
+        if (rawPassword == null || encoded == null || encoded.getHash().length == 0) {
+            return false;
+        }
+        int n = encoded.getParam(CPU_COST_KEY, 0);
+        int r = encoded.getParam(BLOCK_SIZE_KEY, 0);
+        int p = encoded.getParam(PARALLELIZATION_KEY, 0);
+        if (!isValidParam(n, r, p)) {
+            return false;
+        }
+        byte[] hash = scrypt(Pbkdf2PasswordEncoder.toBytes(rawPassword), encoded.getSalt(),
+                n, r, p, encoded.getHash().length);
+        return MessageDigest.isEqual(hash, encoded.getHash());
+    }
+
+    @Override
+    public boolean supports(String encodedPassword) {
+        return encodedPassword != null && encodedPassword.startsWith(EncodedPassword.PREFIX + ALGORITHM + EncodedPassword.PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        EncodedPassword encoded = EncodedPassword.parse(encodedPassword, ALGORITHM);
+        return encoded == null || encoded.getVersion() < VERSION
+                || encoded.getParam(CPU_COST_KEY, 0) < cpuCost
+                || encoded.getParam(BLOCK_SIZE_KEY, 0) < blockSize
+                || encoded.getParam(PARALLELIZATION_KEY, 0) < parallelization;
+    }
+
+    /**
+     * the param from stored password is limited too, avoid a crafted one exhaust memory
+     */
+    private static boolean isValidParam(int n, int r, int p) {
+        return n > 1 && (n & (n - 1)) == 0 && r > 0 && p > 0
+                && (long) n * r * 128 <= MAX_MEMORY_COST && (long) p * r * 128 <= MAX_MEMORY_COST;
+    }
+
+    /**
+     * scrypt key derivation function
+     * @param password password bytes
+     * @param salt salt
+     * @param n cpu/memory cost
+     * @param r block size
+     * @param p parallelization
+     * @param length derived key length, byte
+     * @return derived key
+     */
+    static byte[] scrypt(byte[] password, byte[] salt, int n, int r, int p, int length) {
+        int blockBytes = 128 * r;
+        byte[] b = Pbkdf2PasswordEncoder.pbkdf2(password, salt, 1, p * blockBytes);
+        int[] x = new int[32 * r];
+        int[] y = new int[32 * r];
+        int[] v = new int[32 * r * n];
+        int[] salsa = new int[16];
+        for (int i = 0; i < p; i++) {
+            roMix(b, i * blockBytes, r, n, x, y, v, salsa);
+        }
+        return Pbkdf2PasswordEncoder.pbkdf2(password, b, 1, length);
+    }
+
+    private static void roMix(byte[] b, int offset, int r, int n, int[] x, int[] y, int[] v, int[] salsa) {
+        int words = 32 * r;
+        for (int k = 0; k < words; k++) {
+            int index = offset + k * 4;
+            x[k] = (b[index] & 0xff) | (b[index + 1] & 0xff) << 8
+                    | (b[index + 2] & 0xff) << 16 | (b[index + 3] & 0xff) << 24;
+        }
+        for (int i = 0; i < n; i++) {
+            if ((i & Pbkdf2PasswordEncoder.INTERRUPT_CHECK_MASK) == 0) {
+                Pbkdf2PasswordEncoder.checkInterrupted();
+            }
+            System.arraycopy(x, 0, v, i * words, words);
+            blockMix(x, y, r, salsa);
+        }
+        for (int i = 0; i < n; i++) {
+            if ((i & Pbkdf2PasswordEncoder.INTERRUPT_CHECK_MASK) == 0) {
+                Pbkdf2PasswordEncoder.checkInterrupted();
+            }
+            int j = x[(2 * r - 1) * 16] & (n - 1);
+            int base = j * words;
+            for (int k = 0; k < words; k++) {
+                x[k] ^= v[base + k];
+            }
+            blockMix(x, y, r, salsa);
+        }
+        for (int k = 0; k < words; k++) {
+            int index = offset + k * 4;
+            b[index] = (byte) x[k];
+            b[index + 1] = (byte) (x[k] >>> 8);
+            b[index + 2] = (byte) (x[k] >>> 16);
+            b[index + 3] = (byte) (x[k] >>> 24);
+        }
+    }
+
+    private static void blockMix(int[] b, int[] y, int r, int[] salsa) {
+        System.arraycopy(b, (2 * r - 1) * 16, salsa, 0, 16);
+        for (int i = 0; i < 2 * r; i++) {
+            for (int k = 0; k < 16; k++) {
+                salsa[k] ^= b[i * 16 + k];
+            }
+            salsa208(salsa);
+            System.arraycopy(salsa, 0, y, i * 16, 16);
+        }
+        for (int i = 0; i < r; i++) {
+            System.arraycopy(y, (2 * i) * 16, b, i * 16, 16);
+            System.arraycopy(y, (2 * i + 1) * 16, b, (i + r) * 16, 16);
+        }
+    }
+
+    private static void salsa208(int[] b) {
+        int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3], x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+        int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11], x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+        for (int i = 8; i > 0; i -= 2) {
+            x4 ^= Integer.rotateLeft(x0 + x12, 7);
+            x8 ^= Integer.rotateLeft(x4 + x0, 9);
+            x12 ^= Integer.rotateLeft(x8 + x4, 13);
+            x0 ^= Integer.rotateLeft(x12 + x8, 18);
+            x9 ^= Integer.rotateLeft(x5 + x1, 7);
+            x13 ^= Integer.rotateLeft(x9 + x5, 9);
+            x1 ^= Integer.rotateLeft(x13 + x9, 13);
+            x5 ^= Integer.rotateLeft(x1 + x13, 18);
+            x14 ^= Integer.rotateLeft(x10 + x6, 7);
+            x2 ^= Integer.rotateLeft(x14 + x10, 9);
+            x6 ^= Integer.rotateLeft(x2 + x14, 13);
+            x10 ^= Integer.rotateLeft(x6 + x2, 18);
+            x3 ^= Integer.rotateLeft(x15 + x11, 7);
+            x7 ^= Integer.rotateLeft(x3 + x15, 9);
+            x11 ^= Integer.rotateLeft(x7 + x3, 13);
+            x15 ^= Integer.rotateLeft(x11 + x7, 18);
+            x1 ^= Integer.rotateLeft(x0 + x3, 7);
+            x2 ^= Integer.rotateLeft(x1 + x0, 9);
+            x3 ^= Integer.rotateLeft(x2 + x1, 13);
+            x0 ^= Integer.rotateLeft(x3 + x2, 18);
+            x6 ^= Integer.rotateLeft(x5 + x4, 7);
+            x7 ^= Integer.rotateLeft(x6 + x5, 9);
+            x4 ^= Integer.rotateLeft(x7 + x6, 13);
+            x5 ^= Integer.rotateLeft(x4 + x7, 18);
+            x11 ^= Integer.rotateLeft(x10 + x9, 7);
+            x8 ^= Integer.rotateLeft(x11 + x10, 9);
+            x9 ^= Integer.rotateLeft(x8 + x11, 13);
+            x10 ^= Integer.rotateLeft(x9 + x8, 18);
+            x12 ^= Integer.rotateLeft(x15 + x14, 7);
+            x13 ^= Integer.rotateLeft(x12 + x15, 9);
+            x14 ^= Integer.rotateLeft(x13 + x12, 13);
+            x15 ^= Integer.rotateLeft(x14 + x13, 18);
+        }
+        b[0] += x0; b[1] += x1; b[2] += x2; b[3] += x3; b[4] += x4; b[5] += x5; b[6] += x6; b[7] += x7;
+        b[8] += x8; b[9] += x9; b[10] += x10; b[11] += x11; b[12] += x12; b[13] += x13; b[14] += x14; b[15] += x15;
+    }
+}
@@ -0,0 +1,201 @@
+package com.usthe.sureness.processor.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * authorization decision cache for the processors whose decision only depends on the roles, opt-in
+ * the key is the identity of (own roles, support roles), the matcher gives the same support roles instance
+ * of a matched rule, the account or the canonical role set gives the same own roles instance,
+ * so a repeat authorization is one lookup whatever the role list length.
+ * the role lists should not be changed after they are used. the matched support roles are the instances of one
+ * matcher snapshot, so the decisions of the old trees never hit, register invalidate as the publish listener of matcher
+ * to free them at once when the path tree rebuild.
+ * when full, a quarter of the decisions are evicted, the hot ones are allowed again and come back soon.
+ * only the allowed decision is cached, the denied one is authorized again to throw the processor exception
+ * @author agent
+ * @date 21:18 2026-10-18
+ */
+public class AuthorizationDecisionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationDecisionCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final int DEFAULT_MAX_INTERNED = 10000;
+
+    /** max decision num **/
+    private final int maxSize;
+
+    /** max canonical role set num **/
+    private final int maxInterned;
+
+    private final Map<DecisionKey, Boolean> decisions;
+
+    /** role list - its canonical unmodifiable copy **/
+    private final Map<List<String>, List<String>> roleSets;
+
+    /** only one thread evicts, the others go on **/
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    public AuthorizationDecisionCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_INTERNED);
+    }
+
+    /**
+     * @param maxSize max decision num
+     */
+    public AuthorizationDecisionCache(int maxSize) {
+        this(maxSize, DEFAULT_MAX_INTERNED);
+    }
+
+    /**
+     * @param maxSize max decision num
+     * @param maxInterned max canonical role set num
+     */
+    public AuthorizationDecisionCache(int maxSize, int maxInterned) {
+        if (maxSize <= 0 || maxInterned < 0) {
+            throw new IllegalArgumentException("AuthorizationDecisionCache illegal param");
+        }
+        this.maxSize = maxSize;
+        this.maxInterned = maxInterned;
+        this.decisions = new ConcurrentHashMap<>(64);
+        this.roleSets = new ConcurrentHashMap<>(64);
+    }
+
+    /**
+     * invalidate the decisions, eg: when the path tree is built or rebuilt
+     */
+    public void invalidate() {
+        decisions.clear();
+    }
+
+    /**
+     * Determine whether the own roles have been allowed to access the resource of the support roles
+     * @param ownRoles own roles of subject
+     * @param supportRoles support roles of the matched resource
+     * @return allowed return true, else false
+     */
+    public boolean isAllowed(Object ownRoles, Object supportRoles) {
+        if (ownRoles == null || supportRoles == null) {
+            return false;
+        }
+        return decisions.get(new DecisionKey(ownRoles, supportRoles)) != null;
+    }
+
+    /**
+     * remember the own roles are allowed to access the resource of the support roles
+     * @param ownRoles own roles of subject
+     * @param supportRoles support roles of the matched resource
+     */
+    public void markAllowed(Object ownRoles, Object supportRoles) {
+        if (ownRoles == null || supportRoles == null) {
+            return;
+        }
+        if (decisions.size() >= maxSize) {
+            evict();
+        }
+        decisions.put(new DecisionKey(ownRoles, supportRoles), Boolean.TRUE);
+    }
+
+    /**
+     * Get the canonical instance of the role list, the equal role lists share one instance,
+     * eg: the roles parsed from the tokens of different users.
+     * the canonical one is an unmodifiable copy, the caller can not change it
+     * @param roles role list
+     * @return canonical role list, the roles itself when the canonical role sets are full
+     */
+    public List<String> canonicalRoles(List<String> roles) {
+        if (roles == null) {
+            return null;
+        }
+        List<String> canonical = roleSets.get(roles);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (roleSets.size() >= maxInterned) {
+            return roles;
+        }
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(roles));
+        canonical = roleSets.putIfAbsent(copy, copy);
+        return canonical == null ? copy : canonical;
+    }
+
+    /**
+     * clear all decisions and role sets
+     */
+    public void clear() {
+        decisions.clear();
+        roleSets.clear();
+    }
+
+    /**
+     * Get the number of decisions in cache
+     * @return decision num
+     */
+    public int size() {
+        return decisions.size();
+    }
+
+    /**
+     * remove the decisions until 3/4 full, the iteration order of the map is arbitrary
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxSize - maxSize / 4;
+            Iterator<DecisionKey> iterator = decisions.keySet().iterator();
+            while (decisions.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - AuthorizationDecisionCache is full, evict decisions to {}", decisions.size());
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * the identity of own roles and support roles
+     */
+    private static class DecisionKey {
+
+        private final Object ownRoles;
+
+        private final Object supportRoles;
+
+        private DecisionKey(Object ownRoles, Object supportRoles) {
+            this.ownRoles = ownRoles;
+            this.supportRoles = supportRoles;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+            DecisionKey that = (DecisionKey) o;
+            return ownRoles == that.ownRoles && supportRoles == that.supportRoles;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(ownRoles) + System.identityHashCode(supportRoles);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.usthe.sureness.processor.support;
 
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.processor.BaseProcessor;
 import com.usthe.sureness.processor.exception.*;
+import com.usthe.sureness.provider.AsyncSurenessAccountProvider;
 import com.usthe.sureness.provider.SurenessAccount;
 import com.usthe.sureness.provider.SurenessAccountProvider;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.support.DigestSubject;
+import com.usthe.sureness.util.SurenessFutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +18,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * process digest auth - DigestSubject
@@ -30,6 +36,7 @@ public class DigestProcessor extends BaseProcessor {
     private static String realm;
     private static String qop;
     private SurenessAccountProvider accountProvider;
+    private FailedAttemptTracker attemptTracker;
 
     static {
         try {
@@ -53,20 +60,65 @@ public class DigestProcessor extends BaseProcessor {
 
     @Override
     public Subject authenticated(Subject var) throws SurenessAuthenticationException {
+        checkDigestInfo(var);
+        long start = SurenessMetricsHolder.startStage();
+        SurenessAccount account = accountProvider.loadAccount((String) var.getPrincipal());
+        SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ACCOUNT_LOAD, start);
+        return authenticated(var, account);
+    }
+
+    @Override
+    public CompletionStage<SubjectSum> processAsync(Subject var) {
+        if (!(accountProvider instanceof AsyncSurenessAccountProvider)) {
+            return super.processAsync(var);
+        }
+        try {
+            checkDigestInfo(var);
+        } catch (RuntimeException e) {
+            recordProcessResult(e);
+            return SurenessFutureUtil.failedFuture(e);
+        }
+        long start = SurenessMetricsHolder.startStage();
+        return ((AsyncSurenessAccountProvider) accountProvider).loadAccountAsync((String) var.getPrincipal())
+                .thenApply(account -> {
+                    SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ACCOUNT_LOAD, start);
+                    // the authenticated subject has the principal and roles of account, as process does
+                    Subject subject = authenticated(var, account);
+                    timedAuthorized(subject);
+                    return subject.generateSubjectSummary();
+                })
+                .whenComplete((subjectSum, throwable) -> recordProcessResult(throwable));
+    }
+
+    private void checkDigestInfo(Subject var) {
         if (var.getPrincipal() == null || var.getCredentials() == null) {
             String authenticate = getAuthenticate();
             throw new NeedDigestInfoException("you should try once with digest auth information", authenticate);
         }
+        if (attemptTracker != null && attemptTracker.isExcessive((String) var.getPrincipal(), getRemoteHost(var))) {
+            throw new ExcessiveAttemptsException("account is disable due to many time authenticated, try later");
+        }
+    }
+
+    private String getRemoteHost(Subject var) {
+        return var.getRemoteHost() == null ? null : String.valueOf(var.getRemoteHost());
+    }
+
+    private Subject authenticated(Subject var, SurenessAccount account) throws SurenessAuthenticationException {
         String appId = (String) var.getPrincipal();
-        SurenessAccount account = accountProvider.loadAccount(appId);
+        String remoteHost = getRemoteHost(var);
         if (account == null) {
             if (logger.isDebugEnabled()) {
                 logger.debug("PasswordProcessor authenticated fail, no this user: {}",
                         var.getPrincipal());
             }
+            if (attemptTracker != null) {
+                attemptTracker.recordFailure(appId, remoteHost);
+            }
             throw new UnknownAccountException("do not exist the account: " + appId);
         }
         DigestSubject digestSubject = (DigestSubject) var;
+        long start = SurenessMetricsHolder.startStage();
         //A1 = MD5("username:realm:password");
         String a1 = calcDigest(appId, digestSubject.getRealm(), account.getPassword());
         //A2 = MD5("httpMethod:uri");
@@ -74,9 +126,16 @@ public class DigestProcessor extends BaseProcessor {
         //response = MD5("A1:nonce:nc:cNonce:qop:A2");
         String oriResponse = calcDigest(a1, digestSubject.getNonce(), digestSubject.getNc(), digestSubject.getCnonce(),
                 digestSubject.getQop(), a2);
+        SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CREDENTIAL_VERIFY, start);
         if (!oriResponse.equals(digestSubject.getCredentials())) {
+            if (attemptTracker != null) {
+                attemptTracker.recordFailure(appId, remoteHost);
+            }
             throw new IncorrectCredentialsException("incorrect password");
         }
+        if (attemptTracker != null) {
+            attemptTracker.recordSuccess(appId);
+        }
         if (account.isDisabledAccount()) {
             throw new DisabledAccountException("account is disabled");
         }
@@ -84,10 +143,15 @@ public class DigestProcessor extends BaseProcessor {
             throw new ExcessiveAttemptsException("account is disable due to many time authenticated, try later");
         }
         return DigestSubject.builder(var)
-                .setOwnRoles(account.getOwnRoles())
+                .setOwnRoles(canonicalRoles(account.getOwnRoles()))
                 .build();
     }
 
+    @Override
+    protected boolean isRoleBasedAuthorized() {
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void authorized(Subject var) throws SurenessAuthorizationException {
@@ -129,6 +193,10 @@ public class DigestProcessor extends BaseProcessor {
         this.accountProvider = provider;
     }
 
+    public void setAttemptTracker(FailedAttemptTracker attemptTracker) {
+        this.attemptTracker = attemptTracker;
+    }
+
     public static void setRealm(String realm) {
         DigestProcessor.realm = realm;
     }
@@ -0,0 +1,311 @@
+package com.usthe.sureness.processor.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * failed authentication attempt tracker, drive ExcessiveAttemptsException in processors
+ * count the failures of each appId and each remote host in a sliding time window.
+ *
+ * the accounts and the hosts are counted exactly in two separate bounded maps, key - windowed counter.
+ * the window is split into slices, the slices older than the window are ignored when counting,
+ * that is the time decay. the counters are lock free, each slice is one packed long updated by CAS.
+ * when a map is full, one thread evicts without lock and sort: the expired counters are removed first, then the
+ * counters whose last failure is the oldest and count is the least, so the memory never grows no matter how many distinct
+ * usernames an attacker sprays, and the accounts under attack now are kept.
+ * @author agent
+ * @date 20:20 2026-10-18
+ */
+public class FailedAttemptTracker {
+
+    private static final int DEFAULT_MAX_KEYS = 1 << 16;
+    private static final long MIN_WINDOW_MILLIS = 60L;
+    private static final int DEFAULT_SLICES = 6;
+    private static final long DEFAULT_WINDOW_MILLIS = 5 * 60 * 1000L;
+    private static final int DEFAULT_MAX_ACCOUNT_ATTEMPTS = 5;
+    private static final int DEFAULT_MAX_HOST_ATTEMPTS = 100;
+    /** the low bits of a slice for the count, the high bits for the epoch **/
+    private static final int COUNT_BITS = 23;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int MAX_EVICT_COUNT_LEVELS = 64;
+
+    /** slice num of the window **/
+    private final int slices;
+
+    /** time of one slice, ms **/
+    private final long sliceMillis;
+
+    /** failures of an appId in window reach it, the account is excessive **/
+    private final int maxAccountAttempts;
+
+    /** failures from a remote host in window reach it, the host is excessive **/
+    private final int maxHostAttempts;
+
+    /** the epochs are counted from it, so the epoch and the count fit in one long **/
+    private final long originMillis;
+
+    /** appId - failures **/
+    private final AttemptCounters accountCounters;
+
+    /** remote host - failures **/
+    private final AttemptCounters hostCounters;
+
+    public FailedAttemptTracker() {
+        this(DEFAULT_MAX_ACCOUNT_ATTEMPTS, DEFAULT_MAX_HOST_ATTEMPTS, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * @param maxAccountAttempts max failures of an appId in window
+     * @param maxHostAttempts max failures from a remote host in window
+     * @param windowMillis sliding window time, ms
+     * @param maxKeys max tracked appIds, and max tracked remote hosts
+     */
+    public FailedAttemptTracker(int maxAccountAttempts, int maxHostAttempts, long windowMillis, int maxKeys) {
+        if (maxAccountAttempts < 1 || maxHostAttempts < 1 || windowMillis < MIN_WINDOW_MILLIS || maxKeys < 1) {
+            throw new IllegalArgumentException("FailedAttemptTracker illegal param");
+        }
+        this.maxAccountAttempts = maxAccountAttempts;
+        this.maxHostAttempts = maxHostAttempts;
+        this.slices = DEFAULT_SLICES;
+        this.sliceMillis = windowMillis / DEFAULT_SLICES;
+        this.originMillis = System.currentTimeMillis();
+        this.accountCounters = new AttemptCounters(maxKeys, maxAccountAttempts);
+        this.hostCounters = new AttemptCounters(maxKeys, maxHostAttempts);
+    }
+
+    /**
+     * Determine whether the appId or the remote host has too many failures in window
+     * @param appId account appId
+     * @param remoteHost remote host, can be null
+     * @return excessive return true, else false
+     */
+    public boolean isExcessive(String appId, String remoteHost) {
+        long epoch = currentEpoch();
+        if (appId != null && accountCounters.count(appId, epoch) >= maxAccountAttempts) {
+            return true;
+        }
+        return remoteHost != null && hostCounters.count(remoteHost, epoch) >= maxHostAttempts;
+    }
+
+    /**
+     * record one failed attempt
+     * @param appId account appId
+     * @param remoteHost remote host, can be null
+     */
+    public void recordFailure(String appId, String remoteHost) {
+        long epoch = currentEpoch();
+        if (appId != null) {
+            accountCounters.increment(appId, epoch);
+        }
+        if (remoteHost != null) {
+            hostCounters.increment(remoteHost, epoch);
+        }
+    }
+
+    /**
+     * record one success attempt, reset the failures of the appId
+     * @param appId account appId
+     */
+    public void recordSuccess(String appId) {
+        if (appId != null) {
+            accountCounters.remove(appId);
+        }
+    }
+
+    /**
+     * Get the failures of the appId in window
+     * @param appId account appId
+     * @return failure num
+     */
+    public long getAccountFailures(String appId) {
+        return appId == null ? 0 : accountCounters.count(appId, currentEpoch());
+    }
+
+    /**
+     * Get the failures from the remote host in window
+     * @param remoteHost remote host
+     * @return failure num
+     */
+    public long getHostFailures(String remoteHost) {
+        return remoteHost == null ? 0 : hostCounters.count(remoteHost, currentEpoch());
+    }
+
+    private long currentEpoch() {
+        return Math.max(0L, System.currentTimeMillis() - originMillis) / sliceMillis;
+    }
+
+    /**
+     * the bounded map of key - windowed counter
+     */
+    private final class AttemptCounters {
+
+        private final int maxKeys;
+
+        /** the count levels of the evict order, the counts beyond are evicted in any order **/
+        private final int countLevels;
+
+        private final Map<String, WindowCounter> counters;
+
+        /** only one thread evicts, the others go on **/
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        private AttemptCounters(int maxKeys, int maxAttempts) {
+            this.maxKeys = maxKeys;
+            this.countLevels = Math.min(maxAttempts, MAX_EVICT_COUNT_LEVELS);
+            this.counters = new ConcurrentHashMap<>(Math.min(maxKeys, 1024));
+        }
+
+        private long count(String key, long epoch) {
+            WindowCounter counter = counters.get(key);
+            return counter == null ? 0 : counter.count(epoch);
+        }
+
+        private void increment(String key, long epoch) {
+            WindowCounter counter = counters.get(key);
+            if (counter == null) {
+                if (counters.size() >= maxKeys) {
+                    evict(epoch);
+                }
+                // created with the failure counted, so a counter in the map is never taken as expired
+                counter = counters.putIfAbsent(key, new WindowCounter(slices, epoch));
+                if (counter == null) {
+                    return;
+                }
+            }
+            counter.increment(epoch);
+        }
+
+        private void remove(String key) {
+            counters.remove(key);
+        }
+
+        /**
+         * remove the expired counters, then the counters of the oldest last failure and the least count until 3/4 full.
+         * no sort, the first pass counts the alive counters of each evict rank, the second removes the lowest ranks
+         */
+        private void evict(long epoch) {
+            if (!evicting.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (counters.size() < maxKeys) {
+                    return;
+                }
+                int[] rankNums = new int[slices * countLevels];
+                int aliveNum = 0;
+                for (Map.Entry<String, WindowCounter> entry : counters.entrySet()) {
+                    WindowCounter counter = entry.getValue();
+                    int rank = evictRank(counter, epoch);
+                    if (rank < 0) {
+                        counters.remove(entry.getKey(), counter);
+                    } else {
+                        rankNums[rank]++;
+                        aliveNum++;
+                    }
+                }
+                // only the counters ranked above are evicted, not the ones put meanwhile
+                int needNum = aliveNum - (maxKeys - maxKeys / 4);
+                if (needNum <= 0) {
+                    return;
+                }
+                int cutRank = 0;
+                while (cutRank < rankNums.length - 1 && needNum > rankNums[cutRank]) {
+                    needNum -= rankNums[cutRank];
+                    cutRank++;
+                }
+                // the counters may change meanwhile, the ranks are the snapshot of the second pass
+                for (Map.Entry<String, WindowCounter> entry : counters.entrySet()) {
+                    WindowCounter counter = entry.getValue();
+                    int rank = evictRank(counter, epoch);
+                    if (rank < cutRank || rank == cutRank && needNum-- > 0) {
+                        counters.remove(entry.getKey(), counter);
+                    }
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+
+        /**
+         * @return -1 when expired, else the lower evict first: the older last failure, then the less count
+         */
+        private int evictRank(WindowCounter counter, long epoch) {
+            long lastEpoch = counter.lastEpoch(epoch);
+            if (lastEpoch < 0) {
+                return -1;
+            }
+            long count = Math.min(counter.count(epoch), countLevels);
+            int age = (int) Math.max(0L, epoch - lastEpoch);
+            return (slices - 1 - age) * countLevels + (int) Math.max(0L, count - 1);
+        }
+    }
+
+    /**
+     * the failure counts of the slices of one key, lock free.
+     * each slice is one long, the epoch in the high bits and the count in the low COUNT_BITS bits,
+     * so restarting an expired slice and counting in it are one CAS
+     */
+    private static final class WindowCounter {
+
+        private final AtomicLongArray slots;
+
+        private WindowCounter(int slices, long epoch) {
+            this.slots = new AtomicLongArray(slices);
+            slots.set((int) (epoch % slices), (epoch << COUNT_BITS) | 1L);
+        }
+
+        private void increment(long epoch) {
+            int slice = (int) (epoch % slots.length());
+            while (true) {
+                long slot = slots.get(slice);
+                long sliceEpoch = slot >>> COUNT_BITS;
+                long next;
+                if (sliceEpoch == epoch) {
+                    if ((slot & COUNT_MASK) == COUNT_MASK) {
+                        // saturated
+                        return;
+                    }
+                    next = slot + 1;
+                } else if (sliceEpoch < epoch) {
+                    // the slice belongs to an expired window, restart it
+                    next = (epoch << COUNT_BITS) | 1L;
+                } else {
+                    // a newer window has restarted the slice meanwhile, this failure is already expired
+                    return;
+                }
+                if (slots.compareAndSet(slice, slot, next)) {
+                    return;
+                }
+            }
+        }
+
+        private long count(long epoch) {
+            long sum = 0;
+            for (int slice = 0; slice < slots.length(); slice++) {
+                long slot = slots.get(slice);
+                long sliceEpoch = slot >>> COUNT_BITS;
+                if (sliceEpoch <= epoch && epoch - sliceEpoch < slots.length()) {
+                    sum += slot & COUNT_MASK;
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * @return the epoch of the last failure in window, -1 when no failure in window
+         */
+        private long lastEpoch(long epoch) {
+            long lastEpoch = -1L;
+            for (int slice = 0; slice < slots.length(); slice++) {
+                long slot = slots.get(slice);
+                long sliceEpoch = slot >>> COUNT_BITS;
+                if ((slot & COUNT_MASK) != 0 && sliceEpoch <= epoch && epoch - sliceEpoch < slots.length()) {
+                    lastEpoch = Math.max(lastEpoch, sliceEpoch);
+                }
+            }
+            return lastEpoch;
+        }
+    }
+}
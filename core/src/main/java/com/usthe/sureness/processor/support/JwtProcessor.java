@@ -1,5 +1,7 @@
 package com.usthe.sureness.processor.support;
 
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.processor.BaseProcessor;
 import com.usthe.sureness.processor.exception.ExpiredCredentialsException;
 import com.usthe.sureness.processor.exception.IncorrectCredentialsException;
@@ -9,15 +11,19 @@ import com.usthe.sureness.processor.exception.UnauthorizedException;
 import com.usthe.sureness.subject.Subject;
 import com.usthe.sureness.subject.support.JwtSubject;
 import com.usthe.sureness.util.JsonWebTokenUtil;
-import io.jsonwebtoken.Claims;
+import com.usthe.sureness.util.LazyJwtClaims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
 import io.jsonwebtoken.security.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * the processor support jwt - JwtSubject
@@ -28,6 +34,12 @@ public class JwtProcessor extends BaseProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtProcessor.class);
 
+    private static final String ROLES_CLAIM = "roles";
+
+    /** the claims read when parse jwt, the others are decoded when used **/
+    private static final Set<String> READ_CLAIMS = new HashSet<>(Arrays.asList(ROLES_CLAIM,
+            JsonWebTokenUtil.ROLES_BITS_CLAIM, JsonWebTokenUtil.ROLES_VERSION_CLAIM));
+
     @Override
     public boolean canSupportSubjectClass(Class<?> var) {
         return var == JwtSubject.class;
@@ -45,10 +57,12 @@ public class JwtProcessor extends BaseProcessor {
         if (JsonWebTokenUtil.isNotJsonWebToken(jwt)) {
             throw new  IncorrectCredentialsException("this jwt credential is illegal");
         }
-        Claims claims;
+        LazyJwtClaims claims;
+        long start = SurenessMetricsHolder.startStage();
         try {
-            claims = JsonWebTokenUtil.parseJwt(jwt);
-        } catch (SignatureException | UnsupportedJwtException | MalformedJwtException | IllegalArgumentException e) {
+            claims = JsonWebTokenUtil.parseJwtLazily(jwt, READ_CLAIMS);
+        } catch (SignatureException | UnsupportedJwtException | MalformedJwtException | PrematureJwtException
+                | IllegalArgumentException e) {
             // JWT error
             if (logger.isDebugEnabled()) {
                 logger.debug("jwtProcessor authenticated fail, user: {}, jwt: {}",
@@ -62,16 +76,41 @@ public class JwtProcessor extends BaseProcessor {
                         var.getPrincipal(), jwt);
             }
             throw new ExpiredCredentialsException("this jwt has expired");
+        } finally {
+            SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CREDENTIAL_VERIFY, start);
         }
         JwtSubject.Builder builder = JwtSubject.builder(var)
-                .setPrincipal(claims.getSubject());
-        List<String> ownRoles = claims.get("roles", List.class);
-        if (ownRoles != null) {
-            builder.setOwnRoles(ownRoles);
+                .setPrincipal(claims.getSubject())
+                .setClaims(claims);
+        Object rolesBits = claims.get(JsonWebTokenUtil.ROLES_BITS_CLAIM);
+        if (rolesBits != null) {
+            // the compact roles decode into the interned role list of the dictionary
+            try {
+                return builder.setOwnRoles(JsonWebTokenUtil.decodeCompactRoles(rolesBits,
+                        claims.get(JsonWebTokenUtil.ROLES_VERSION_CLAIM))).build();
+            } catch (MalformedJwtException e) {
+                throw new IncorrectCredentialsException("this jwt error:" + e.getMessage());
+            }
+        }
+        Object ownRoles = claims.get(ROLES_CLAIM);
+        if (ownRoles instanceof List) {
+            for (Object role : (List<?>) ownRoles) {
+                if (!(role instanceof String)) {
+                    throw new IncorrectCredentialsException("this jwt roles claim is illegal");
+                }
+            }
+            builder.setOwnRoles(canonicalRoles((List<String>) ownRoles));
+        } else if (ownRoles != null) {
+            throw new IncorrectCredentialsException("this jwt roles claim is illegal");
         }
         return builder.build();
     }
 
+    @Override
+    protected boolean isRoleBasedAuthorized() {
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void authorized(Subject var) throws SurenessAuthorizationException {
@@ -0,0 +1,196 @@
+package com.usthe.sureness.processor.support;
+
+import com.usthe.sureness.provider.SurenessAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * verified credential cache for PasswordProcessor, opt-in
+ * remember appId -> HMAC(presented password) for a short time after a successful verification,
+ * so the expensive password hash is paid once per client per ttl window.
+ * plaintext passwords are never kept, the HMAC key is random and lives only in this instance.
+ * the entry is bound to the account stored password and salt, it is invalid once they change.
+ * @author agent
+ * @date 20:16 2026-10-18
+ */
+public class PasswordCredentialCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordCredentialCache.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_LENGTH = 32;
+    private static final long DEFAULT_TTL_MILLIS = 60 * 1000L;
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final char SPLIT = ':';
+
+    /** verified entry time to live, ms **/
+    private final long ttlMillis;
+
+    /** max entry num, avoid unbounded memory when many clients **/
+    private final int maxSize;
+
+    private final SecretKeySpec hmacKey;
+
+    private final ThreadLocal<Mac> macHolder;
+
+    private final Map<String, Entry> cache;
+
+    public PasswordCredentialCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param ttlMillis verified entry time to live, ms
+     * @param maxSize max entry num
+     */
+    public PasswordCredentialCache(long ttlMillis, int maxSize) {
+        if (ttlMillis <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("PasswordCredentialCache ttlMillis and maxSize must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        byte[] keyBytes = new byte[HMAC_KEY_LENGTH];
+        new SecureRandom().nextBytes(keyBytes);
+        this.hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.macHolder = ThreadLocal.withInitial(this::createMac);
+        this.cache = new ConcurrentHashMap<>(16);
+    }
+
+    /**
+     * Determine whether this credential has been verified for the account in the ttl window
+     * @param appId account appId
+     * @param credential presented password
+     * @param account current account, its password or salt change make the entry invalid
+     * @return verified and not expired return true, else false
+     */
+    public boolean isVerified(String appId, String credential, SurenessAccount account) {
+        if (appId == null || credential == null || account == null) {
+            return false;
+        }
+        Entry entry = cache.get(appId);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            cache.remove(appId, entry);
+            return false;
+        }
+        byte[] accountMac = hmac(account.getPassword(), account.getSalt());
+        if (accountMac == null || !MessageDigest.isEqual(entry.accountMac, accountMac)) {
+            // account password or salt has changed
+            cache.remove(appId, entry);
+            return false;
+        }
+        byte[] credentialMac = hmac(appId, credential);
+        return credentialMac != null && MessageDigest.isEqual(entry.credentialMac, credentialMac);
+    }
+
+    /**
+     * remember the credential has been verified successfully for the account
+     * @param appId account appId
+     * @param credential presented password
+     * @param account current account
+     */
+    public void markVerified(String appId, String credential, SurenessAccount account) {
+        if (appId == null || credential == null || account == null) {
+            return;
+        }
+        byte[] credentialMac = hmac(appId, credential);
+        byte[] accountMac = hmac(account.getPassword(), account.getSalt());
+        if (credentialMac == null || accountMac == null) {
+            return;
+        }
+        if (cache.size() >= maxSize && !cache.containsKey(appId)) {
+            evictExpired();
+            if (cache.size() >= maxSize) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("sureness - PasswordCredentialCache is full, skip cache appId: {}", appId);
+                }
+                return;
+            }
+        }
+        cache.put(appId, new Entry(credentialMac, accountMac, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * invalidate the verified entry of this account, eg: when account password changed
+     * @param appId account appId
+     */
+    public void invalidate(String appId) {
+        if (appId != null) {
+            cache.remove(appId);
+        }
+    }
+
+    /**
+     * clear all verified entry
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Get the number of entry in cache
+     * @return entry num
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(entry -> entry.getValue().expireAt < now);
+    }
+
+    private byte[] hmac(String first, String second) {
+        Mac mac = macHolder.get();
+        if (mac == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(first == null ? 0 : first.length()).append(SPLIT)
+                .append(first).append(SPLIT).append(second);
+        return mac.doFinal(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            logger.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * verified credential entry
+     */
+    private static class Entry {
+
+        /** HMAC of appId and presented password **/
+        private final byte[] credentialMac;
+
+        /** HMAC of account stored password and salt **/
+        private final byte[] accountMac;
+
+        /** expire time, ms **/
+        private final long expireAt;
+
+        private Entry(byte[] credentialMac, byte[] accountMac, long expireAt) {
+            this.credentialMac = credentialMac;
+            this.accountMac = accountMac;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.usthe.sureness.processor.support;
 
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
 import com.usthe.sureness.processor.BaseProcessor;
+import com.usthe.sureness.processor.encoder.PasswordEncoder;
+import com.usthe.sureness.processor.encoder.PasswordRehashHandler;
+import com.usthe.sureness.processor.encoder.SaltMd5PasswordEncoder;
 import com.usthe.sureness.processor.exception.DisabledAccountException;
 import com.usthe.sureness.processor.exception.ExcessiveAttemptsException;
 import com.usthe.sureness.processor.exception.IncorrectCredentialsException;
@@ -8,15 +13,18 @@ import com.usthe.sureness.processor.exception.SurenessAuthenticationException;
 import com.usthe.sureness.processor.exception.SurenessAuthorizationException;
 import com.usthe.sureness.processor.exception.UnauthorizedException;
 import com.usthe.sureness.processor.exception.UnknownAccountException;
+import com.usthe.sureness.provider.AsyncSurenessAccountProvider;
 import com.usthe.sureness.provider.SurenessAccount;
 import com.usthe.sureness.provider.SurenessAccountProvider;
 import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.subject.SubjectSum;
 import com.usthe.sureness.subject.support.PasswordSubject;
-import com.usthe.sureness.util.Md5Util;
+import com.usthe.sureness.util.SurenessFutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * the processor support username password - PasswordSubject
@@ -29,6 +37,18 @@ public class PasswordProcessor extends BaseProcessor {
 
     private SurenessAccountProvider accountProvider;
 
+    /** password encoder, default is the legacy plaintext or md5(password + salt) **/
+    private PasswordEncoder passwordEncoder = new SaltMd5PasswordEncoder();
+
+    /** called when login success but stored password needs rehash, null means not rehash **/
+    private PasswordRehashHandler rehashHandler;
+
+    /** failed attempt tracker, null means only use the account excessiveAttempts flag **/
+    private FailedAttemptTracker attemptTracker;
+
+    /** verified credential cache, opt-in, null means verify password every time **/
+    private PasswordCredentialCache credentialCache;
+
     @Override
     public boolean canSupportSubjectClass(Class<?> var) {
         return var == PasswordSubject.class;
@@ -42,26 +62,84 @@ public class PasswordProcessor extends BaseProcessor {
 
     @Override
     public Subject authenticated(Subject var) throws SurenessAuthenticationException {
+        checkExcessiveAttempts(var);
+        long start = SurenessMetricsHolder.startStage();
+        SurenessAccount account = accountProvider.loadAccount((String) var.getPrincipal());
+        SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ACCOUNT_LOAD, start);
+        return authenticated(var, account);
+    }
+
+    @Override
+    public CompletionStage<SubjectSum> processAsync(Subject var) {
+        if (!(accountProvider instanceof AsyncSurenessAccountProvider)) {
+            return super.processAsync(var);
+        }
+        try {
+            checkExcessiveAttempts(var);
+        } catch (RuntimeException e) {
+            recordProcessResult(e);
+            return SurenessFutureUtil.failedFuture(e);
+        }
+        long start = SurenessMetricsHolder.startStage();
+        return ((AsyncSurenessAccountProvider) accountProvider).loadAccountAsync((String) var.getPrincipal())
+                .thenApply(account -> {
+                    SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ACCOUNT_LOAD, start);
+                    // the authenticated subject has the principal and roles of account, as process does
+                    Subject subject = authenticated(var, account);
+                    timedAuthorized(subject);
+                    return subject.generateSubjectSummary();
+                })
+                .whenComplete((subjectSum, throwable) -> recordProcessResult(throwable));
+    }
+
+    private void checkExcessiveAttempts(Subject var) {
+        if (attemptTracker != null && attemptTracker.isExcessive((String) var.getPrincipal(), getRemoteHost(var))) {
+            throw new ExcessiveAttemptsException("account is disable due to many time authenticated, try later");
+        }
+    }
+
+    private String getRemoteHost(Subject var) {
+        return var.getRemoteHost() == null ? null : String.valueOf(var.getRemoteHost());
+    }
+
+    private Subject authenticated(Subject var, SurenessAccount account) throws SurenessAuthenticationException {
         String appId = (String) var.getPrincipal();
-        SurenessAccount account = accountProvider.loadAccount(appId);
+        String remoteHost = getRemoteHost(var);
         if (account == null) {
             if (logger.isDebugEnabled()) {
                 logger.debug("PasswordProcessor authenticated fail, no this user: {}",
                         var.getPrincipal());
             }
+            if (attemptTracker != null) {
+                attemptTracker.recordFailure(appId, remoteHost);
+            }
             throw new  UnknownAccountException("do not exist the account: " + appId);
         }
         if (var.getCredentials() != null && account.getPassword() != null) {
-            String password = String.valueOf(var.getCredentials());
-            if (account.getSalt() != null && !"".equals(account.getSalt())) {
-                password = Md5Util.md5( password + account.getSalt());
-            }
-            if (password == null || !password.equals(account.getPassword())) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("PasswordProcessor authenticated fail, user: {}",
-                            var.getPrincipal());
+            String credential = String.valueOf(var.getCredentials());
+            if (credentialCache == null || !credentialCache.isVerified(appId, credential, account)) {
+                long start = SurenessMetricsHolder.startStage();
+                boolean matched = passwordEncoder.matches(credential, account.getPassword(), account.getSalt());
+                SurenessMetricsHolder.endStage(SurenessMetrics.Stage.CREDENTIAL_VERIFY, start);
+                if (!matched) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("PasswordProcessor authenticated fail, user: {}",
+                                var.getPrincipal());
+                    }
+                    if (attemptTracker != null) {
+                        attemptTracker.recordFailure(appId, remoteHost);
+                    }
+                    throw new IncorrectCredentialsException("incorrect password");
+                }
+                if (attemptTracker != null) {
+                    attemptTracker.recordSuccess(appId);
+                }
+                if (rehashHandler != null && passwordEncoder.needsRehash(account.getPassword())) {
+                    rehashHandler.rehash(appId, passwordEncoder.encode(credential));
+                }
+                if (credentialCache != null) {
+                    credentialCache.markVerified(appId, credential, account);
                 }
-                throw new IncorrectCredentialsException("incorrect password");
             }
         }
         if (account.isDisabledAccount()) {
@@ -71,10 +149,15 @@ public class PasswordProcessor extends BaseProcessor {
             throw new ExcessiveAttemptsException("account is disable due to many time authenticated, try later");
         }
         return PasswordSubject.builder(var)
-                .setOwnRoles(account.getOwnRoles())
+                .setOwnRoles(canonicalRoles(account.getOwnRoles()))
                 .build();
     }
 
+    @Override
+    protected boolean isRoleBasedAuthorized() {
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void authorized(Subject var) throws SurenessAuthorizationException {
@@ -90,4 +173,20 @@ public class PasswordProcessor extends BaseProcessor {
         this.accountProvider = provider;
     }
 
+    public void setPasswordEncoder(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public void setRehashHandler(PasswordRehashHandler rehashHandler) {
+        this.rehashHandler = rehashHandler;
+    }
+
+    public void setAttemptTracker(FailedAttemptTracker attemptTracker) {
+        this.attemptTracker = attemptTracker;
+    }
+
+    public void setCredentialCache(PasswordCredentialCache credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
 }
@@ -0,0 +1,32 @@
+package com.usthe.sureness.provider;
+
+import com.usthe.sureness.util.SurenessFutureUtil;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * non-blocking load account data interface
+ * implement it when account is loaded from reactive database, remote service or other async source,
+ * the processors load account by loadAccountAsync in async checkIn and never block the caller thread
+ * @author agent
+ * @date 20:22 2026-10-18
+ */
+public interface AsyncSurenessAccountProvider extends SurenessAccountProvider {
+
+    /**
+     * load account information asynchronously
+     * @param appId account appId
+     * @return stage of account information, complete with null when no this account
+     */
+    CompletionStage<SurenessAccount> loadAccountAsync(String appId);
+
+    /**
+     * blocking adapter of loadAccountAsync for the sync checkIn
+     * @param appId account appId
+     * @return account information
+     */
+    @Override
+    default SurenessAccount loadAccount(String appId) {
+        return SurenessFutureUtil.join(loadAccountAsync(appId));
+    }
+}
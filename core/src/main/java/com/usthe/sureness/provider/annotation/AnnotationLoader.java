@@ -66,7 +66,7 @@ public class AnnotationLoader implements PathTreeProvider {
                             builder.append(requiresRoles.roles()[i]);
                         }
                     }
-                    String path = requiresRoles.mapping().toLowerCase()
+                    String path = requiresRoles.mapping()
                             + "===" + requiresRoles.method().toLowerCase()
                             + "===[" + builder.toString() + "]";
                     resource.add(path);
@@ -90,7 +90,7 @@ public class AnnotationLoader implements PathTreeProvider {
             for (Method method : clazz.getDeclaredMethods()) {
                 if (method.isAnnotationPresent(WithoutAuth.class)) {
                     WithoutAuth withoutAuth = method.getDeclaredAnnotation(WithoutAuth.class);
-                    String path = withoutAuth.mapping().toLowerCase()
+                    String path = withoutAuth.mapping()
                             + "===" + withoutAuth.method().toLowerCase();
                     resource.add(path);
                     if (logger.isDebugEnabled()) {
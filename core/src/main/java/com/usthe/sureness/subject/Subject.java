@@ -55,6 +55,15 @@ public interface Subject extends Serializable {
      */
     void setSupportRoles(Object var1);
 
+    /**
+     * get the remote host which this request come from
+     *
+     * @return remote host, null when unknown
+     */
+    default Object getRemoteHost() {
+        return null;
+    }
+
     /**
      *
      * Simplify content subject to create subjectSummary
@@ -2,6 +2,7 @@ package com.usthe.sureness.subject;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Subject summary, contains some basic information content
@@ -44,4 +45,12 @@ public interface SubjectSum extends Serializable {
      */
     Object getTargetResource();
 
+    /**
+     * get the claims of the credential, eg: the jwt claims, they may be decoded when first used
+     * @return claims, null when the credential has not claims
+     */
+    default Map<String, Object> getClaims() {
+        return null;
+    }
+
 }
@@ -1,5 +1,8 @@
 package com.usthe.sureness.subject;
 
+import com.usthe.sureness.metrics.SurenessMetrics;
+import com.usthe.sureness.metrics.SurenessMetricsHolder;
+
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -19,12 +22,15 @@ public class SurenessSubjectFactory implements SubjectFactory {
 
     @Override
     public List<Subject> createSubjects(final Object request) {
-        return loadSubjectCreators()
+        long start = SurenessMetricsHolder.startStage();
+        List<Subject> subjects = loadSubjectCreators()
                 .stream()
                 .filter(creator -> creator.canSupportSubject(request))
                 .map(creator -> creator.createSubject(request))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        SurenessMetricsHolder.endStage(SurenessMetrics.Stage.SUBJECT_CREATE, start);
+        return subjects;
     }
 
     @Override
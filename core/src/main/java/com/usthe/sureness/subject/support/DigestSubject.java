@@ -129,6 +129,7 @@ public class DigestSubject implements Subject {
         return httpMethod;
     }
 
+    @Override
     public String getRemoteHost() {
         return remoteHost;
     }
@@ -166,6 +167,7 @@ public class DigestSubject implements Subject {
         public Builder(Subject subject) {
             this.appId = String.valueOf(subject.getPrincipal());
             this.response = String.valueOf(subject.getCredentials());
+            this.remoteHost = subject.getRemoteHost() == null ? null : String.valueOf(subject.getRemoteHost());
             this.ownRoles = (List<String>) subject.getOwnRoles();
             this.targetUri = String.valueOf(subject.getTargetResource());
             this.supportRoles = (List<String>) subject.getSupportRoles();
@@ -2,7 +2,10 @@ package com.usthe.sureness.subject.support;
 
 import com.usthe.sureness.subject.Subject;
 
+import com.usthe.sureness.subject.SubjectSum;
+
 import java.util.List;
+import java.util.Map;
 
 /**
  * the subject support jwt auth
@@ -34,6 +37,9 @@ public class JwtSubject implements Subject {
     /** the Roles which can access this resource above-targetUri **/
     private List<String> supportRoles;
 
+    /** the claims of the verified jwt, decoded lazily **/
+    private Map<String, Object> claims;
+
     private JwtSubject(Builder builder) {
         this.appId = builder.appId;
         this.jwt = builder.jwt;
@@ -42,6 +48,7 @@ public class JwtSubject implements Subject {
         this.ownRoles = builder.ownRoles;
         this.supportRoles = builder.supportRoles;
         this.targetUri = builder.targetUri;
+        this.claims = builder.claims;
     }
 
     @Override
@@ -75,6 +82,7 @@ public class JwtSubject implements Subject {
         this.supportRoles = (List<String>) var1;
     }
 
+    @Override
     public String getRemoteHost() {
         return remoteHost;
     }
@@ -83,6 +91,20 @@ public class JwtSubject implements Subject {
         return userAgent;
     }
 
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    @Override
+    public SubjectSum generateSubjectSummary() {
+        return SurenessSubjectSum.builder()
+                .setTargetResource(targetUri)
+                .setRoles(ownRoles)
+                .setPrincipal(appId)
+                .setClaims(claims)
+                .build();
+    }
+
     public static Builder builder(String jwt) {
         return new Builder(jwt);
     }
@@ -100,6 +122,7 @@ public class JwtSubject implements Subject {
         private List<String> ownRoles;
         private String targetUri;
         private List<String> supportRoles;
+        private Map<String, Object> claims;
 
         public Builder(String jwt) {
             this.jwt = jwt;
@@ -149,6 +172,11 @@ public class JwtSubject implements Subject {
             return this;
         }
 
+        public Builder setClaims(Map<String, Object> claims) {
+            this.claims = claims;
+            return this;
+        }
+
         public JwtSubject build() {
             return new JwtSubject(this);
         }
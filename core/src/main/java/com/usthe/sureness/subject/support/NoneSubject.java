@@ -63,6 +63,7 @@ public class NoneSubject implements Subject {
         this.supportRoles = (List<String>)var1;
     }
 
+    @Override
     public String getRemoteHost() {
         return this.remoteHost;
     }
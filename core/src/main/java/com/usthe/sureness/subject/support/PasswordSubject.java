@@ -66,6 +66,11 @@ public class PasswordSubject implements Subject {
         return supportRoles;
     }
 
+    @Override
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void setSupportRoles(Object var1) {
@@ -98,6 +103,7 @@ public class PasswordSubject implements Subject {
         public Builder(Subject subject) {
             this.appId = String.valueOf(subject.getPrincipal());
             this.password = String.valueOf(subject.getCredentials());
+            this.remoteHost = subject.getRemoteHost() == null ? null : String.valueOf(subject.getRemoteHost());
             this.ownRoles = (List<String>) subject.getOwnRoles();
             this.targetUri = String.valueOf(subject.getTargetResource());
             this.supportRoles = (List<String>) subject.getSupportRoles();
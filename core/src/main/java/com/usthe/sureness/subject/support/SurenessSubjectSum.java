@@ -3,6 +3,7 @@ package com.usthe.sureness.subject.support;
 import com.usthe.sureness.subject.SubjectSum;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * subject summary
@@ -24,12 +25,17 @@ public class SurenessSubjectSum implements SubjectSum {
      * the uri resource which this user want access(url===method)
      */
     private String targetResource;
+    /**
+     * the claims of jwt, null when not jwt
+     */
+    private Map<String, Object> claims;
 
 
     private SurenessSubjectSum(Builder builder) {
         this.principal = builder.principal;
         this.roles = builder.roles;
         this.targetResource = builder.targetResource;
+        this.claims = builder.claims;
     }
 
     @Override
@@ -57,6 +63,11 @@ public class SurenessSubjectSum implements SubjectSum {
         return targetResource;
     }
 
+    @Override
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -65,6 +76,7 @@ public class SurenessSubjectSum implements SubjectSum {
         private String principal;
         private List<String> roles;
         private String targetResource;
+        private Map<String, Object> claims;
 
         public Builder setPrincipal(String principal) {
             this.principal = principal;
@@ -81,6 +93,11 @@ public class SurenessSubjectSum implements SubjectSum {
             return this;
         }
 
+        public Builder setClaims(Map<String, Object> claims) {
+            this.claims = claims;
+            return this;
+        }
+
         public SurenessSubjectSum build() {
             return new SurenessSubjectSum(this);
         }
@@ -5,14 +5,30 @@ import io.jsonwebtoken.security.*;
 import io.jsonwebtoken.security.SignatureException;
 
 import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * json web token util
- * use hmac algorithm, can change the secretKey by setDefaultSecretKey
+ * issue jwt use hmac algorithm, can change the secretKey by setDefaultSecretKey
+ * parse jwt use the key of kid in the key ring, the jwt without kid use the secretKey
  * @author tomsun28
  * @date 16:29 2018/3/8
  */
@@ -35,12 +51,43 @@ public class JsonWebTokenUtil {
     private static final Pattern BASE64_PATTERN =
             Pattern.compile("^([A-Za-z0-9+/_-]+)(=*)$");
 
+    /** the header names used when parse jwt lazily **/
+    private static final Set<String> HEADER_NAMES = new HashSet<>(Arrays.asList("alg", "kid", "zip"));
+
+    /** the claims always read when parse jwt lazily **/
+    private static final Set<String> ALWAYS_READ_CLAIMS = new HashSet<>(Arrays.asList("sub", "exp", "nbf"));
+
+    /** the compact roles claim, the base64url bitset over the role dictionary **/
+    public static final String ROLES_BITS_CLAIM = "rbits";
+
+    /** the role dictionary version of the compact roles claim **/
+    public static final String ROLES_VERSION_CLAIM = "rver";
+
+    private static final String COMPRESS_DEFLATE = "DEF";
+
+    private static final String COMPRESS_GZIP = "GZIP";
+
     /** Encryption and decryption signature **/
-    private static Key secretKey;
+    private static volatile Key secretKey;
+
+    /** the verification keys of kid **/
+    private static volatile JwtKeyRing keyRing;
+
+    /** the parser resolves key by keyRing, it is thread safe **/
+    private static volatile JwtParser jwtParser;
+
+    /** the role dictionary used to issue the compact roles claim, null when not set **/
+    private static volatile RoleDictionary roleDictionary;
+
+    /** version - the role dictionary used to decode the compact roles claim **/
+    private static volatile Map<Integer, RoleDictionary> roleDictionaries = Collections.emptyMap();
 
     static {
         byte[] secretKeyBytes = DatatypeConverter.parseBase64Binary(DEFAULT_SECRET_KEY);
         secretKey = Keys.hmacShaKeyFor(secretKeyBytes);
+        JwtKeyRing defaultKeyRing = new JwtKeyRing();
+        defaultKeyRing.setDefaultKey(secretKey);
+        setKeyRing(defaultKeyRing);
     }
 
 
@@ -58,6 +105,46 @@ public class JsonWebTokenUtil {
     public static String issueJwt(String id, String subject, String issuer, Long period,
                                   List<String> roles, List<String> permissions,
                                   Boolean isRefresh) {
+        JwtBuilder jwtBuilder = newJwtBuilder(id, subject, issuer, period, permissions, isRefresh);
+        if (roles != null) {
+            jwtBuilder.claim("roles", roles);
+        }
+        // compress，optional GZIP
+        jwtBuilder.compressWith(CompressionCodecs.DEFLATE);
+        // set secret key
+        jwtBuilder.signWith(secretKey);
+        return jwtBuilder.compact();
+    }
+
+    /**
+     * issue json web token with the compact roles claim, the roles are the base64url bitset
+     * over the current role dictionary, the token is not compressed.
+     * issue by issueJwt when no role dictionary or a role is not in it
+     * @param id token ID
+     * @param subject user ID
+     * @param issuer issuer
+     * @param period period time(ms)
+     * @param roles Access claim-roles
+     * @param permissions Access claim-permissions
+     * @param isRefresh is a refresh token
+     * @return java.lang.String jwt
+     */
+    public static String issueCompactJwt(String id, String subject, String issuer, Long period,
+                                         List<String> roles, List<String> permissions,
+                                         Boolean isRefresh) {
+        RoleDictionary dictionary = roleDictionary;
+        if (dictionary == null || roles == null || !dictionary.containsAll(roles)) {
+            return issueJwt(id, subject, issuer, period, roles, permissions, isRefresh);
+        }
+        JwtBuilder jwtBuilder = newJwtBuilder(id, subject, issuer, period, permissions, isRefresh);
+        jwtBuilder.claim(ROLES_BITS_CLAIM, dictionary.encode(roles));
+        jwtBuilder.claim(ROLES_VERSION_CLAIM, dictionary.getVersion());
+        jwtBuilder.signWith(secretKey);
+        return jwtBuilder.compact();
+    }
+
+    private static JwtBuilder newJwtBuilder(String id, String subject, String issuer, Long period,
+                                            List<String> permissions, Boolean isRefresh) {
         long currentTimeMillis = System.currentTimeMillis();
         JwtBuilder jwtBuilder = Jwts.builder();
         if (id != null) {
@@ -75,20 +162,66 @@ public class JsonWebTokenUtil {
         if (null != period) {
             jwtBuilder.setExpiration(new Date(currentTimeMillis + period * 1000));
         }
-        if (roles != null) {
-            jwtBuilder.claim("roles", roles);
-        }
         if (permissions != null) {
             jwtBuilder.claim("perms", permissions);
         }
         if (isRefresh != null) {
             jwtBuilder.claim("isRefresh", isRefresh);
         }
-        // compress，optional GZIP
-        jwtBuilder.compressWith(CompressionCodecs.DEFLATE);
-        // set secret key
-        jwtBuilder.signWith(secretKey);
-        return jwtBuilder.compact();
+        return jwtBuilder;
+    }
+
+    /**
+     * decode the compact roles claim by the role dictionary of its version
+     * @param bits the roles bitset claim
+     * @param version the role dictionary version claim, an integer
+     * @return the interned roles
+     * @throws MalformedJwtException when the claim is illegal or not know the dictionary version
+     */
+    public static List<String> decodeCompactRoles(Object bits, Object version) throws MalformedJwtException {
+        // not truncate the version, eg: 1.5 or 4294967297 is not the version 1
+        boolean isIntVersion = version instanceof Integer
+                || version instanceof Long && (Long) version == ((Long) version).intValue();
+        if (!(bits instanceof String) || !isIntVersion) {
+            throw new MalformedJwtException("JWT compact roles claim is illegal");
+        }
+        RoleDictionary dictionary = roleDictionaries.get(((Number) version).intValue());
+        if (dictionary == null) {
+            throw new MalformedJwtException("JWT compact roles use the unknown role dictionary version: " + version);
+        }
+        try {
+            return dictionary.decode((String) bits);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("JWT compact roles claim is illegal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * add the role dictionary, it is used to issue the compact roles claim,
+     * the tokens of the former dictionaries can still be decoded
+     * @param dictionary role dictionary
+     */
+    public static synchronized void setRoleDictionary(RoleDictionary dictionary) {
+        if (dictionary == null) {
+            throw new IllegalArgumentException("JsonWebTokenUtil roleDictionary can not be null");
+        }
+        Map<Integer, RoleDictionary> dictionaries = new HashMap<>(roleDictionaries);
+        dictionaries.put(dictionary.getVersion(), dictionary);
+        roleDictionaries = dictionaries;
+        roleDictionary = dictionary;
+    }
+
+    /**
+     * remove the role dictionary of the version, the tokens of it can not be decoded
+     * @param version role dictionary version
+     */
+    public static synchronized void removeRoleDictionary(int version) {
+        Map<Integer, RoleDictionary> dictionaries = new HashMap<>(roleDictionaries);
+        dictionaries.remove(version);
+        roleDictionaries = dictionaries;
+        if (roleDictionary != null && roleDictionary.getVersion() == version) {
+            roleDictionary = null;
+        }
     }
 
     /**
@@ -124,8 +257,7 @@ public class JsonWebTokenUtil {
     public static Claims parseJwt(String jwt) throws ExpiredJwtException, UnsupportedJwtException,
             MalformedJwtException, SignatureException, IllegalArgumentException {
 
-        return Jwts.parserBuilder().setSigningKey(secretKey).build()
-                .parseClaimsJws(jwt).getBody();
+        return jwtParser.parseClaimsJws(jwt).getBody();
 
         // token ID -- claims.getId()
         // user ID -- claims.getSubject()
@@ -137,11 +269,130 @@ public class JsonWebTokenUtil {
     }
 
     /**
-     * set the jwt secret key
+     * parse the jwt, verify the signature over the raw bytes and read only the requested claims,
+     * the other claims are decoded lazily when they are used
+     * @param jwt json web token
+     * @param claimNames the claim names read when parse, the sub exp nbf are always read
+     * @return lazy claims
+     * @throws ExpiredJwtException token expired
+     * @throws PrematureJwtException token not yet valid
+     * @throws UnsupportedJwtException unSupport TOKEN
+     * @throws MalformedJwtException Parameter format exception
+     * @throws SignatureException signature exception
+     */
+    public static LazyJwtClaims parseJwtLazily(String jwt, Collection<String> claimNames) throws ExpiredJwtException,
+            PrematureJwtException, UnsupportedJwtException, MalformedJwtException, SignatureException {
+        int headerEnd = jwt.indexOf('.');
+        int payloadEnd = jwt.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || jwt.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new MalformedJwtException("JWT strings must contain exactly 2 period characters");
+        }
+        if (payloadEnd == jwt.length() - 1) {
+            throw new UnsupportedJwtException("Unsigned JWT are not supported");
+        }
+        Map<String, Object> header;
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            header = JwtClaimsReader.read(decoder.decode(jwt.substring(0, headerEnd)), HEADER_NAMES);
+            payload = decoder.decode(jwt.substring(headerEnd + 1, payloadEnd));
+            signature = decoder.decode(jwt.substring(payloadEnd + 1));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Unable to read JWT: " + e.getMessage(), e);
+        }
+        Object algorithm = header.get("alg");
+        Object kid = header.get("kid");
+        if (!(algorithm instanceof String) || kid != null && !(kid instanceof String)) {
+            throw new MalformedJwtException("JWT header alg or kid is illegal");
+        }
+        Key key = keyRing.resolveKey((String) algorithm, (String) kid);
+        byte[] content = jwt.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII);
+        if (!JwsSignatureVerifier.verify((String) algorithm, key, content, signature)) {
+            throw new SignatureException("JWT signature does not match locally computed signature.");
+        }
+        payload = decompress(header.get("zip"), payload);
+        Set<String> readNames = new HashSet<>(claimNames);
+        readNames.addAll(ALWAYS_READ_CLAIMS);
+        Map<String, Object> readClaims;
+        try {
+            readClaims = JwtClaimsReader.read(payload, readNames);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Unable to read JWT claims: " + e.getMessage(), e);
+        }
+        Object expiration = readClaims.get("exp");
+        Object notBefore = readClaims.get("nbf");
+        if ((expiration != null && !(expiration instanceof Number))
+                || (notBefore != null && !(notBefore instanceof Number))) {
+            throw new MalformedJwtException("JWT exp or nbf claim is not a number");
+        }
+        long now = System.currentTimeMillis();
+        if (expiration != null && now > ((Number) expiration).longValue() * 1000) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + expiration);
+        }
+        if (notBefore != null && now < ((Number) notBefore).longValue() * 1000) {
+            throw new PrematureJwtException(null, null, "JWT must not be accepted before " + notBefore);
+        }
+        return new LazyJwtClaims(payload, readNames, readClaims);
+    }
+
+    private static byte[] decompress(Object zip, byte[] payload) {
+        if (zip == null) {
+            return payload;
+        }
+        InputStream inputStream;
+        if (COMPRESS_DEFLATE.equals(zip)) {
+            inputStream = new InflaterInputStream(new ByteArrayInputStream(payload));
+        } else if (COMPRESS_GZIP.equals(zip)) {
+            try {
+                inputStream = new GZIPInputStream(new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new MalformedJwtException("Unable to decompress JWT: " + e.getMessage(), e);
+            }
+        } else {
+            throw new UnsupportedJwtException("not support the jwt compression: " + zip);
+        }
+        try (InputStream input = inputStream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to decompress JWT: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * set the jwt secret key, it is also the default key of the key ring
      * @param secretNowKeyValue key value
      */
-    public static void setDefaultSecretKey(String secretNowKeyValue) {
+    public static synchronized void setDefaultSecretKey(String secretNowKeyValue) {
         byte[] secretKeyBytes = DatatypeConverter.parseBase64Binary(secretNowKeyValue);
-        secretKey = Keys.hmacShaKeyFor(secretKeyBytes);
+        Key key = Keys.hmacShaKeyFor(secretKeyBytes);
+        keyRing.setDefaultKey(key);
+        secretKey = key;
+    }
+
+    /**
+     * set the key ring which verifies the jwt, the jwt without kid use its default key
+     * @param jwtKeyRing key ring
+     */
+    public static synchronized void setKeyRing(JwtKeyRing jwtKeyRing) {
+        if (jwtKeyRing == null) {
+            throw new IllegalArgumentException("JsonWebTokenUtil keyRing can not be null");
+        }
+        jwtParser = Jwts.parserBuilder().setSigningKeyResolver(jwtKeyRing).build();
+        keyRing = jwtKeyRing;
+    }
+
+    /**
+     * Get the key ring which verifies the jwt
+     * @return key ring
+     */
+    public static JwtKeyRing getKeyRing() {
+        return keyRing;
     }
 }
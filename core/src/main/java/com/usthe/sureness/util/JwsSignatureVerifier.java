@@ -0,0 +1,148 @@
+package com.usthe.sureness.util;
+
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+
+/**
+ * verify the jws signature over the raw bytes of header.payload by jca,
+ * the key is resolved and checked for the algorithm family by JwtKeyRing
+ * @author agent
+ * @date 21:27 2026-10-18
+ */
+final class JwsSignatureVerifier {
+
+    private static final int MIN_RSA_KEY_BITS = 2048;
+
+    private JwsSignatureVerifier() {}
+
+    /**
+     * verify the signature
+     * @param algorithm jws alg, eg: HS256 RS256 PS256 ES256
+     * @param key verification key
+     * @param content the ascii bytes of base64url(header).base64url(payload)
+     * @param signature signature bytes
+     * @return signature matches return true, else false
+     * @throws UnsupportedJwtException when the algorithm is not supported
+     * @throws SignatureException when the key is weak or verify error
+     */
+    static boolean verify(String algorithm, Key key, byte[] content, byte[] signature) {
+        if (algorithm == null || algorithm.length() != 5) {
+            throw new UnsupportedJwtException("not support the jwt algorithm: " + algorithm);
+        }
+        String family = algorithm.substring(0, 2);
+        String bits = algorithm.substring(2);
+        if (!"256".equals(bits) && !"384".equals(bits) && !"512".equals(bits)) {
+            throw new UnsupportedJwtException("not support the jwt algorithm: " + algorithm);
+        }
+        int digestBits = Integer.parseInt(bits);
+        try {
+            switch (family) {
+                case "HS":
+                    return verifyHmac(digestBits, key, content, signature);
+                case "RS":
+                    checkRsaKey(key);
+                    return verifySignature("SHA" + bits + "withRSA", null, key, content, signature);
+                case "PS":
+                    checkRsaKey(key);
+                    MGF1ParameterSpec mgf1 = new MGF1ParameterSpec("SHA-" + bits);
+                    return verifySignature("RSASSA-PSS", new PSSParameterSpec("SHA-" + bits, "MGF1",
+                            mgf1, digestBits / 8, 1), key, content, signature);
+                case "ES":
+                    int fieldBytes = digestBits == 512 ? 66 : digestBits / 8;
+                    if (signature.length != fieldBytes * 2) {
+                        return false;
+                    }
+                    return verifySignature("SHA" + bits + "withECDSA", null, key, content,
+                            concatToDer(signature, fieldBytes));
+                default:
+                    throw new UnsupportedJwtException("not support the jwt algorithm: " + algorithm);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new SignatureException("verify the jwt signature error: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean verifyHmac(int digestBits, Key key, byte[] content, byte[] signature)
+            throws GeneralSecurityException {
+        byte[] encoded = key.getEncoded();
+        if (encoded == null || encoded.length * 8 < digestBits) {
+            throw new SignatureException("the jwt hmac key is weaker than the algorithm HS" + digestBits);
+        }
+        Mac mac = Mac.getInstance("HmacSHA" + digestBits);
+        mac.init(key);
+        // constant time compare
+        return MessageDigest.isEqual(mac.doFinal(content), signature);
+    }
+
+    private static boolean verifySignature(String jcaName, PSSParameterSpec parameterSpec, Key key,
+                                           byte[] content, byte[] signature) throws GeneralSecurityException {
+        if (!(key instanceof PublicKey)) {
+            throw new SignatureException("the jwt verification key is not a public key");
+        }
+        Signature verifier = Signature.getInstance(jcaName);
+        if (parameterSpec != null) {
+            verifier.setParameter(parameterSpec);
+        }
+        verifier.initVerify((PublicKey) key);
+        verifier.update(content);
+        return verifier.verify(signature);
+    }
+
+    private static void checkRsaKey(Key key) {
+        if (!(key instanceof RSAKey) || ((RSAKey) key).getModulus().bitLength() < MIN_RSA_KEY_BITS) {
+            throw new SignatureException("the jwt rsa key must be at least " + MIN_RSA_KEY_BITS + " bits");
+        }
+    }
+
+    /**
+     * transcode the jws ecdsa signature R|S into the der sequence of jca
+     */
+    private static byte[] concatToDer(byte[] signature, int fieldBytes) {
+        byte[] r = derInteger(signature, 0, fieldBytes);
+        byte[] s = derInteger(signature, fieldBytes, fieldBytes);
+        int length = r.length + s.length;
+        byte[] der;
+        int offset;
+        if (length < 128) {
+            der = new byte[2 + length];
+            der[1] = (byte) length;
+            offset = 2;
+        } else {
+            der = new byte[3 + length];
+            der[1] = (byte) 0x81;
+            der[2] = (byte) length;
+            offset = 3;
+        }
+        der[0] = 0x30;
+        System.arraycopy(r, 0, der, offset, r.length);
+        System.arraycopy(s, 0, der, offset + r.length, s.length);
+        return der;
+    }
+
+    private static byte[] derInteger(byte[] signature, int start, int length) {
+        int index = start;
+        int end = start + length;
+        // strip the leading zeros, keep one byte
+        while (index < end - 1 && signature[index] == 0) {
+            index++;
+        }
+        int valueLength = end - index;
+        boolean negative = (signature[index] & 0x80) != 0;
+        int contentLength = valueLength + (negative ? 1 : 0);
+        byte[] integer = new byte[2 + contentLength];
+        integer[0] = 0x02;
+        integer[1] = (byte) contentLength;
+        System.arraycopy(signature, index, integer, 2 + (negative ? 1 : 0), valueLength);
+        return integer;
+    }
+}
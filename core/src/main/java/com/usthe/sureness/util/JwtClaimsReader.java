@@ -0,0 +1,309 @@
+package com.usthe.sureness.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * streaming reader of the jwt json object, read the values of the requested members
+ * and skip the others without decoding them. the numbers are Long or Double,
+ * the arrays are List, the objects are Map
+ * @author agent
+ * @date 21:27 2026-10-18
+ */
+final class JwtClaimsReader {
+
+    private final byte[] json;
+
+    private int index;
+
+    private JwtClaimsReader(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * read the requested members of the top level json object
+     * @param json utf-8 json object
+     * @param names the member names, null means read all
+     * @return member name - value
+     * @throws IllegalArgumentException when the json is not a legal json object
+     */
+    static Map<String, Object> read(byte[] json, Collection<String> names) {
+        JwtClaimsReader reader = new JwtClaimsReader(json);
+        Map<String, Object> members = names == null ? new LinkedHashMap<>(16) : new HashMap<>(names.size() * 2);
+        reader.skipWhitespace();
+        reader.expect('{');
+        reader.skipWhitespace();
+        if (reader.peek() == '}') {
+            reader.index++;
+        } else {
+            while (true) {
+                reader.skipWhitespace();
+                String name = reader.readString();
+                reader.skipWhitespace();
+                reader.expect(':');
+                reader.skipWhitespace();
+                if (names == null || names.contains(name)) {
+                    members.put(name, reader.readValue());
+                } else {
+                    reader.skipValue();
+                }
+                reader.skipWhitespace();
+                if (reader.peek() == ',') {
+                    reader.index++;
+                    continue;
+                }
+                reader.expect('}');
+                break;
+            }
+        }
+        reader.skipWhitespace();
+        if (reader.index != json.length) {
+            throw new IllegalArgumentException("unexpected content after the json object at " + reader.index);
+        }
+        return members;
+    }
+
+    private Object readValue() {
+        byte ch = peek();
+        switch (ch) {
+            case '"':
+                return readString();
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> members = new LinkedHashMap<>(8);
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            index++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            members.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                index++;
+                continue;
+            }
+            expect('}');
+            return members;
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> values = new ArrayList<>();
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            index++;
+            return values;
+        }
+        while (true) {
+            skipWhitespace();
+            values.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                index++;
+                continue;
+            }
+            expect(']');
+            return values;
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        int start = index;
+        // the string without escape is decoded at once
+        while (index < json.length && json[index] != '"' && json[index] != '\\') {
+            index++;
+        }
+        if (index < json.length && json[index] == '"') {
+            return new String(json, start, index++ - start, StandardCharsets.UTF_8);
+        }
+        StringBuilder builder = new StringBuilder(new String(json, start, index - start, StandardCharsets.UTF_8));
+        while (true) {
+            byte ch = next();
+            if (ch == '"') {
+                return builder.toString();
+            }
+            if (ch != '\\') {
+                int segmentStart = index - 1;
+                while (index < json.length && json[index] != '"' && json[index] != '\\') {
+                    index++;
+                }
+                builder.append(new String(json, segmentStart, index - segmentStart, StandardCharsets.UTF_8));
+                continue;
+            }
+            byte escape = next();
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append((char) escape);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (index + 4 > json.length) {
+                        throw new IllegalArgumentException("illegal unicode escape at " + index);
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(
+                                new String(json, index, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("illegal unicode escape at " + index);
+                    }
+                    index += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("illegal escape at " + index);
+            }
+        }
+    }
+
+    private Object readNumber() {
+        int start = index;
+        boolean decimal = false;
+        while (index < json.length) {
+            byte ch = json[index];
+            if (ch == '.' || ch == 'e' || ch == 'E') {
+                decimal = true;
+            } else if ((ch < '0' || ch > '9') && ch != '-' && ch != '+') {
+                break;
+            }
+            index++;
+        }
+        if (start == index) {
+            throw new IllegalArgumentException("unexpected char at " + index);
+        }
+        String number = new String(json, start, index - start, StandardCharsets.US_ASCII);
+        try {
+            return decimal ? (Object) Double.valueOf(number) : (Object) Long.valueOf(number);
+        } catch (NumberFormatException e) {
+            if (!decimal) {
+                // bigger than long
+                return Double.valueOf(number);
+            }
+            throw new IllegalArgumentException("illegal number at " + start);
+        }
+    }
+
+    private void readLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (next() != literal.charAt(i)) {
+                throw new IllegalArgumentException("illegal literal at " + (index - 1));
+            }
+        }
+    }
+
+    /**
+     * skip the value, the nested object and array are skipped by depth without decoding
+     */
+    private void skipValue() {
+        byte ch = peek();
+        if (ch != '{' && ch != '[') {
+            if (ch == '"') {
+                skipString();
+            } else if (ch == 't' || ch == 'f' || ch == 'n') {
+                readLiteral(ch == 't' ? "true" : ch == 'f' ? "false" : "null");
+            } else {
+                readNumber();
+            }
+            return;
+        }
+        int depth = 0;
+        do {
+            ch = next();
+            if (ch == '"') {
+                index--;
+                skipString();
+            } else if (ch == '{' || ch == '[') {
+                depth++;
+            } else if (ch == '}' || ch == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() {
+        expect('"');
+        while (true) {
+            byte ch = next();
+            if (ch == '"') {
+                return;
+            }
+            if (ch == '\\') {
+                next();
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (index < json.length) {
+            byte ch = json[index];
+            if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+                return;
+            }
+            index++;
+        }
+    }
+
+    private void expect(char ch) {
+        if (next() != ch) {
+            throw new IllegalArgumentException("expect '" + ch + "' at " + (index - 1));
+        }
+    }
+
+    private byte peek() {
+        if (index >= json.length) {
+            throw new IllegalArgumentException("unexpected end of json");
+        }
+        return json[index];
+    }
+
+    private byte next() {
+        byte ch = peek();
+        index++;
+        return ch;
+    }
+}
@@ -0,0 +1,369 @@
+package com.usthe.sureness.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.io.Deserializer;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * the jwt verification keys indexed by kid, resolve the key of the jws header when parse jwt.
+ * support the HMAC(HS256/384/512), RSA(RS256/384/512, PS256/384/512) and EC(ES256/384/512) keys.
+ * the keys are one immutable snapshot swapped by one volatile write, a rotation never has a window
+ * that some keys are missing. the jwt without kid is verified by the default key.
+ * the keys can be loaded from a local JWKS file, which is reloaded when it is modified and a unknown kid comes,
+ * the keys are parsed once when load
+ * @author agent
+ * @date 21:23 2026-10-18
+ */
+public class JwtKeyRing implements SigningKeyResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final long DEFAULT_JWKS_CHECK_INTERVAL = 5000L;
+
+    /** the current keys, replaced as a whole **/
+    private volatile KeySnapshot snapshot = KeySnapshot.EMPTY;
+
+    /** local JWKS file, null when not load **/
+    private volatile Path jwksPath;
+
+    /** last modified time of the loaded JWKS file **/
+    private volatile long jwksLastModified;
+
+    /** next time the JWKS file can be checked for a unknown kid **/
+    private volatile long nextJwksCheckTime;
+
+    /** min interval(ms) of checking the JWKS file for the unknown kids **/
+    private volatile long jwksCheckInterval = DEFAULT_JWKS_CHECK_INTERVAL;
+
+    /**
+     * the jjwt SigningKeyResolver declares the raw JwsHeader, JwsHeader<?> would not override it
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolveKey(header.getAlgorithm(), header.getKeyId());
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Key resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolveKey(header.getAlgorithm(), header.getKeyId());
+    }
+
+    /**
+     * resolve the verification key of the jws header by kid, the jwt without kid use the default key
+     * @param algorithm jws header alg
+     * @param kid jws header kid
+     * @return verification key
+     * @throws SignatureException when no key of the kid or the key not suit the algorithm
+     */
+    Key resolveKey(String algorithm, String kid) throws SignatureException {
+        KeyEntry entry;
+        if (kid == null) {
+            entry = snapshot.defaultKey;
+        } else {
+            entry = snapshot.keys.get(kid);
+            if (entry == null && reloadJwksForUnknownKid()) {
+                entry = snapshot.keys.get(kid);
+            }
+        }
+        if (entry == null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("sureness - JwtKeyRing not found the key of kid: {}", kid);
+            }
+            throw new SignatureException("not found the jwt verification key of kid: " + kid);
+        }
+        if (entry.algorithm != null && !entry.algorithm.equals(algorithm)) {
+            throw new SignatureException("the jwt algorithm " + algorithm + " not match the key of kid: " + kid);
+        }
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+        // not let a token choose the algorithm family of a key, eg: HS256 with a RSA public key
+        boolean suited = signatureAlgorithm.isHmac() ? entry.key instanceof SecretKey
+                : signatureAlgorithm.isRsa() ? entry.key instanceof RSAKey
+                : signatureAlgorithm.isEllipticCurve() && entry.key instanceof ECKey;
+        if (!suited) {
+            throw new SignatureException("the jwt algorithm " + algorithm + " not suit the key of kid: " + kid);
+        }
+        return entry.key;
+    }
+
+    /**
+     * Get the key of the kid
+     * @param kid key id
+     * @return key, null when not exist
+     */
+    public Key getKey(String kid) {
+        KeyEntry entry = snapshot.keys.get(kid);
+        return entry == null ? null : entry.key;
+    }
+
+    /**
+     * Get the default key which verifies the jwt without kid
+     * @return default key, null when not set
+     */
+    public Key getDefaultKey() {
+        KeyEntry entry = snapshot.defaultKey;
+        return entry == null ? null : entry.key;
+    }
+
+    /**
+     * set the default key which verifies the jwt without kid
+     * @param key default key, null means reject the jwt without kid
+     */
+    public synchronized void setDefaultKey(Key key) {
+        KeySnapshot current = snapshot;
+        snapshot = new KeySnapshot(current.keys, key == null ? null : new KeyEntry(key, null));
+    }
+
+    /**
+     * add or replace the key of the kid
+     * @param kid key id
+     * @param key the secret key or public key
+     */
+    public synchronized void putKey(String kid, Key key) {
+        if (kid == null || key == null) {
+            throw new IllegalArgumentException("JwtKeyRing kid and key can not be null");
+        }
+        KeySnapshot current = snapshot;
+        Map<String, KeyEntry> keys = new HashMap<>(current.keys);
+        keys.put(kid, new KeyEntry(key, null));
+        snapshot = new KeySnapshot(keys, current.defaultKey);
+    }
+
+    /**
+     * remove the key of the kid
+     * @param kid key id
+     */
+    public synchronized void removeKey(String kid) {
+        KeySnapshot current = snapshot;
+        if (!current.keys.containsKey(kid)) {
+            return;
+        }
+        Map<String, KeyEntry> keys = new HashMap<>(current.keys);
+        keys.remove(kid);
+        snapshot = new KeySnapshot(keys, current.defaultKey);
+    }
+
+    /**
+     * replace all keys of kid at once, the default key is kept
+     * @param keys kid - key
+     */
+    public synchronized void setKeys(Map<String, Key> keys) {
+        Map<String, KeyEntry> entries = new HashMap<>(keys.size() * 2);
+        keys.forEach((kid, key) -> entries.put(kid, new KeyEntry(key, null)));
+        snapshot = new KeySnapshot(entries, snapshot.defaultKey);
+    }
+
+    /**
+     * load the keys of the local JWKS file, replace all keys of kid at once, the default key is kept.
+     * the file is reloaded when it is modified and a unknown kid comes, or call reloadJwks
+     * @param path JWKS file path
+     * @throws IOException when read the file error
+     * @throws IllegalArgumentException when the file content is illegal
+     */
+    public synchronized void loadJwks(Path path) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        Map<String, KeyEntry> keys = parseJwks(Files.readAllBytes(path));
+        snapshot = new KeySnapshot(keys, snapshot.defaultKey);
+        jwksPath = path;
+        jwksLastModified = lastModified;
+        if (logger.isDebugEnabled()) {
+            logger.debug("sureness - JwtKeyRing load {} keys from JWKS file: {}", keys.size(), path);
+        }
+    }
+
+    /**
+     * reload the loaded JWKS file when it is modified, the current keys are kept when reload error
+     * @return reload return true, else false
+     */
+    public synchronized boolean reloadJwks() {
+        Path path = jwksPath;
+        if (path == null) {
+            return false;
+        }
+        try {
+            if (Files.getLastModifiedTime(path).toMillis() == jwksLastModified) {
+                return false;
+            }
+            loadJwks(path);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("sureness - JwtKeyRing reload JWKS file: {} error, keep the current keys", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * set the min interval of checking the JWKS file when a unknown kid comes
+     * @param jwksCheckInterval interval(ms), 0 means check every time
+     */
+    public void setJwksCheckInterval(long jwksCheckInterval) {
+        this.jwksCheckInterval = jwksCheckInterval;
+    }
+
+    private boolean reloadJwksForUnknownKid() {
+        if (jwksPath == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextJwksCheckTime) {
+            return false;
+        }
+        nextJwksCheckTime = now + jwksCheckInterval;
+        return reloadJwks();
+    }
+
+    /**
+     * parse the JWKS json: {"keys":[{"kty":"RSA","kid":"key1","n":"...","e":"AQAB"}]},
+     * the key without kid or for encryption is ignored
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, KeyEntry> parseJwks(byte[] content) {
+        Object keys;
+        try {
+            keys = JwksDeserializer.INSTANCE.deserialize(content).get("keys");
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("JWKS content is not a legal json: " + e.getMessage(), e);
+        }
+        if (!(keys instanceof List)) {
+            throw new IllegalArgumentException("JWKS content has no keys array");
+        }
+        Map<String, KeyEntry> entries = new HashMap<>(((List<?>) keys).size() * 2);
+        for (Object item : (List<?>) keys) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("JWKS key is not a json object");
+            }
+            Map<String, Object> jwk = (Map<String, Object>) item;
+            String kid = (String) jwk.get("kid");
+            if (kid == null || "enc".equals(jwk.get("use"))) {
+                continue;
+            }
+            Key key = parseJwk(jwk);
+            if (key != null) {
+                entries.put(kid, new KeyEntry(key, (String) jwk.get("alg")));
+            }
+        }
+        return entries;
+    }
+
+    private static Key parseJwk(Map<String, Object> jwk) {
+        String kty = (String) jwk.get("kty");
+        try {
+            if ("RSA".equals(kty)) {
+                RSAPublicKeySpec keySpec = new RSAPublicKeySpec(readBigInteger(jwk, "n"), readBigInteger(jwk, "e"));
+                return KeyFactory.getInstance("RSA").generatePublic(keySpec);
+            } else if ("EC".equals(kty)) {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curveName((String) jwk.get("crv"))));
+                ECPoint point = new ECPoint(readBigInteger(jwk, "x"), readBigInteger(jwk, "y"));
+                ECPublicKeySpec keySpec = new ECPublicKeySpec(point,
+                        parameters.getParameterSpec(ECParameterSpec.class));
+                return KeyFactory.getInstance("EC").generatePublic(keySpec);
+            } else if ("oct".equals(kty)) {
+                return Keys.hmacShaKeyFor(readBytes(jwk, "k"));
+            }
+        } catch (GeneralSecurityException | RuntimeException e) {
+            throw new IllegalArgumentException("JWKS key: " + jwk.get("kid") + " is illegal: " + e.getMessage(), e);
+        }
+        logger.warn("sureness - JwtKeyRing not support the JWKS key type: {}, kid: {}", kty, jwk.get("kid"));
+        return null;
+    }
+
+    private static String curveName(String crv) {
+        if ("P-256".equals(crv)) {
+            return "secp256r1";
+        } else if ("P-384".equals(crv)) {
+            return "secp384r1";
+        } else if ("P-521".equals(crv)) {
+            return "secp521r1";
+        }
+        throw new IllegalArgumentException("not support the curve: " + crv);
+    }
+
+    private static BigInteger readBigInteger(Map<String, Object> jwk, String name) {
+        return new BigInteger(1, readBytes(jwk, name));
+    }
+
+    private static byte[] readBytes(Map<String, Object> jwk, String name) {
+        Object value = jwk.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("missing the parameter: " + name);
+        }
+        return Base64.getUrlDecoder().decode((String) value);
+    }
+
+    /**
+     * the json deserializer of jjwt runtime, load when the first JWKS is parsed
+     */
+    private static class JwksDeserializer {
+
+        @SuppressWarnings("unchecked")
+        private static final Deserializer<Map<String, ?>> INSTANCE = load();
+
+        @SuppressWarnings("rawtypes")
+        private static Deserializer load() {
+            Iterator<Deserializer> iterator = ServiceLoader.load(Deserializer.class).iterator();
+            if (!iterator.hasNext()) {
+                throw new IllegalStateException("not found the jjwt json deserializer, add jjwt-jackson or jjwt-gson");
+            }
+            return iterator.next();
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private final Key key;
+
+        /** the alg of JWKS key, null means not limit **/
+        private final String algorithm;
+
+        private KeyEntry(Key key, String algorithm) {
+            this.key = key;
+            this.algorithm = algorithm;
+        }
+    }
+
+    private static final class KeySnapshot {
+
+        private static final KeySnapshot EMPTY = new KeySnapshot(Collections.emptyMap(), null);
+
+        private final Map<String, KeyEntry> keys;
+
+        private final KeyEntry defaultKey;
+
+        private KeySnapshot(Map<String, KeyEntry> keys, KeyEntry defaultKey) {
+            this.keys = keys;
+            this.defaultKey = defaultKey;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.usthe.sureness.util;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * the claims of a verified jwt, the requested claims are read when parse,
+ * the others are decoded from the claims json when they are first used
+ * @author agent
+ * @date 21:27 2026-10-18
+ */
+public class LazyJwtClaims extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SUBJECT = "sub";
+
+    /** the claims json **/
+    private final byte[] payload;
+
+    /** the names of the read claims **/
+    private final Set<String> readNames;
+
+    /** the read claims, a read name not in it means the jwt has not this claim **/
+    private final Map<String, Object> readClaims;
+
+    /** all claims, decoded when first used **/
+    private transient volatile Map<String, Object> claims;
+
+    LazyJwtClaims(byte[] payload, Set<String> readNames, Map<String, Object> readClaims) {
+        this.payload = payload;
+        this.readNames = readNames;
+        this.readClaims = readClaims;
+    }
+
+    /**
+     * Get the subject claim, it is always read
+     * @return subject, null when not exist
+     */
+    public String getSubject() {
+        Object subject = readClaims.get(SUBJECT);
+        return subject == null ? null : String.valueOf(subject);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (readNames.contains(key)) {
+            return readClaims.get(key);
+        }
+        return decodedClaims().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (readNames.contains(key)) {
+            return readClaims.containsKey(key);
+        }
+        return decodedClaims().containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return decodedClaims().entrySet();
+    }
+
+    private Map<String, Object> decodedClaims() {
+        Map<String, Object> decoded = claims;
+        if (decoded == null) {
+            decoded = Collections.unmodifiableMap(JwtClaimsReader.read(payload, null));
+            claims = decoded;
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,146 @@
+package com.usthe.sureness.util;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * the versioned role dictionary shared by the jwt issuer and verifier,
+ * the roles of a jwt are encoded as a base64url bitset of the role indexes in the dictionary.
+ * a new version should only append roles, so the tokens of the old version still decode the same roles.
+ * the decoded role lists are interned, the same bitset decodes to the same list instance,
+ * only the canonical bitset which encode gives is accepted, so the same roles always decode to the same instance
+ * @author agent
+ * @date 21:29 2026-10-18
+ */
+public class RoleDictionary {
+
+    private static final int DEFAULT_MAX_INTERNED = 10000;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** dictionary version **/
+    private final int version;
+
+    /** the role of each index **/
+    private final List<String> roles;
+
+    /** role - index **/
+    private final Map<String, Integer> indexes;
+
+    /** bitset - the interned role list **/
+    private final Map<String, List<String>> internedRoles;
+
+    /** max interned role list num **/
+    private final int maxInterned;
+
+    /**
+     * @param version dictionary version
+     * @param roles the roles, the list index is the bit index
+     */
+    public RoleDictionary(int version, List<String> roles) {
+        this(version, roles, DEFAULT_MAX_INTERNED);
+    }
+
+    /**
+     * @param version dictionary version
+     * @param roles the roles, the list index is the bit index
+     * @param maxInterned max interned role list num
+     */
+    public RoleDictionary(int version, List<String> roles, int maxInterned) {
+        this.version = version;
+        this.roles = Collections.unmodifiableList(new ArrayList<>(roles));
+        this.indexes = new HashMap<>(roles.size() * 2);
+        for (int index = 0; index < roles.size(); index++) {
+            if (this.indexes.put(roles.get(index), index) != null) {
+                throw new IllegalArgumentException("RoleDictionary has duplicate role: " + roles.get(index));
+            }
+        }
+        this.maxInterned = maxInterned;
+        this.internedRoles = new ConcurrentHashMap<>(64);
+    }
+
+    /**
+     * Get the dictionary version
+     * @return version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Determine whether all roles are in the dictionary
+     * @param roleList roles
+     * @return all in return true, else false
+     */
+    public boolean containsAll(Collection<String> roleList) {
+        return indexes.keySet().containsAll(roleList);
+    }
+
+    /**
+     * encode the roles into the base64url bitset
+     * @param roleList roles
+     * @return base64url bitset
+     * @throws IllegalArgumentException when a role is not in the dictionary
+     */
+    public String encode(Collection<String> roleList) {
+        byte[] bits = new byte[(roles.size() + 7) >>> 3];
+        int length = 0;
+        for (String role : roleList) {
+            Integer index = indexes.get(role);
+            if (index == null) {
+                throw new IllegalArgumentException("RoleDictionary version " + version + " has not role: " + role);
+            }
+            bits[index >>> 3] |= 1 << (index & 7);
+            length = Math.max(length, (index >>> 3) + 1);
+        }
+        // the trailing zero bytes are not encoded
+        byte[] trimmed = new byte[length];
+        System.arraycopy(bits, 0, trimmed, 0, length);
+        return ENCODER.encodeToString(trimmed);
+    }
+
+    /**
+     * decode the base64url bitset into the roles
+     * @param bitset base64url bitset
+     * @return interned unmodifiable role list
+     * @throws IllegalArgumentException when the bitset is illegal, not canonical or has a bit out of the dictionary
+     */
+    public List<String> decode(String bitset) {
+        List<String> interned = internedRoles.get(bitset);
+        if (interned != null) {
+            return interned;
+        }
+        byte[] bits = DECODER.decode(bitset);
+        // eg: AQA has a trailing zero byte, AR and AQ== are other encodings of AQ
+        if (bits.length > 0 && bits[bits.length - 1] == 0 || !ENCODER.encodeToString(bits).equals(bitset)) {
+            throw new IllegalArgumentException("RoleDictionary bitset is not canonical: " + bitset);
+        }
+        List<String> roleList = new ArrayList<>();
+        for (int byteIndex = 0; byteIndex < bits.length; byteIndex++) {
+            int value = bits[byteIndex] & 0xff;
+            while (value != 0) {
+                int index = (byteIndex << 3) + Integer.numberOfTrailingZeros(value);
+                if (index >= roles.size()) {
+                    throw new IllegalArgumentException("RoleDictionary version " + version
+                            + " has not the role index: " + index);
+                }
+                roleList.add(roles.get(index));
+                value &= value - 1;
+            }
+        }
+        List<String> decoded = Collections.unmodifiableList(roleList);
+        if (internedRoles.size() >= maxInterned) {
+            return decoded;
+        }
+        interned = internedRoles.putIfAbsent(bitset, decoded);
+        return interned == null ? decoded : interned;
+    }
+}
@@ -7,9 +7,13 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * learn from shiro ThreadContext
+ * the subject has a dedicated thread local slot, the resources map is only created when bind other key,
+ * so the common case costs no map per thread, friendly to many threads such as virtual threads.
+ * the context is not inherited by child threads, use runWithSubject to carry the subject explicitly
  * @author from shiro
  * @date 23:01 2019-01-09
  */
@@ -19,16 +23,15 @@ public class SurenessContextHolder {
 
     public static final String SUBJECT_KEY = "SUBJECT_KEY";
 
-    private static final ThreadLocal<Map<Object, Object>> RESOURCES = InheritableThreadLocal
-            .withInitial(() -> new HashMap<>(8));
+    private static final ThreadLocal<SubjectSum> SUBJECT = new ThreadLocal<>();
+
+    private static final ThreadLocal<Map<Object, Object>> RESOURCES = new ThreadLocal<>();
 
     /**
      * Called before the thread ends
      */
     public static void clear() {
-        if (RESOURCES.get() != null) {
-            RESOURCES.get().clear();
-        }
+        SUBJECT.remove();
         RESOURCES.remove();
     }
 
@@ -68,15 +71,66 @@ public class SurenessContextHolder {
         return (SubjectSum) internalGet(SUBJECT_KEY);
     }
 
+    /**
+     * run the task with the subject bound in current thread,
+     * the previous bound subject is restored after the task, even it throws exception.
+     * use it in the task submitted to other thread, virtual thread or structured concurrency scope
+     * @param subjectSum subject summary
+     * @param runnable task
+     */
+    public static void runWithSubject(SubjectSum subjectSum, Runnable runnable) {
+        SubjectSum previous = SUBJECT.get();
+        bindSubject(subjectSum);
+        try {
+            runnable.run();
+        } finally {
+            restoreSubject(previous);
+        }
+    }
+
+    /**
+     * call the task with the subject bound in current thread, the previous bound subject is restored after the task
+     * @param subjectSum subject summary
+     * @param supplier task
+     * @param <T> result type
+     * @return task result
+     */
+    public static <T> T supplyWithSubject(SubjectSum subjectSum, Supplier<T> supplier) {
+        SubjectSum previous = SUBJECT.get();
+        bindSubject(subjectSum);
+        try {
+            return supplier.get();
+        } finally {
+            restoreSubject(previous);
+        }
+    }
+
+    private static void restoreSubject(SubjectSum previous) {
+        if (previous == null) {
+            SUBJECT.remove();
+        } else {
+            SUBJECT.set(previous);
+        }
+    }
 
     private static void internalPut(Object key, Object value) {
         if (key == null) {
             throw new NullPointerException("key cannot be null");
         } else if (value == null) {
             internalRemove(key);
+        } else if (SUBJECT_KEY.equals(key)) {
+            if (!(value instanceof SubjectSum)) {
+                throw new IllegalArgumentException("the value of " + SUBJECT_KEY + " must be a SubjectSum, but is "
+                        + value.getClass().getName());
+            }
+            SUBJECT.set((SubjectSum) value);
         } else {
-            ensureResourcesInitialized();
-            RESOURCES.get().put(key, value);
+            Map<Object, Object> perThreadResources = RESOURCES.get();
+            if (perThreadResources == null) {
+                perThreadResources = new HashMap<>(4);
+                RESOURCES.set(perThreadResources);
+            }
+            perThreadResources.put(key, value);
         }
     }
 
@@ -84,20 +138,24 @@ public class SurenessContextHolder {
         if (logger.isTraceEnabled()) {
             logger.trace("get() - in thread [{}]", Thread.currentThread().getName());
         }
+        if (SUBJECT_KEY.equals(key)) {
+            return SUBJECT.get();
+        }
         Map<Object, Object> perThreadResources = RESOURCES.get();
         return perThreadResources != null ? perThreadResources.get(key) : null;
     }
 
     private static void internalRemove(Object key) {
+        if (SUBJECT_KEY.equals(key)) {
+            SUBJECT.remove();
+            return;
+        }
         Map<Object, Object> perThreadResources = RESOURCES.get();
         if (perThreadResources != null) {
             perThreadResources.remove(key);
-        }
-    }
-
-    private static void ensureResourcesInitialized() {
-        if (RESOURCES.get() == null) {
-            RESOURCES.set(new HashMap<>(8));
+            if (perThreadResources.isEmpty()) {
+                RESOURCES.remove();
+            }
         }
     }
 }
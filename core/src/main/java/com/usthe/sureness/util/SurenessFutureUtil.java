@@ -0,0 +1,61 @@
+package com.usthe.sureness.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * CompletionStage util for the async auth api, jdk8 compatible
+ * @author agent
+ * @date 20:22 2026-10-18
+ */
+public class SurenessFutureUtil {
+
+    /**
+     * create an exceptionally completed future
+     * @param throwable exception
+     * @param <T> result type
+     * @return failed future
+     */
+    public static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    /**
+     * unwrap the CompletionException or ExecutionException thrown by the stage chain
+     * @param throwable exception
+     * @return the original exception
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * blocking wait the stage result, rethrow the original runtime exception
+     * @param stage completion stage
+     * @param <T> result type
+     * @return result
+     */
+    public static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
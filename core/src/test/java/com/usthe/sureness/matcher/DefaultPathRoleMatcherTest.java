@@ -8,9 +8,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.easymock.EasyMock.*;
@@ -66,6 +68,17 @@ public class DefaultPathRoleMatcherTest {
         pathRoleMatcher.matchRole(subject);
         assertNotNull(subject.getSupportRoles());
         assertTrue((subject.getSupportRoles() instanceof List));
+        // the support roles of a rule are one instance, the authorization decision cache uses it as key
+        Subject otherSubject = PasswordSubject.builder("lili", "123")
+                .setTargetResource("/api/v2/host===get").build();
+        pathRoleMatcher.matchRole(otherSubject);
+        assertSame(subject.getSupportRoles(), otherSubject.getSupportRoles());
+        List<Object> supportRolesList = pathRoleMatcher.matchRoles(Arrays.asList("/api/v2/host===get",
+                "/api/v2/not/exist===get", "/api/v2/host===get"));
+        assertEquals(3, supportRolesList.size());
+        assertSame(subject.getSupportRoles(), supportRolesList.get(0));
+        assertNull(supportRolesList.get(1));
+        assertSame(subject.getSupportRoles(), supportRolesList.get(2));
     }
 
     @Test
@@ -109,4 +122,46 @@ public class DefaultPathRoleMatcherTest {
         pathRoleMatcher.buildTree();
         verify(provider);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rebuildTreeSnapshot() {
+        DefaultPathRoleMatcher matcher = new DefaultPathRoleMatcher();
+        PathTreeProvider provider = createNiceMock(PathTreeProvider.class);
+        Set<String> newPaths = new HashSet<>(paths);
+        newPaths.add("/api/v5/host===get===[role5]");
+        Set<String> newExcludePaths = new HashSet<>(excludePaths);
+        newExcludePaths.remove("/api/v2/detail===put");
+        expect(provider.providePathData()).andReturn(paths).andReturn(newPaths).andThrow(new SurenessLoadDataException("error"));
+        expect(provider.provideExcludedResource()).andReturn(excludePaths).andReturn(newExcludePaths);
+        replay(provider);
+        matcher.setPathTreeProvider(provider);
+        AtomicInteger publishNum = new AtomicInteger();
+        matcher.addPublishListener(publishNum::incrementAndGet);
+        matcher.buildTree();
+        assertEquals(1, publishNum.get());
+        Subject subject = NoneSubject.builder().setTargetUri("/api/v2/detail===put").build();
+        assertTrue(matcher.isExcludedResource(subject));
+        Object oldRoles = matcher.matchRoles(Arrays.asList("/api/v2/host===post")).get(0);
+        matcher.rebuildTree();
+        assertEquals(2, publishNum.get());
+        assertFalse(matcher.isExcludedResource(subject));
+        // the matched roles are the instances of one snapshot, the decisions cached for the old trees never hit
+        Object newRoles = matcher.matchRoles(Arrays.asList("/api/v2/host===post")).get(0);
+        assertEquals(oldRoles, newRoles);
+        assertNotSame(oldRoles, newRoles);
+        subject = NoneSubject.builder().setTargetUri("/api/v5/host===get").build();
+        matcher.matchRole(subject);
+        assertEquals("role5", ((List<?>) subject.getSupportRoles()).get(0));
+        // the failed build not expose the intermediate trees, still match the current ones
+        try {
+            matcher.buildTree();
+            fail("build tree should throw SurenessLoadDataException");
+        } catch (SurenessLoadDataException e) {
+            subject = NoneSubject.builder().setTargetUri("/api/v5/host===get").build();
+            matcher.matchRole(subject);
+            assertEquals("role5", ((List<?>) subject.getSupportRoles()).get(0));
+            assertEquals(2, publishNum.get());
+        }
+        verify(provider);
+    }
+}
@@ -0,0 +1,66 @@
+package com.usthe.sureness.matcher.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * first segment filter test
+ * @author agent
+ * @date 21:05 2026-10-18
+ */
+public class FirstSegmentFilterTest {
+
+    @Test
+    public void mightContain() {
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/host===get===exclude");
+        paths.add("/Book/*===*===exclude");
+        paths.add("/===get===exclude");
+        FirstSegmentFilter filter = FirstSegmentFilter.build(paths);
+        Assert.assertTrue(filter.mightContain("/api/v2/host===get"));
+        Assert.assertTrue(filter.mightContain("//API===put"));
+        Assert.assertTrue(filter.mightContain("/book===get"));
+        Assert.assertTrue(filter.mightContain("/===get"));
+        Assert.assertTrue(filter.mightContain("//===get"));
+        Assert.assertTrue(filter.mightContain("/äpi/v2===get"));
+        Assert.assertFalse(filter.mightContain("/apis/v2/host===get"));
+        Assert.assertFalse(filter.mightContain("/ap===get"));
+        Assert.assertFalse(filter.mightContain("api/v2/host===get"));
+        Assert.assertFalse(filter.mightContain(null));
+        Assert.assertFalse(FirstSegmentFilter.EMPTY.mightContain("/api===get"));
+        Assert.assertTrue(FirstSegmentFilter.ALL.mightContain("/api===get"));
+
+        paths.add("/{id:[0-9]+}/detail===get===exclude");
+        Assert.assertSame(FirstSegmentFilter.ALL, FirstSegmentFilter.build(paths));
+        Assert.assertSame(FirstSegmentFilter.ALL,
+                FirstSegmentFilter.build(Collections.singleton("/**===get===exclude")));
+        Assert.assertFalse(FirstSegmentFilter.build(Collections.emptySet()).mightContain("/api===get"));
+    }
+
+    @Test
+    public void notRejectTreeMatch() {
+        String[] ruleSegments = {"api", "v1", "host", "*", "**", "{id:[0-9]+}", ""};
+        String[] pathSegments = {"api", "API", "v1", "host", "12", "", "x"};
+        RandomPaths random = new RandomPaths(20201130L);
+        for (int round = 0; round < 100; round++) {
+            Set<String> paths = new HashSet<>();
+            for (int i = 0; i < 10; i++) {
+                // mostly literal segments
+                paths.add(random.path(ruleSegments, 3, 3) + "===get===exclude");
+            }
+            TirePathTree tree = new TirePathTree();
+            tree.buildTree(paths);
+            FirstSegmentFilter filter = FirstSegmentFilter.build(paths);
+            for (int i = 0; i < 300; i++) {
+                String target = random.path(pathSegments, 4) + "===get";
+                if (tree.searchPathFilterRoles(target) != null) {
+                    Assert.assertTrue(paths + " " + target, filter.mightContain(target));
+                }
+            }
+        }
+    }
+}
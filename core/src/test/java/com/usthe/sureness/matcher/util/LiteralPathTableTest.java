@@ -0,0 +1,75 @@
+package com.usthe.sureness.matcher.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * literal path table test
+ * @author agent
+ * @date 21:03 2026-10-18
+ */
+public class LiteralPathTableTest {
+
+    @Test
+    public void searchPathFilterRoles() {
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/host===get===[role1]");
+        paths.add("/API/v2//host/===*===[role2]");
+        paths.add("/===get===[role3]");
+        paths.add("/api/v2/*===post===[role4]");
+        paths.add("/api/{id}===get===[role5]");
+        Set<String> treePaths = new HashSet<>();
+        LiteralPathTable table = LiteralPathTable.build(paths, treePaths);
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals(2, treePaths.size());
+        Assert.assertEquals("[role1]", table.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role1]", table.searchPathFilterRoles("//Api/v2/host/===GET"));
+        Assert.assertEquals("[role2]", table.searchPathFilterRoles("/api/v2/host===post"));
+        Assert.assertEquals("[role3]", table.searchPathFilterRoles("/===get"));
+        Assert.assertNull(table.searchPathFilterRoles("/===post"));
+        Assert.assertNull(table.searchPathFilterRoles("/api/v2/host==="));
+        Assert.assertNull(table.searchPathFilterRoles("/api/v2/host===get===get"));
+        Assert.assertNull(table.searchPathFilterRoles("api/v2/host===get"));
+        Assert.assertEquals("/api/v2/host===*===[role2]", table.explain("/api/v2/host", "PUT").getMatchedRule());
+        Assert.assertEquals("/api/v2/host===get===[role1]", table.explain("/api/v2/host", "get").getMatchedRule());
+        Assert.assertNull(table.explain("/api/v2/tom", "get"));
+    }
+
+    @Test
+    public void sameAsTreeSearch() {
+        String[] ruleSegments = {"api", "v1", "host", "*", "**", "{id:[0-9]+}"};
+        String[] pathSegments = {"api", "API", "v1", "host", "12", "", "x"};
+        String[] methods = {"get", "post", "*", "propfind"};
+        String[] requestMethods = {"get", "POST", "put", "propfind"};
+        RandomPaths random = new RandomPaths(20201129L);
+        for (int round = 0; round < 100; round++) {
+            // not duplicate path and method, the winner of the duplicate ones depends on the set order
+            Map<String, String> rules = new HashMap<>();
+            for (int i = 0; i < 30; i++) {
+                // more literal resources
+                rules.putIfAbsent(random.path(ruleSegments, 3, 4) + "===" + random.pick(methods), "[role" + i + "]");
+            }
+            Set<String> paths = new HashSet<>();
+            rules.forEach((path, roles) -> paths.add(path + "===" + roles));
+            TirePathTree tree = new TirePathTree();
+            tree.buildTree(paths);
+            Set<String> treePaths = new HashSet<>();
+            LiteralPathTable table = LiteralPathTable.build(paths, treePaths);
+            TirePathTree wildcardTree = new TirePathTree();
+            wildcardTree.buildTree(treePaths);
+            for (int i = 0; i < 300; i++) {
+                String target = random.target(pathSegments, 5, requestMethods);
+                String roles = table.searchPathFilterRoles(target);
+                if (roles == null) {
+                    roles = wildcardTree.searchPathFilterRoles(target);
+                }
+                Assert.assertEquals(paths + " " + target, tree.searchPathFilterRoles(target), roles);
+            }
+        }
+    }
+}
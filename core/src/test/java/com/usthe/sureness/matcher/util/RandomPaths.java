@@ -0,0 +1,76 @@
+package com.usthe.sureness.matcher.util;
+
+import java.util.Random;
+
+/**
+ * random rule paths and request targets for the differential tests of path matchers,
+ * the same seed gives the same paths
+ * @author agent
+ * @date 21:55 2026-10-18
+ */
+final class RandomPaths {
+
+    private final Random random;
+
+    RandomPaths(long seed) {
+        this.random = new Random(seed);
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * @param segments the segments to pick
+     * @param maxLength max segment num
+     * @return path of 1 to maxLength segments, eg: /api/v1/{id:[0-9]+}
+     */
+    String path(String[] segments, int maxLength) {
+        return path("", segments, segments.length, 1, maxLength);
+    }
+
+    /**
+     * @param segments the segments to pick
+     * @param preferredNum half of the segments are picked from the first preferredNum segments, eg: the literal ones
+     * @param maxLength max segment num
+     * @return path of 1 to maxLength segments
+     */
+    String path(String[] segments, int preferredNum, int maxLength) {
+        return path("", segments, preferredNum, 1, maxLength);
+    }
+
+    /**
+     * @param prefix path prefix, eg: /tenant1
+     * @param segments the segments to pick
+     * @param minLength min segment num after prefix
+     * @param maxLength max segment num after prefix
+     * @return path
+     */
+    String path(String prefix, String[] segments, int minLength, int maxLength) {
+        return path(prefix, segments, segments.length, minLength, maxLength);
+    }
+
+    /**
+     * @param segments the segments to pick
+     * @param maxLength max segment num
+     * @param methods the methods to pick
+     * @return target eg: /api/v1/12===get
+     */
+    String target(String[] segments, int maxLength, String[] methods) {
+        return path(segments, maxLength) + "===" + pick(methods);
+    }
+
+    private String path(String prefix, String[] segments, int preferredNum, int minLength, int maxLength) {
+        StringBuilder path = new StringBuilder(prefix);
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        for (int index = 0; index < length; index++) {
+            int bound = random.nextBoolean() ? preferredNum : segments.length;
+            path.append('/').append(segments[random.nextInt(bound)]);
+        }
+        return path.toString();
+    }
+}
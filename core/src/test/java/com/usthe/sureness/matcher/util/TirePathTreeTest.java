@@ -6,7 +6,10 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**  path tree util test
@@ -99,4 +102,407 @@ public class TirePathTreeTest {
         Assert.assertEquals("[role11]", root.searchPathFilterRoles("/swagger===get"));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void explain() {
+        buildTree();
+        MatchTrace trace = root.explain("/api/demo/book/tom/good/egg", "GET");
+        Assert.assertEquals("[role2]", trace.getMatchedRoles());
+        Assert.assertEquals("/api/demo/book/**/egg===get===[role2]", trace.getMatchedRule());
+        Assert.assertTrue(trace.getBacktrackCount() > 0);
+        Assert.assertEquals("/api <- api", trace.getVisitedNodes().get(0));
+        trace = root.explain("/api/v2/host", "post");
+        Assert.assertEquals("/api/v2/host===post===[role1]", trace.getMatchedRule());
+        trace = root.explain("/api/v6/book/ha/good", "put");
+        Assert.assertFalse(trace.isMatched());
+        Assert.assertNull(trace.getMatchedRoles());
+    }
+
+    @Test
+    public void probeCounts() {
+        buildTree();
+        root.setProbeSampleInterval(1);
+        root.searchPathFilterRoles("/api/mo/tom/hello/day/day===get");
+        root.setProbeSampleInterval(0);
+        root.searchPathFilterRoles("/api/mo/tom/hello/day/day===get");
+        Assert.assertEquals(Long.valueOf(1), root.getProbeCounts().get("/api"));
+        Assert.assertTrue(root.getProbeCounts().get("/api/mo/**") > 1);
+        root.resetProbeCounts();
+        Assert.assertTrue(root.getProbeCounts().isEmpty());
+    }
+
+    @Test
+    public void consecutiveMatchAll() {
+        TirePathTree tree = new TirePathTree();
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/**/v1/**/v1/**/v1/**/detail===get===[role1]");
+        paths.add("/api/**/v1/**/v1/**/v1/**/detail/**/end===get===[role2]");
+        paths.add("/api/**/v1/*/**/v1/**/v1/**/*/**/detail/**/v1===get===[role3]");
+        tree.buildTree(paths);
+        StringBuilder path = new StringBuilder("/api");
+        for (int i = 0; i < 25; i++) {
+            path.append("/v1");
+        }
+        // not match, exponential backtracking without memo
+        MatchTrace trace = tree.explain(path.toString(), "get");
+        Assert.assertFalse(trace.isMatched());
+        Assert.assertTrue(trace.getVisitedNodes().size() < 100000);
+        Assert.assertNull(tree.searchPathFilterRoles(path + "/x===get"));
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles(path + "/detail===get"));
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles(path + "/detail/v1/end===get"));
+        Assert.assertEquals("[role3]", tree.searchPathFilterRoles(path + "/x/detail/x/v1===get"));
+    }
+
+    @Test
+    public void automatonSameAsTreeSearch() {
+        String[] ruleSegments = {"api", "v1", "get", "host", "api", "v1", "*", "**", "{id:[0-9]+}", "*.json", "{name}"};
+        String[] pathSegments = {"api", "v1", "get", "post", "x", "*", "**", "12", "a.json", "12.json"};
+        String[] methods = {"get", "post", "put", "*", "propfind"};
+        String[] requestMethods = {"get", "post", "put", "patch", "propfind"};
+        RandomPaths random = new RandomPaths(20201124L);
+        int compiledRounds = 0;
+        for (int round = 0; round < 60; round++) {
+            Set<String> paths = new HashSet<>();
+            for (int i = 0; i < 25; i++) {
+                paths.add(random.target(ruleSegments, 5, methods) + "===[role" + i + "]");
+            }
+            TirePathTree tree = new TirePathTree();
+            tree.buildTree(paths);
+            TirePathTree automatonTree = new TirePathTree();
+            automatonTree.setAutomatonMemoryBudget(4 * 1024 * 1024);
+            automatonTree.rebuildTree(paths);
+            if (automatonTree.isAutomatonCompiled()) {
+                compiledRounds++;
+            }
+            for (int i = 0; i < 300; i++) {
+                String target = random.target(pathSegments, 7, requestMethods);
+                Assert.assertEquals(paths + " " + target, tree.searchPathFilterRoles(target),
+                        automatonTree.searchPathFilterRoles(target));
+            }
+        }
+        Assert.assertTrue(compiledRounds > 50);
+    }
+
+    @Test
+    public void automatonMemoryBudget() {
+        buildTree();
+        root.setAutomatonMemoryBudget(64 * 1024 * 1024);
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/host===get===[role2]");
+        paths.add("/api/*/ha/*===put===[role2,role4]");
+        paths.add("/api/mo/**/day===get===[role6]");
+        root.rebuildTree(paths);
+        Assert.assertTrue(root.isAutomatonCompiled());
+        Assert.assertEquals("[role2]", root.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role6]", root.searchPathFilterRoles("/api/mo/tom/hello/day===get"));
+        Assert.assertNull(root.searchPathFilterRoles("/api/mo/tom/hello===get"));
+        // exceed the budget, fallback to tree search
+        root.setAutomatonMemoryBudget(64);
+        root.rebuildTree(paths);
+        Assert.assertFalse(root.isAutomatonCompiled());
+        Assert.assertEquals("[role2,role4]", root.searchPathFilterRoles("/api/v3/ha/x===put"));
+        root.setAutomatonMemoryBudget(0);
+    }
+
+    @Test
+    public void constrainedSegment() {
+        TirePathTree tree = new TirePathTree();
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/host/{id:[0-9]+}===get===[role1]");
+        paths.add("/api/v2/host/*===get===[role2]");
+        paths.add("/api/v2/host/current===get===[role3]");
+        paths.add("/api/v2/host/{id:[0-9]+}/{name}===put===[role4]");
+        paths.add("/user/*.json===get===[role5]");
+        paths.add("/user/**===get===[role6]");
+        paths.add("/api/v2/host/{id:[0-9+}===get===[role7]");
+        paths.add("/Order/{code:\\D+}===GET===[role8]");
+        paths.add("/order/{code:[A-Z]{2}[0-9]+}===post===[role9]");
+        tree.buildTree(paths);
+        // raw string > constrained segment > * > **
+        Assert.assertEquals("[role3]", tree.searchPathFilterRoles("/api/v2/host/current===get"));
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host/12===get"));
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles("/api/v2/host/tom===get"));
+        Assert.assertEquals("[role4]", tree.searchPathFilterRoles("/api/v2/host/12/tom===put"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v2/host/tom/tom===put"));
+        Assert.assertEquals("[role5]", tree.searchPathFilterRoles("/user/list.json===get"));
+        Assert.assertEquals("[role6]", tree.searchPathFilterRoles("/user/list.xml===get"));
+        // the regex keeps its case and matches case insensitive
+        Assert.assertEquals("[role8]", tree.searchPathFilterRoles("/order/abc===get"));
+        Assert.assertNull(tree.searchPathFilterRoles("/order/12===get"));
+        Assert.assertEquals("[role9]", tree.searchPathFilterRoles("/order/AB12===post"));
+        Assert.assertNull(tree.searchPathFilterRoles("/order/a12===post"));
+        Assert.assertEquals("/order/{code:\\D+}===get===[role8]",
+                TirePathTree.lowerCaseResource("/Order/{code:\\D+}===GET===[role8]"));
+        // illegal regex resource is ignored
+        Assert.assertEquals(8, tree.getResourceNum());
+        tree.setAutomatonMemoryBudget(1024 * 1024);
+        tree.rebuildTree(paths);
+        Assert.assertTrue(tree.isAutomatonCompiled());
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host/12===get"));
+        Assert.assertEquals("[role5]", tree.searchPathFilterRoles("/user/list.json===get"));
+        Assert.assertEquals("[role6]", tree.searchPathFilterRoles("/user/list.xml===get"));
+        Assert.assertNull(tree.searchPathFilterRoles("/order/12===get"));
+    }
+
+    @Test
+    public void methodTable() {
+        TirePathTree tree = new TirePathTree();
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/host===*===[role1]");
+        paths.add("/api/v2/host===GET===[role2]");
+        paths.add("/api/v2/host===propfind===[role3]");
+        paths.add("/api/v2/*===post===[role4]");
+        paths.add("/api/v3/*===*===[role5]");
+        paths.add("/api/v3===get===[role6]");
+        paths.add("/api/v4/get===put===[role7]");
+        tree.buildTree(paths);
+        Assert.assertEquals(7, tree.getResourceNum());
+        // explicit method > method * of the same path
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role3]", tree.searchPathFilterRoles("/api/v2/host===PROPFIND"));
+        // method * of the same path > the longer path
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host===post"));
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host===mkcol"));
+        // the * path may match empty, the method table of it is the fallback
+        Assert.assertEquals("[role6]", tree.searchPathFilterRoles("/api/v3===get"));
+        Assert.assertEquals("[role5]", tree.searchPathFilterRoles("/api/v3===delete"));
+        Assert.assertEquals("[role5]", tree.searchPathFilterRoles("/api/v3/tom===get"));
+        // the path named as http method does not hide the method table
+        Assert.assertEquals("[role7]", tree.searchPathFilterRoles("/api/v4/get===put"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v4/get===get"));
+        Assert.assertEquals("/api/v2/host===*===[role1]", tree.explain("/api/v2/host", "trace").getMatchedRule());
+        Assert.assertEquals("/api/v2/host===get===[role2]", tree.explain("/api/v2/host", "GET").getMatchedRule());
+        tree.setAutomatonMemoryBudget(1024 * 1024);
+        tree.rebuildTree(paths);
+        Assert.assertTrue(tree.isAutomatonCompiled());
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host===mkcol"));
+        Assert.assertEquals("[role5]", tree.searchPathFilterRoles("/api/v3===delete"));
+        Assert.assertEquals("[role6]", tree.searchPathFilterRoles("/api/v3===get"));
+    }
+
+    @Test
+    public void rebuildChangedPaths() {
+        String[] ruleSegments = {"api", "v1", "host", "*", "**", "{id:[0-9]+}"};
+        String[] pathSegments = {"api", "v1", "host", "x", "12"};
+        String[] methods = {"get", "post", "*"};
+        String[] requestMethods = {"get", "post"};
+        RandomPaths random = new RandomPaths(20201127L);
+        Set<String> paths = new HashSet<>();
+        TirePathTree tree = new TirePathTree();
+        tree.buildTree(new HashSet<>());
+        for (int round = 0; round < 200; round++) {
+            // remove and add a few resources, the same path and method may have different roles
+            for (int i = 0; i < 2 && paths.size() > 40; i++) {
+                paths.remove(paths.iterator().next());
+            }
+            for (int i = 0; i < (round == 0 ? 40 : 2); i++) {
+                paths.add(random.target(ruleSegments, 3, methods) + "===[role" + round + i + "]");
+            }
+            tree.rebuildTree(paths);
+            TirePathTree expectTree = new TirePathTree();
+            expectTree.buildTree(paths);
+            Assert.assertEquals(expectTree.getResourceNum(), tree.getResourceNum());
+            for (int i = 0; i < 50; i++) {
+                String target = random.target(pathSegments, 5, requestMethods);
+                Assert.assertEquals(paths + " " + target, expectTree.searchPathFilterRoles(target),
+                        tree.searchPathFilterRoles(target));
+            }
+        }
+        // the unchanged subtree is shared, keep its probe count
+        paths = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            paths.add("/api/v" + i + "/host===get===[role1]");
+        }
+        tree.rebuildTree(paths);
+        tree.setProbeSampleInterval(1);
+        tree.searchPathFilterRoles("/api/v1/host===get");
+        tree.setProbeSampleInterval(0);
+        paths.remove("/api/v2/host===get===[role1]");
+        paths.add("/api/v2/host===post===[role2]");
+        tree.rebuildTree(paths);
+        Assert.assertEquals(Long.valueOf(1), tree.getProbeCounts().get("/api/v1/host"));
+        Assert.assertNull(tree.getProbeCounts().get("/api"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles("/api/v2/host===post"));
+        Assert.assertEquals(10, tree.getResourceNum());
+    }
+
+    @Test
+    public void copyAndRebuild() {
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            paths.add("/api/v" + i + "/host===get===[role1]");
+        }
+        TirePathTree tree = new TirePathTree();
+        tree.setAutomatonMemoryBudget(1024 * 1024);
+        tree.buildTree(paths);
+        Set<String> changedPaths = new HashSet<>(paths);
+        changedPaths.remove("/api/v2/host===get===[role1]");
+        changedPaths.add("/api/v2/host===post===[role2]");
+        TirePathTree changedTree = tree.copyAndRebuild(changedPaths);
+        Assert.assertNotSame(tree, changedTree);
+        Assert.assertTrue(changedTree.isAutomatonCompiled());
+        Assert.assertNull(changedTree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role2]", changedTree.searchPathFilterRoles("/api/v2/host===post"));
+        // the current tree is not changed
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v2/host===post"));
+        Assert.assertEquals(10, tree.getResourceNum());
+        tree.setAutomatonMemoryBudget(0);
+        TirePathTree sameTree = tree.copyAndRebuild(paths);
+        Assert.assertFalse(sameTree.isAutomatonCompiled());
+        Assert.assertTrue(tree.isAutomatonCompiled());
+        Assert.assertEquals("[role1]", sameTree.searchPathFilterRoles("/api/v2/host===get"));
+        Assert.assertEquals("[role1]", new TirePathTree().copyAndRebuild(paths)
+                .searchPathFilterRoles("/api/v2/host===get"));
+    }
+
+    @Test
+    public void endOfPathFallback() {
+        // at the end of path, the * hides the sibling **, even it only has the rules of other methods
+        Set<String> paths = new HashSet<>(Arrays.asList("/a/*===put===[role1]", "/a/**===get===[role2]"));
+        Set<String> otherPaths = new HashSet<>(Arrays.asList("/*/*/**===get===[role3]", "/a/**===get===[role4]"));
+        for (long memoryBudget : new long[]{0, 1024 * 1024}) {
+            TirePathTree tree = new TirePathTree();
+            tree.setAutomatonMemoryBudget(memoryBudget);
+            tree.buildTree(paths);
+            Assert.assertEquals(memoryBudget > 0, tree.isAutomatonCompiled());
+            Assert.assertNull(tree.searchPathFilterRoles("/a===get"));
+            Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/a===put"));
+            tree.rebuildTree(otherPaths);
+            Assert.assertEquals("[role4]", tree.searchPathFilterRoles("/a===get"));
+        }
+        // the get partition has not the * of put, it is the only difference with the whole tree
+        TirePathTree partitionedTree = new TirePathTree();
+        partitionedTree.setMethodPartitioned(true);
+        partitionedTree.buildTree(paths);
+        Assert.assertEquals("[role2]", partitionedTree.searchPathFilterRoles("/a===get"));
+        Assert.assertEquals("[role1]", partitionedTree.searchPathFilterRoles("/a===put"));
+    }
+
+    @Test
+    public void methodPartitioned() {
+        // no *, at the end of path a * of other methods hides the sibling ** in the whole tree, not in a partition
+        String[] ruleSegments = {"api", "v1", "host", "**", "{id:[0-9]+}"};
+        String[] pathSegments = {"api", "v1", "host", "x", "12"};
+        String[] methods = {"get", "post", "delete", "*", "propfind"};
+        String[] requestMethods = {"get", "POST", "delete", "put", "Propfind"};
+        RandomPaths random = new RandomPaths(20201201L);
+        TirePathTree partitionedTree = new TirePathTree();
+        partitionedTree.setMethodPartitioned(true);
+        partitionedTree.buildTree(new HashSet<>());
+        // not duplicate path and method, the winner of the duplicate ones depends on the set order
+        Map<String, String> rules = new HashMap<>();
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 2 && rules.size() > 40; i++) {
+                rules.remove(rules.keySet().iterator().next());
+            }
+            for (int i = 0; i < (round == 0 ? 40 : 2); i++) {
+                rules.putIfAbsent(random.target(ruleSegments, 4, methods), "[role" + round + i + "]");
+            }
+            Set<String> paths = new HashSet<>();
+            rules.forEach((path, roles) -> paths.add(path + "===" + roles));
+            if (round % 10 == 9) {
+                partitionedTree = partitionedTree.copyAndRebuild(paths);
+            } else {
+                partitionedTree.rebuildTree(paths);
+            }
+            TirePathTree tree = new TirePathTree();
+            tree.buildTree(paths);
+            Assert.assertEquals(tree.getResourceNum(), partitionedTree.getResourceNum());
+            for (int i = 0; i < 50; i++) {
+                String path = random.path(pathSegments, 5);
+                String method = random.pick(requestMethods);
+                Assert.assertEquals(paths + " " + path + "===" + method,
+                        tree.searchPathFilterRoles(path + "===" + method),
+                        partitionedTree.searchPathFilterRoles(path + "===" + method));
+                Assert.assertEquals(tree.explain(path, method).getMatchedRule(),
+                        partitionedTree.explain(path, method).getMatchedRule());
+            }
+        }
+        // switch back to the whole tree
+        partitionedTree.setMethodPartitioned(false);
+        Set<String> paths = new HashSet<>();
+        rules.forEach((path, roles) -> paths.add(path + "===" + roles));
+        partitionedTree.rebuildTree(paths);
+        TirePathTree tree = new TirePathTree();
+        tree.buildTree(paths);
+        Assert.assertEquals(tree.getResourceNum(), partitionedTree.getResourceNum());
+        Assert.assertEquals(tree.searchPathFilterRoles("/api/v1/host===get"),
+                partitionedTree.searchPathFilterRoles("/api/v1/host===get"));
+    }
+
+    @Test
+    public void literalChain() {
+        Set<String> paths = new HashSet<>();
+        paths.add("/api/v2/tenant/billing/invoice===get===[role1]");
+        paths.add("/api/v2/tenant/billing/*===post===[role2]");
+        paths.add("/api/v2/tenant/billing/invoice/detail/item===get===[role3]");
+        paths.add("/api/**/invoice===get===[role4]");
+        TirePathTree tree = new TirePathTree();
+        tree.buildTree(paths);
+        Assert.assertEquals("[role1]", tree.searchPathFilterRoles("/api/v2/tenant/billing/invoice===get"));
+        Assert.assertEquals("[role2]", tree.searchPathFilterRoles("/api/v2/tenant/billing/x===post"));
+        Assert.assertEquals("[role3]", tree.searchPathFilterRoles("/api/v2/tenant/billing/invoice/detail/item===get"));
+        // not equal chain segment, backtrack to **
+        Assert.assertEquals("[role4]", tree.searchPathFilterRoles("/api/v2/tenant/bill/invoice===get"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v2/tenant/billing/invoice/detail===get"));
+        Assert.assertNull(tree.searchPathFilterRoles("/api/v2/tenant===get"));
+        // the search with chains is the same as the node by node search of explain
+        String[] ruleSegments = {"api", "v1", "host", "detail", "*", "**", "{id:[0-9]+}"};
+        String[] pathSegments = {"api", "v1", "host", "detail", "12"};
+        RandomPaths random = new RandomPaths(20201202L);
+        Map<String, String> rules = new HashMap<>();
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 2 && rules.size() > 20; i++) {
+                rules.remove(rules.keySet().iterator().next());
+            }
+            for (int i = 0; i < (round == 0 ? 20 : 2); i++) {
+                // mostly literal segments to make long chains
+                rules.putIfAbsent(random.path(ruleSegments, 4, 6) + "===get", "[role" + round + i + "]");
+            }
+            paths = new HashSet<>();
+            for (Map.Entry<String, String> rule : rules.entrySet()) {
+                paths.add(rule.getKey() + "===" + rule.getValue());
+            }
+            tree.rebuildTree(paths);
+            for (int i = 0; i < 50; i++) {
+                String path = random.path(pathSegments, 7);
+                Assert.assertEquals(paths + " " + path, tree.explain(path, "get").getMatchedRoles(),
+                        tree.searchPathFilterRoles(path + "===get"));
+            }
+        }
+    }
+
+    @Test
+    public void parallelBuildTree() {
+        String[] ruleSegments = {"api", "v1", "host", "*", "**", "{id:[0-9]+}", "*.json"};
+        String[] methods = {"get", "post", "*", "propfind"};
+        String[] pathSegments = {"api", "v1", "x", "12", "a.json"};
+        String[] requestMethods = {"get", "post"};
+        RandomPaths random = new RandomPaths(20201128L);
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            String path = random.path("/TENANT" + random.nextInt(40), ruleSegments, 0, 3);
+            paths.add(path + "===" + random.pick(methods) + "===[role" + i + "]");
+        }
+        paths.add("/*.json===get===[role-json]");
+        paths.add("/**===get===[role-all]");
+        TirePathTree tree = new TirePathTree();
+        tree.setParallelBuildThreshold(0);
+        tree.buildTree(paths);
+        TirePathTree parallelTree = new TirePathTree();
+        parallelTree.setParallelBuildThreshold(1);
+        parallelTree.buildTree(paths);
+        Assert.assertEquals(tree.getResourceNum(), parallelTree.getResourceNum());
+        for (int i = 0; i < 2000; i++) {
+            String target = random.path("/tenant" + random.nextInt(42), pathSegments, 0, 3)
+                    + "===" + random.pick(requestMethods);
+            Assert.assertEquals(target, tree.searchPathFilterRoles(target), parallelTree.searchPathFilterRoles(target));
+        }
+        Assert.assertEquals("[role-json]", parallelTree.searchPathFilterRoles("/a.json===get"));
+        parallelTree.rebuildTree(new HashSet<>(Arrays.asList("/api===get===[role1]", "/user/*===get===[role2]")));
+        Assert.assertEquals("[role2]", parallelTree.searchPathFilterRoles("/user/tom===get"));
+    }
+}
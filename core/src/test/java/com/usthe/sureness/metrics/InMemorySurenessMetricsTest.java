@@ -0,0 +1,80 @@
+package com.usthe.sureness.metrics;
+
+import com.usthe.sureness.processor.exception.IncorrectCredentialsException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:28 2026-10-18
+ */
+public class InMemorySurenessMetricsTest {
+
+    @After
+    public void tearDown() {
+        SurenessMetricsHolder.setMetrics(null);
+    }
+
+    @Test
+    public void histogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(Math.abs(p50 - 500) <= 500 / 16);
+        assertTrue(Math.abs(p99 - 990) <= 990 / 16);
+        assertEquals(1000, histogram.getPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void bucketBound() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void counters() {
+        InMemorySurenessMetrics metrics = new InMemorySurenessMetrics();
+        metrics.recordSuccess("PasswordProcessor");
+        metrics.recordSuccess("PasswordProcessor");
+        metrics.recordFailure("PasswordProcessor", IncorrectCredentialsException.class);
+        metrics.recordMatch("resource", true);
+        metrics.recordMatch("resource", false);
+        metrics.recordStage(SurenessMetrics.Stage.CHECK_IN, 100);
+        Map<String, Long> counters = metrics.snapshotCounters();
+        assertEquals(Long.valueOf(2), counters.get("auth.success.PasswordProcessor"));
+        assertEquals(Long.valueOf(1), counters.get("auth.failure.PasswordProcessor.IncorrectCredentialsException"));
+        assertEquals(Long.valueOf(1), counters.get("match.hit.resource"));
+        assertEquals(0.5, metrics.getMatchHitRate("resource"), 0.001);
+        assertEquals(0, metrics.getMatchHitRate("exclude"), 0.001);
+        assertEquals(1, metrics.getStageHistogram(SurenessMetrics.Stage.CHECK_IN).getCount());
+    }
+
+    @Test
+    public void holder() {
+        assertFalse(SurenessMetricsHolder.getMetrics().isEnabled());
+        assertEquals(0L, SurenessMetricsHolder.startStage());
+        InMemorySurenessMetrics metrics = new InMemorySurenessMetrics();
+        SurenessMetricsHolder.setMetrics(metrics);
+        long start = SurenessMetricsHolder.startStage();
+        SurenessMetricsHolder.endStage(SurenessMetrics.Stage.ROLE_MATCH, start);
+        assertEquals(1, metrics.getStageHistogram(SurenessMetrics.Stage.ROLE_MATCH).getCount());
+    }
+}
@@ -0,0 +1,135 @@
+package com.usthe.sureness.mgt;
+
+import com.usthe.sureness.matcher.DefaultPathRoleMatcher;
+import com.usthe.sureness.matcher.PathTreeProvider;
+import com.usthe.sureness.processor.DefaultProcessorManager;
+import com.usthe.sureness.processor.Processor;
+import com.usthe.sureness.processor.exception.IncorrectCredentialsException;
+import com.usthe.sureness.processor.exception.UnauthorizedException;
+import com.usthe.sureness.processor.support.PasswordProcessor;
+import com.usthe.sureness.provider.AsyncSurenessAccountProvider;
+import com.usthe.sureness.provider.DefaultAccount;
+import com.usthe.sureness.subject.SubjectSum;
+import com.usthe.sureness.subject.SurenessSubjectFactory;
+import com.usthe.sureness.subject.creater.BasicSubjectServletCreator;
+import com.usthe.sureness.util.SurenessFutureUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:22 2026-10-18
+ */
+public class SurenessSecurityManagerTest {
+
+    private static SurenessSecurityManager securityManager;
+
+    @BeforeClass
+    public static void setUp() {
+        AsyncSurenessAccountProvider accountProvider = appId -> CompletableFuture.supplyAsync(() ->
+                "tom".equals(appId) ? DefaultAccount.builder("tom").setPassword("admin123")
+                        .setOwnRoles(Collections.singletonList("role1")).build() : null);
+        PasswordProcessor passwordProcessor = new PasswordProcessor();
+        passwordProcessor.setAccountProvider(accountProvider);
+        List<Processor> processorList = Collections.singletonList(passwordProcessor);
+
+        PathTreeProvider pathTreeProvider = createNiceMock(PathTreeProvider.class);
+        expect(pathTreeProvider.providePathData()).andReturn(new HashSet<>(Arrays.asList(
+                "/api/v1/book===get===[role1]", "/api/v1/host===get===[role2]"))).anyTimes();
+        expect(pathTreeProvider.provideExcludedResource()).andReturn(new HashSet<>(
+                Collections.singletonList("/api/v1/health===get"))).anyTimes();
+        replay(pathTreeProvider);
+        DefaultPathRoleMatcher pathRoleMatcher = new DefaultPathRoleMatcher();
+        pathRoleMatcher.setPathTreeProvider(pathTreeProvider);
+        pathRoleMatcher.buildTree();
+
+        SurenessSubjectFactory subjectFactory = new SurenessSubjectFactory();
+        subjectFactory.registerSubjectCreator(Collections.singletonList(new BasicSubjectServletCreator()));
+
+        securityManager = SurenessSecurityManager.getInstance();
+        securityManager.setProcessorManager(new DefaultProcessorManager(processorList));
+        securityManager.setPathRoleMatcher(pathRoleMatcher);
+        securityManager.setSubjectFactory(subjectFactory);
+    }
+
+    private static HttpServletRequest mockRequest(String uri, String user, String password) {
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        String basic = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        expect(request.getHeader("Authorization")).andReturn("Basic " + basic).anyTimes();
+        expect(request.getRequestURI()).andReturn(uri).anyTimes();
+        expect(request.getMethod()).andReturn("GET").anyTimes();
+        replay(request);
+        return request;
+    }
+
+    @Test
+    public void checkInAsync() {
+        CompletionStage<SubjectSum> stage = securityManager.checkInAsync(
+                (Object) mockRequest("/api/v1/book", "tom", "admin123"));
+        SubjectSum subjectSum = SurenessFutureUtil.join(stage);
+        assertNotNull(subjectSum);
+        assertEquals("tom", subjectSum.getPrincipal());
+        // the same summary as the sync checkIn, with the roles of the account
+        assertEquals(Collections.singletonList("role1"), subjectSum.getRoles());
+        assertEquals(securityManager.checkIn((Object) mockRequest("/api/v1/book", "tom", "admin123")).getRoles(),
+                subjectSum.getRoles());
+
+        stage = securityManager.checkInAsync((Object) mockRequest("/api/v1/health", "tom", "admin"));
+        assertNull(SurenessFutureUtil.join(stage));
+    }
+
+    @Test
+    public void checkInAsyncFail() {
+        try {
+            SurenessFutureUtil.join(securityManager.checkInAsync(
+                    (Object) mockRequest("/api/v1/book", "tom", "admin")));
+            fail();
+        } catch (IncorrectCredentialsException e) {
+            assertNotNull(e.getMessage());
+        }
+        try {
+            SurenessFutureUtil.join(securityManager.checkInAsync(
+                    (Object) mockRequest("/api/v1/host", "tom", "admin123")));
+            fail();
+        } catch (UnauthorizedException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void checkInAll() {
+        List<String> resources = Arrays.asList("/api/v1/book===get", "/api/v1/host===get",
+                "/api/v1/health===get", "/api/v1/book===get", "/api/v1/other===get");
+        boolean[] allowed = securityManager.checkInAll(mockRequest("/api/v1/book", "tom", "admin123"), resources);
+        assertArrayEquals(new boolean[]{true, false, true, true, true}, allowed);
+        // only excluded resources, not authenticate
+        allowed = securityManager.checkInAll(mockRequest("/api/v1/book", "tom", "admin"),
+                Collections.singletonList("/api/v1/health===get"));
+        assertArrayEquals(new boolean[]{true}, allowed);
+        try {
+            securityManager.checkInAll(mockRequest("/api/v1/book", "tom", "admin"), resources);
+            fail();
+        } catch (IncorrectCredentialsException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void checkInBlockingAdapter() {
+        SubjectSum subjectSum = securityManager.checkIn((Object) mockRequest("/api/v1/book", "tom", "admin123"));
+        assertEquals("tom", subjectSum.getPrincipal());
+    }
+}
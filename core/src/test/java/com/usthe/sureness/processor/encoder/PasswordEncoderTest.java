@@ -0,0 +1,117 @@
+package com.usthe.sureness.processor.encoder;
+
+import com.usthe.sureness.processor.exception.ExcessiveAttemptsException;
+import com.usthe.sureness.util.Md5Util;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:19 2026-10-18
+ */
+public class PasswordEncoderTest {
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void pbkdf2() {
+        // RFC 7914 PBKDF2-HMAC-SHA256 test vector
+        byte[] derived = Pbkdf2PasswordEncoder.pbkdf2("passwd".getBytes(StandardCharsets.UTF_8),
+                "salt".getBytes(StandardCharsets.UTF_8), 1, 64);
+        assertEquals("55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+                + "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783", toHex(derived));
+
+        Pbkdf2PasswordEncoder encoder = new Pbkdf2PasswordEncoder(1000);
+        String encoded = encoder.encode("admin123");
+        assertTrue(encoded.startsWith("$pbkdf2-sha256$v=1$i=1000$"));
+        assertTrue(encoder.supports(encoded));
+        assertTrue(encoder.matches("admin123", encoded, null));
+        assertFalse(encoder.matches("admin1234", encoded, null));
+        assertFalse(encoder.needsRehash(encoded));
+        assertTrue(new Pbkdf2PasswordEncoder(2000).needsRehash(encoded));
+    }
+
+    @Test
+    public void scrypt() {
+        // RFC 7914 scrypt test vector
+        byte[] derived = ScryptPasswordEncoder.scrypt("password".getBytes(StandardCharsets.UTF_8),
+                "NaCl".getBytes(StandardCharsets.UTF_8), 1024, 8, 16, 64);
+        assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+                + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640", toHex(derived));
+
+        ScryptPasswordEncoder encoder = new ScryptPasswordEncoder(1024, 8, 1);
+        String encoded = encoder.encode("admin123");
+        assertTrue(encoded.startsWith("$scrypt$v=1$n=1024,r=8,p=1$"));
+        assertTrue(encoder.matches("admin123", encoded, null));
+        assertFalse(encoder.matches("admin1234", encoded, null));
+        assertFalse(encoder.needsRehash(encoded));
+        assertTrue(new ScryptPasswordEncoder(2048, 8, 1).needsRehash(encoded));
+        // a stored password asks 128MB, not verify
+        String crafted = encoded.replace("n=1024", "n=131072");
+        assertFalse(encoder.matches("admin123", crafted, null));
+        try {
+            new ScryptPasswordEncoder(131072, 8, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void saltMd5() {
+        SaltMd5PasswordEncoder encoder = new SaltMd5PasswordEncoder();
+        assertEquals("admin123", encoder.encode("admin123"));
+        assertEquals(Md5Util.md5("admin123" + "tom"), encoder.encode("admin123", "tom"));
+        assertTrue(encoder.matches("admin123", encoder.encode("admin123", "tom"), "tom"));
+        assertTrue(encoder.matches("admin123", encoder.encode("admin123"), null));
+    }
+
+    @Test
+    public void delegating() {
+        PasswordEncoder encoder = new DelegatingPasswordEncoder(new Pbkdf2PasswordEncoder(1000),
+                new SaltMd5PasswordEncoder());
+        String legacy = Md5Util.md5("admin123" + "tom");
+        assertTrue(encoder.matches("admin123", legacy, "tom"));
+        assertFalse(encoder.matches("admin1234", legacy, "tom"));
+        assertTrue(encoder.matches("admin123", "admin123", null));
+        assertTrue(encoder.needsRehash(legacy));
+        String encoded = encoder.encode("admin123");
+        assertTrue(encoder.matches("admin123", encoded, "tom"));
+        assertFalse(encoder.needsRehash(encoded));
+    }
+
+    @Test
+    public void bounded() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new Pbkdf2PasswordEncoder(1000), 1, 1, 5000);
+        String encoded = encoder.encode("admin123");
+        assertTrue(encoder.matches("admin123", encoded, null));
+        assertFalse(encoder.matches("admin", encoded, null));
+        encoder.shutdown();
+    }
+
+    @Test
+    public void boundedTimeoutCancel() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new Pbkdf2PasswordEncoder(1000), 1, 1, 500);
+        String encoded = new Pbkdf2PasswordEncoder(1000).encode("admin123");
+        // a stored password of huge iterations runs seconds
+        String slow = encoded.replace("i=1000", "i=100000000");
+        try {
+            encoder.matches("admin123", slow, null);
+            fail();
+        } catch (ExcessiveAttemptsException e) {
+            assertNotNull(e.getMessage());
+        }
+        // the timeout hash stops, the only worker is free again
+        assertTrue(encoder.matches("admin123", encoded, null));
+        encoder.shutdown();
+    }
+}
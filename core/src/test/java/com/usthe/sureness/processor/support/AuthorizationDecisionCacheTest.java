@@ -0,0 +1,116 @@
+package com.usthe.sureness.processor.support;
+
+import com.usthe.sureness.processor.exception.UnauthorizedException;
+import com.usthe.sureness.provider.DefaultAccount;
+import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.subject.support.JwtSubject;
+import com.usthe.sureness.subject.support.PasswordSubject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 21:18 2026-10-18
+ */
+public class AuthorizationDecisionCacheTest {
+
+    @Test
+    public void isAllowed() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache();
+        List<String> ownRoles = Arrays.asList("role1", "role2");
+        List<String> supportRoles = Arrays.asList("role2", "role3");
+        assertFalse(cache.isAllowed(ownRoles, supportRoles));
+        cache.markAllowed(ownRoles, supportRoles);
+        assertTrue(cache.isAllowed(ownRoles, supportRoles));
+        // the key is the instance, not the content
+        assertFalse(cache.isAllowed(new ArrayList<>(ownRoles), supportRoles));
+        assertFalse(cache.isAllowed(null, supportRoles));
+        cache.invalidate();
+        assertFalse(cache.isAllowed(ownRoles, supportRoles));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictWhenFull() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(4);
+        List<String> supportRoles = Arrays.asList("role1");
+        for (int i = 0; i < 4; i++) {
+            cache.markAllowed(Arrays.asList("role" + i), supportRoles);
+        }
+        assertEquals(4, cache.size());
+        List<String> ownRoles = Arrays.asList("role4");
+        cache.markAllowed(ownRoles, supportRoles);
+        // a quarter evicted, not all cleared
+        assertEquals(4, cache.size());
+        assertTrue(cache.isAllowed(ownRoles, supportRoles));
+    }
+
+    @Test
+    public void canonicalRoles() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache(4, 1);
+        List<String> roles = new ArrayList<>(Arrays.asList("role1", "role2"));
+        List<String> canonical = cache.canonicalRoles(roles);
+        assertEquals(roles, canonical);
+        assertSame(canonical, cache.canonicalRoles(Arrays.asList("role1", "role2")));
+        // the canonical one is a copy, the change of caller list not change it
+        roles.add("role3");
+        assertEquals(Arrays.asList("role1", "role2"), canonical);
+        try {
+            canonical.add("role3");
+            fail("should throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(2, canonical.size());
+        }
+        // full, not canonical
+        List<String> otherRoles = Arrays.asList("role3");
+        assertSame(otherRoles, cache.canonicalRoles(otherRoles));
+        assertNull(cache.canonicalRoles(null));
+    }
+
+    @Test
+    public void processorAuthorized() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache();
+        JwtProcessor processor = new JwtProcessor() {
+            @Override
+            public Subject authenticated(Subject var) {
+                return var;
+            }
+        };
+        processor.setDecisionCache(cache);
+        List<String> ownRoles = Arrays.asList("role1", "role2");
+        List<String> supportRoles = Arrays.asList("role2", "role3");
+        Subject subject = JwtSubject.builder("jwt").setOwnRoles(ownRoles).setSupportRoles(supportRoles).build();
+        processor.process(subject);
+        assertTrue(cache.isAllowed(ownRoles, supportRoles));
+        processor.process(subject);
+        Subject deniedSubject = JwtSubject.builder("jwt").setOwnRoles(ownRoles)
+                .setSupportRoles(Arrays.asList("role4")).build();
+        try {
+            processor.process(deniedSubject);
+            fail("should throw UnauthorizedException");
+        } catch (UnauthorizedException e) {
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void passwordProcessorCanonicalRoles() {
+        AuthorizationDecisionCache cache = new AuthorizationDecisionCache();
+        PasswordProcessor processor = new PasswordProcessor();
+        // each load gives a new role list instance, eg: a database provider
+        processor.setAccountProvider(appId -> DefaultAccount.builder(appId).setPassword("admin123")
+                .setOwnRoles(new ArrayList<>(Arrays.asList("role1", "role2"))).build());
+        processor.setDecisionCache(cache);
+        List<String> supportRoles = Arrays.asList("role2", "role3");
+        processor.process(PasswordSubject.builder("tom", "admin123").setSupportRoles(supportRoles).build());
+        processor.process(PasswordSubject.builder("lili", "admin123").setSupportRoles(supportRoles).build());
+        // the equal role lists of the accounts share one decision
+        assertEquals(1, cache.size());
+        assertTrue(cache.isAllowed(cache.canonicalRoles(Arrays.asList("role1", "role2")), supportRoles));
+    }
+}
@@ -0,0 +1,92 @@
+package com.usthe.sureness.processor.support;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:20 2026-10-18
+ */
+public class FailedAttemptTrackerTest {
+
+    @Test
+    public void isExcessive() {
+        FailedAttemptTracker tracker = new FailedAttemptTracker(3, 5, 60 * 1000L, 1024);
+        for (int i = 0; i < 2; i++) {
+            tracker.recordFailure("tom", "192.168.1.1");
+        }
+        assertFalse(tracker.isExcessive("tom", "192.168.1.1"));
+        tracker.recordFailure("tom", "192.168.1.1");
+        assertTrue(tracker.isExcessive("tom", null));
+        assertEquals(3, tracker.getAccountFailures("tom"));
+        tracker.recordSuccess("tom");
+        assertFalse(tracker.isExcessive("tom", null));
+        assertEquals(3, tracker.getHostFailures("192.168.1.1"));
+    }
+
+    @Test
+    public void hostSpraying() {
+        FailedAttemptTracker tracker = new FailedAttemptTracker(3, 5, 60 * 1000L, 1024);
+        for (int i = 0; i < 5; i++) {
+            tracker.recordFailure("user" + i, "10.0.0.1");
+        }
+        assertTrue(tracker.isExcessive("lili", "10.0.0.1"));
+        assertFalse(tracker.isExcessive("lili", "10.0.0.2"));
+    }
+
+    @Test
+    public void timeDecay() throws InterruptedException {
+        FailedAttemptTracker tracker = new FailedAttemptTracker(2, 100, 60L, 1024);
+        tracker.recordFailure("tom", null);
+        tracker.recordFailure("tom", null);
+        assertTrue(tracker.isExcessive("tom", null));
+        Thread.sleep(100);
+        assertFalse(tracker.isExcessive("tom", null));
+    }
+
+    @Test
+    public void accountSpraying() {
+        FailedAttemptTracker tracker = new FailedAttemptTracker(5, Integer.MAX_VALUE, 60 * 60 * 1000L, 1024);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("tom", "10.0.0.1");
+        }
+        for (int i = 0; i < 100000; i++) {
+            tracker.recordFailure("user" + i, "10.0.0.2");
+        }
+        // the counters are exact, the sprayed accounts are not locked out
+        assertFalse(tracker.isExcessive("lili", null));
+        assertEquals(1, tracker.getAccountFailures("user99999"));
+        // the account under attack is kept when evict
+        assertEquals(4, tracker.getAccountFailures("tom"));
+        assertFalse(tracker.isExcessive("user99999", null));
+        // the success of one account not reset the others
+        tracker.recordFailure("lili", null);
+        tracker.recordSuccess("user99999");
+        assertEquals(0, tracker.getAccountFailures("user99999"));
+        assertEquals(1, tracker.getAccountFailures("lili"));
+        assertEquals(100000, tracker.getHostFailures("10.0.0.2"));
+    }
+
+    @Test
+    public void concurrentFailures() throws InterruptedException {
+        FailedAttemptTracker tracker = new FailedAttemptTracker(5, Integer.MAX_VALUE, 60 * 60 * 1000L, 64);
+        Thread[] threads = new Thread[8];
+        for (int index = 0; index < threads.length; index++) {
+            int threadIndex = index;
+            threads[index] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    tracker.recordFailure("tom", "10.0.0.1");
+                    tracker.recordFailure("user" + threadIndex + "-" + i, "10.0.0.1");
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // the lock free counters lose no failure, the evicting keeps the most failed account
+        assertEquals(80000, tracker.getAccountFailures("tom"));
+        assertEquals(160000, tracker.getHostFailures("10.0.0.1"));
+    }
+}
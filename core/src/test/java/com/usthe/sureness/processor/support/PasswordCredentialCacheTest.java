@@ -0,0 +1,70 @@
+package com.usthe.sureness.processor.support;
+
+import com.usthe.sureness.provider.DefaultAccount;
+import com.usthe.sureness.provider.SurenessAccount;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:16 2026-10-18
+ */
+public class PasswordCredentialCacheTest {
+
+    @Test
+    public void isVerified() {
+        PasswordCredentialCache cache = new PasswordCredentialCache();
+        SurenessAccount account = DefaultAccount.builder("tom")
+                .setPassword("0192023A7BBD73250516F069DF18B500").setSalt("123").build();
+        assertFalse(cache.isVerified("tom", "admin123", account));
+        cache.markVerified("tom", "admin123", account);
+        assertTrue(cache.isVerified("tom", "admin123", account));
+        assertFalse(cache.isVerified("tom", "admin1234", account));
+        assertFalse(cache.isVerified("lili", "admin123", account));
+    }
+
+    @Test
+    public void passwordChanged() {
+        PasswordCredentialCache cache = new PasswordCredentialCache();
+        SurenessAccount account = DefaultAccount.builder("tom")
+                .setPassword("admin123").build();
+        cache.markVerified("tom", "admin123", account);
+        SurenessAccount changedAccount = DefaultAccount.builder("tom")
+                .setPassword("admin456").build();
+        assertFalse(cache.isVerified("tom", "admin123", changedAccount));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        PasswordCredentialCache cache = new PasswordCredentialCache(60 * 1000L, 1);
+        SurenessAccount account = DefaultAccount.builder("tom").setPassword("admin123").build();
+        SurenessAccount otherAccount = DefaultAccount.builder("lili").setPassword("lili123").build();
+        cache.markVerified("tom", "admin123", account);
+        cache.markVerified("lili", "lili123", otherAccount);
+        assertEquals(1, cache.size());
+        assertTrue(cache.isVerified("tom", "admin123", account));
+        assertFalse(cache.isVerified("lili", "lili123", otherAccount));
+        cache.invalidate("tom");
+        cache.markVerified("lili", "lili123", otherAccount);
+        assertTrue(cache.isVerified("lili", "lili123", otherAccount));
+    }
+
+    @Test
+    public void expired() throws InterruptedException {
+        PasswordCredentialCache cache = new PasswordCredentialCache(1, 1);
+        SurenessAccount account = DefaultAccount.builder("tom").setPassword("admin123").build();
+        SurenessAccount otherAccount = DefaultAccount.builder("lili").setPassword("lili123").build();
+        cache.markVerified("tom", "admin123", account);
+        // sleep well past the ttl, the entry is always expired after it
+        Thread.sleep(20);
+        assertFalse(cache.isVerified("tom", "admin123", account));
+        assertEquals(0, cache.size());
+        cache.markVerified("tom", "admin123", account);
+        Thread.sleep(20);
+        // the expired entry is evicted when the cache is full
+        cache.markVerified("lili", "lili123", otherAccount);
+        assertEquals(1, cache.size());
+    }
+}
@@ -1,9 +1,26 @@
 package com.usthe.sureness.util;
 
+import com.usthe.sureness.processor.exception.IncorrectCredentialsException;
+import com.usthe.sureness.processor.support.JwtProcessor;
+import com.usthe.sureness.subject.Subject;
+import com.usthe.sureness.subject.support.JwtSubject;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.security.KeyPair;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -39,4 +56,131 @@ public class JsonWebTokenUtilTest {
                 null, Boolean.FALSE);
         assertNotNull(JsonWebTokenUtil.parseJwt(jwt));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseJwtLazily() {
+        String jwt = JsonWebTokenUtil.issueJwt(UUID.randomUUID().toString(), "tom",
+                "token-server", 36000L, Arrays.asList("role2", "rol3"),
+                null, Boolean.FALSE);
+        LazyJwtClaims claims = JsonWebTokenUtil.parseJwtLazily(jwt, Collections.singleton("roles"));
+        assertEquals("tom", claims.getSubject());
+        assertEquals(Arrays.asList("role2", "rol3"), claims.get("roles"));
+        // the not read claims are decoded when used
+        assertEquals("token-server", claims.get("iss"));
+        assertEquals(Boolean.FALSE, claims.get("isRefresh"));
+        assertNull(claims.get("perms"));
+        assertEquals(JsonWebTokenUtil.parseJwt(jwt).keySet(), claims.keySet());
+
+        String[] parts = jwt.split("\\.");
+        try {
+            JsonWebTokenUtil.parseJwtLazily(parts[0] + "." + parts[1] + "." + parts[2].substring(1) + "A",
+                    Collections.emptySet());
+            fail();
+        } catch (SignatureException e) {
+            assertNotNull(e.getMessage());
+        }
+        String expiredJwt = Jwts.builder().setSubject("tom").setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(JsonWebTokenUtil.getKeyRing().getDefaultKey()).compact();
+        try {
+            JsonWebTokenUtil.parseJwtLazily(expiredJwt, Collections.emptySet());
+            fail();
+        } catch (ExpiredJwtException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void parseJwtLazilyAsymmetric() {
+        Map<String, Object> tenant = new HashMap<>(4);
+        tenant.put("name", "a \"quoted\" \\ tenant \u4e2d");
+        tenant.put("ids", Arrays.asList(1, 2, 3));
+        JwtKeyRing keyRing = JsonWebTokenUtil.getKeyRing();
+        for (SignatureAlgorithm algorithm : Arrays.asList(SignatureAlgorithm.RS256, SignatureAlgorithm.PS384,
+                SignatureAlgorithm.ES256, SignatureAlgorithm.ES384, SignatureAlgorithm.ES512)) {
+            KeyPair keyPair = Keys.keyPairFor(algorithm);
+            keyRing.putKey(algorithm.getValue(), keyPair.getPublic());
+            try {
+                for (int i = 0; i < 20; i++) {
+                    String jwt = Jwts.builder().setHeaderParam("kid", algorithm.getValue()).setSubject("tom")
+                            .claim("tenant", tenant).claim("roles", Collections.singletonList("role1"))
+                            .signWith(keyPair.getPrivate(), algorithm).compact();
+                    LazyJwtClaims claims = JsonWebTokenUtil.parseJwtLazily(jwt, Collections.singleton("roles"));
+                    assertEquals("tom", claims.getSubject());
+                    assertEquals(Collections.singletonList("role1"), claims.get("roles"));
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> readTenant = (Map<String, Object>) claims.get("tenant");
+                    assertEquals(tenant.get("name"), readTenant.get("name"));
+                    assertEquals(Arrays.asList(1L, 2L, 3L), readTenant.get("ids"));
+                }
+            } finally {
+                keyRing.removeKey(algorithm.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void issueCompactJwt() {
+        List<String> roles = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            roles.add("role-of-power-user-" + i);
+        }
+        // no dictionary, issue the roles claim
+        String jwt = JsonWebTokenUtil.issueCompactJwt("1", "tom", "token-server", 36000L, roles, null, null);
+        assertEquals(roles, JsonWebTokenUtil.parseJwt(jwt).get("roles"));
+        String deflateJwt = jwt;
+
+        JsonWebTokenUtil.setRoleDictionary(new RoleDictionary(1, roles));
+        try {
+            jwt = JsonWebTokenUtil.issueCompactJwt("1", "tom", "token-server", 36000L, roles, null, null);
+            assertTrue(jwt.length() < deflateJwt.length());
+            LazyJwtClaims claims = JsonWebTokenUtil.parseJwtLazily(jwt, Arrays.asList(
+                    JsonWebTokenUtil.ROLES_BITS_CLAIM, JsonWebTokenUtil.ROLES_VERSION_CLAIM));
+            List<String> decodedRoles = JsonWebTokenUtil.decodeCompactRoles(
+                    claims.get(JsonWebTokenUtil.ROLES_BITS_CLAIM), claims.get(JsonWebTokenUtil.ROLES_VERSION_CLAIM));
+            assertEquals(roles, decodedRoles);
+            assertNull(claims.get("roles"));
+
+            // the subject of jwt processor has the interned roles
+            Subject subject = new JwtProcessor().authenticated(JwtSubject.builder(jwt).build());
+            assertSame(decodedRoles, subject.getOwnRoles());
+            assertEquals("tom", subject.getPrincipal());
+
+            // the version is not truncated, the bitset is canonical
+            assertEquals(decodedRoles, JsonWebTokenUtil.decodeCompactRoles(
+                    claims.get(JsonWebTokenUtil.ROLES_BITS_CLAIM), 1L));
+            for (Object[] claim : new Object[][]{{"AQ", 1.5}, {"AQ", 4294967297L}, {"AQ", "1"}, {"AQA", 1}}) {
+                try {
+                    JsonWebTokenUtil.decodeCompactRoles(claim[0], claim[1]);
+                    fail("should reject " + Arrays.toString(claim));
+                } catch (MalformedJwtException e) {
+                    assertNotNull(e.getMessage());
+                }
+            }
+
+            // a role not in dictionary, issue the roles claim
+            List<String> otherRoles = Collections.singletonList("other");
+            jwt = JsonWebTokenUtil.issueCompactJwt("1", "tom", "token-server", 36000L, otherRoles, null, null);
+            assertEquals(otherRoles, new JwtProcessor().authenticated(JwtSubject.builder(jwt).build()).getOwnRoles());
+        } finally {
+            JsonWebTokenUtil.removeRoleDictionary(1);
+        }
+        try {
+            JsonWebTokenUtil.decodeCompactRoles("AQ", 1);
+            fail();
+        } catch (MalformedJwtException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void jwtProcessorIllegalRoles() {
+        String jwt = Jwts.builder().setSubject("tom").claim("roles", Arrays.asList("role1", 2))
+                .signWith(JsonWebTokenUtil.getKeyRing().getDefaultKey()).compact();
+        try {
+            new JwtProcessor().authenticated(JwtSubject.builder(jwt).build());
+            fail();
+        } catch (IncorrectCredentialsException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.usthe.sureness.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 21:23 2026-10-18
+ */
+public class JwtKeyRingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String sign(Key key, String kid, String subject) {
+        return Jwts.builder().setHeaderParam("kid", kid).setSubject(subject).signWith(key).compact();
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String rsaJwk(String kid, RSAPublicKey key) {
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"alg\":\"RS256\",\"n\":\"" + base64Url(key.getModulus())
+                + "\",\"e\":\"" + base64Url(key.getPublicExponent()) + "\"}";
+    }
+
+    private static String ecJwk(String kid, ECPublicKey key) {
+        return "{\"kty\":\"EC\",\"kid\":\"" + kid + "\",\"crv\":\"P-256\",\"x\":\"" + base64Url(key.getW().getAffineX())
+                + "\",\"y\":\"" + base64Url(key.getW().getAffineY()) + "\"}";
+    }
+
+    @Test
+    public void resolveSigningKey() {
+        KeyPair rsaKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        KeyPair ecKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        Key secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        JwtKeyRing keyRing = new JwtKeyRing();
+        keyRing.setDefaultKey(secretKey);
+        keyRing.putKey("rsa", rsaKeyPair.getPublic());
+        keyRing.putKey("ec", ecKeyPair.getPublic());
+        JwtParser parser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+
+        assertEquals("tom", parser.parseClaimsJws(sign(rsaKeyPair.getPrivate(), "rsa", "tom")).getBody().getSubject());
+        assertEquals("tom", parser.parseClaimsJws(sign(ecKeyPair.getPrivate(), "ec", "tom")).getBody().getSubject());
+        Claims claims = parser.parseClaimsJws(Jwts.builder().setSubject("lili").signWith(secretKey).compact())
+                .getBody();
+        assertEquals("lili", claims.getSubject());
+        try {
+            parser.parseClaimsJws(sign(rsaKeyPair.getPrivate(), "unknown", "tom"));
+            fail();
+        } catch (SignatureException e) {
+            assertNotNull(e.getMessage());
+        }
+        // a hmac token can not use the public key of rsa kid as secret
+        try {
+            parser.parseClaimsJws(sign(Keys.hmacShaKeyFor(rsaKeyPair.getPublic().getEncoded()), "rsa", "tom"));
+            fail();
+        } catch (SignatureException e) {
+            assertNotNull(e.getMessage());
+        }
+        keyRing.removeKey("rsa");
+        assertNull(keyRing.getKey("rsa"));
+        assertSame(ecKeyPair.getPublic(), keyRing.getKey("ec"));
+        assertSame(secretKey, keyRing.getDefaultKey());
+    }
+
+    @Test
+    public void loadJwks() throws Exception {
+        KeyPair oldKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        KeyPair newKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        KeyPair ecKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        Path jwks = folder.newFile("jwks.json").toPath();
+        Files.write(jwks, ("{\"keys\":[" + rsaJwk("old", (RSAPublicKey) oldKeyPair.getPublic()) + ","
+                + ecJwk("ec", (ECPublicKey) ecKeyPair.getPublic()) + "]}").getBytes(StandardCharsets.UTF_8));
+        JwtKeyRing keyRing = new JwtKeyRing();
+        keyRing.setJwksCheckInterval(0);
+        keyRing.loadJwks(jwks);
+        JwtParser parser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+        assertEquals("tom", parser.parseClaimsJws(sign(oldKeyPair.getPrivate(), "old", "tom")).getBody().getSubject());
+        assertEquals("tom", parser.parseClaimsJws(sign(ecKeyPair.getPrivate(), "ec", "tom")).getBody().getSubject());
+        // the parsed key is cached
+        assertSame(keyRing.getKey("old"), keyRing.getKey("old"));
+        assertFalse(keyRing.reloadJwks());
+
+        // rotate the key, a unknown kid reloads the modified file
+        Files.write(jwks, ("{\"keys\":[" + rsaJwk("new", (RSAPublicKey) newKeyPair.getPublic()) + "]}")
+                .getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(jwks, FileTime.fromMillis(System.currentTimeMillis() + 10000L));
+        assertEquals("tom", parser.parseClaimsJws(sign(newKeyPair.getPrivate(), "new", "tom")).getBody().getSubject());
+        assertNull(keyRing.getKey("old"));
+
+        // a broken file keeps the current keys
+        Files.write(jwks, "{\"keys\":".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(jwks, FileTime.fromMillis(System.currentTimeMillis() + 20000L));
+        assertFalse(keyRing.reloadJwks());
+        assertNotNull(keyRing.getKey("new"));
+    }
+
+    @Test
+    public void jsonWebTokenUtilKeyRing() {
+        KeyPair rsaKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        JwtKeyRing keyRing = JsonWebTokenUtil.getKeyRing();
+        keyRing.putKey("rsa", rsaKeyPair.getPublic());
+        try {
+            assertEquals("tom", JsonWebTokenUtil.parseJwt(sign(rsaKeyPair.getPrivate(), "rsa", "tom")).getSubject());
+            String jwt = JsonWebTokenUtil.issueJwt("1", "lili", "token-server", 36000L,
+                    null, null, Boolean.FALSE);
+            assertEquals("lili", JsonWebTokenUtil.parseJwt(jwt).getSubject());
+        } finally {
+            keyRing.removeKey("rsa");
+        }
+    }
+}
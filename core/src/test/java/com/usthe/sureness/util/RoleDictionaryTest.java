@@ -0,0 +1,67 @@
+package com.usthe.sureness.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 21:29 2026-10-18
+ */
+public class RoleDictionaryTest {
+
+    @Test
+    public void encodeAndDecode() {
+        List<String> roles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            roles.add("role" + i);
+        }
+        RoleDictionary dictionary = new RoleDictionary(1, roles);
+        List<String> ownRoles = Arrays.asList("role0", "role7", "role8", "role49");
+        String bits = dictionary.encode(ownRoles);
+        assertEquals(ownRoles, dictionary.decode(bits));
+        // interned
+        assertSame(dictionary.decode(bits), dictionary.decode(bits));
+        assertEquals(Collections.emptyList(), dictionary.decode(dictionary.encode(Collections.emptyList())));
+        assertEquals(dictionary.encode(Arrays.asList("role49", "role0")), dictionary.encode(Arrays.asList("role0", "role49")));
+        assertTrue(dictionary.containsAll(ownRoles));
+        assertFalse(dictionary.containsAll(Collections.singletonList("role50")));
+        try {
+            dictionary.encode(Collections.singletonList("role50"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+        // a new version appends roles, the old tokens decode the same
+        List<String> newRoles = new ArrayList<>(roles);
+        newRoles.add("role50");
+        assertEquals(ownRoles, new RoleDictionary(2, newRoles).decode(bits));
+        try {
+            new RoleDictionary(0, Arrays.asList("role0", "role1")).decode(bits);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void decodeNotCanonical() {
+        RoleDictionary dictionary = new RoleDictionary(1, Arrays.asList("role0", "role1"));
+        assertEquals("AQ", dictionary.encode(Collections.singletonList("role0")));
+        assertEquals(Collections.singletonList("role0"), dictionary.decode("AQ"));
+        // the trailing zero bytes, the not zero unused bits and the padding are other encodings of AQ
+        for (String bits : Arrays.asList("AQA", "AQAA", "AR", "AQ==", "AA")) {
+            try {
+                dictionary.decode(bits);
+                fail("should reject " + bits);
+            } catch (IllegalArgumentException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+    }
+}
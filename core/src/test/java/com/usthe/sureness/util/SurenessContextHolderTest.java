@@ -0,0 +1,66 @@
+package com.usthe.sureness.util;
+
+import com.usthe.sureness.subject.SubjectSum;
+import com.usthe.sureness.subject.support.SurenessSubjectSum;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @date 20:25 2026-10-18
+ */
+public class SurenessContextHolderTest {
+
+    @After
+    public void tearDown() {
+        SurenessContextHolder.clear();
+    }
+
+    @Test
+    public void bindSubject() {
+        SubjectSum subjectSum = SurenessSubjectSum.builder().setPrincipal("tom").build();
+        SurenessContextHolder.bindSubject(subjectSum);
+        assertSame(subjectSum, SurenessContextHolder.getBindSubject());
+        assertSame(subjectSum, SurenessContextHolder.getBind(SurenessContextHolder.SUBJECT_KEY));
+        SurenessContextHolder.bind("tenant", "usthe");
+        assertEquals("usthe", SurenessContextHolder.getBind("tenant"));
+        SurenessContextHolder.unbindSubject();
+        assertNull(SurenessContextHolder.getBindSubject());
+        assertEquals("usthe", SurenessContextHolder.getBind("tenant"));
+        try {
+            SurenessContextHolder.bind(SurenessContextHolder.SUBJECT_KEY, "tom");
+            fail("should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertNull(SurenessContextHolder.getBindSubject());
+        }
+    }
+
+    @Test
+    public void notInherited() throws InterruptedException {
+        SurenessContextHolder.bindSubject(SurenessSubjectSum.builder().setPrincipal("tom").build());
+        AtomicReference<SubjectSum> childSubject = new AtomicReference<>();
+        Thread thread = new Thread(() -> childSubject.set(SurenessContextHolder.getBindSubject()));
+        thread.start();
+        thread.join();
+        assertNull(childSubject.get());
+    }
+
+    @Test
+    public void runWithSubject() {
+        SubjectSum tom = SurenessSubjectSum.builder().setPrincipal("tom").build();
+        SubjectSum lili = SurenessSubjectSum.builder().setPrincipal("lili").build();
+        SurenessContextHolder.bindSubject(tom);
+        SurenessContextHolder.runWithSubject(lili,
+                () -> assertSame(lili, SurenessContextHolder.getBindSubject()));
+        assertSame(tom, SurenessContextHolder.getBindSubject());
+        SurenessContextHolder.clear();
+        Object principal = SurenessContextHolder.supplyWithSubject(lili,
+                () -> SurenessContextHolder.getBindSubject().getPrincipal());
+        assertEquals("lili", principal);
+        assertNull(SurenessContextHolder.getBindSubject());
+    }
+}
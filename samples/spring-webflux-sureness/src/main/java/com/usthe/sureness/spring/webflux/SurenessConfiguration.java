@@ -12,12 +12,16 @@ import com.usthe.sureness.provider.ducument.DocumentResourceDefaultProvider;
 import com.usthe.sureness.spring.webflux.support.BasicSubjectReactiveCreator;
 import com.usthe.sureness.spring.webflux.support.JwtSubjectReactiveCreator;
 import com.usthe.sureness.spring.webflux.support.NoneSubjectReactiveCreator;
+import com.usthe.sureness.spring.webflux.support.ReactiveSurenessSecurityManager;
 import com.usthe.sureness.subject.SubjectCreate;
 import com.usthe.sureness.subject.SubjectFactory;
 import com.usthe.sureness.subject.SurenessSubjectFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -33,6 +37,12 @@ public class SurenessConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(SurenessConfiguration.class);
 
+    /** max thread num of the blocking checkIn scheduler **/
+    private static final int AUTH_THREAD_CAP = Runtime.getRuntime().availableProcessors() * 4;
+
+    /** max waiting checkIn task num of the blocking checkIn scheduler **/
+    private static final int AUTH_QUEUED_TASK_CAP = 10000;
+
     public SurenessConfiguration() {
         init();
     }
@@ -87,5 +97,17 @@ public class SurenessConfiguration {
         }
     }
 
+    @Bean(destroyMethod = "dispose")
+    public Scheduler surenessAuthScheduler() {
+        return Schedulers.newBoundedElastic(AUTH_THREAD_CAP, AUTH_QUEUED_TASK_CAP, "sureness-auth");
+    }
+
+    @Bean
+    public ReactiveSurenessSecurityManager reactiveSurenessSecurityManager(Scheduler surenessAuthScheduler) {
+        // DocumentResourceDefaultProvider and the password hash are blocking, offload them from the event loop,
+        // pass null scheduler when all the account providers are AsyncSurenessAccountProvider
+        return new ReactiveSurenessSecurityManager(SurenessSecurityManager.getInstance(), surenessAuthScheduler);
+    }
+
 
 }
@@ -1,10 +1,9 @@
 package com.usthe.sureness.spring.webflux;
 
 
-import com.usthe.sureness.mgt.SurenessSecurityManager;
 import com.usthe.sureness.processor.exception.*;
-import com.usthe.sureness.subject.SubjectSum;
-import com.usthe.sureness.util.SurenessContextHolder;
+import com.usthe.sureness.spring.webflux.support.ReactiveSurenessSecurityManager;
+import com.usthe.sureness.spring.webflux.support.SurenessReactiveContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +16,8 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
+import java.util.function.Function;
+
 /**
  * sureness filter class example, filter all http request
  * @author tomsun28
@@ -28,50 +29,54 @@ public class SurenessFilterExample implements WebFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(SurenessFilterExample.class);
 
+    private final ReactiveSurenessSecurityManager reactiveSecurityManager;
+
+    public SurenessFilterExample(ReactiveSurenessSecurityManager reactiveSecurityManager) {
+        this.reactiveSecurityManager = reactiveSecurityManager;
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        ServerHttpRequest request =  exchange.getRequest();
-        Integer statusCode = null;
-        String errorMsg = null;
-        try {
-            SubjectSum subject = SurenessSecurityManager.getInstance().checkIn(request);
-            // You can consider using SurenessContextHolder to bind subject in threadLocal
-            // if bind, please remove it when end
-            if (subject != null) {
-                SurenessContextHolder.bindSubject(subject);
-            }
-        } catch (ProcessorNotFoundException | UnknownAccountException | UnsupportedSubjectException e4) {
+        // checkIn never block the event loop, the subject is bound in reactor Context instead of threadLocal
+        // use SurenessReactiveContextHolder.getBindSubject() to get it in the handler
+        return reactiveSecurityManager.checkIn(exchange.getRequest())
+                .map(subject -> chain.filter(exchange)
+                        .subscriberContext(SurenessReactiveContextHolder.bindSubject(subject)))
+                .defaultIfEmpty(Mono.defer(() -> chain.filter(exchange)))
+                .onErrorResume(e -> Mono.just(Mono.defer(() -> chain.filter(authErrorExchange(exchange, e)))))
+                .flatMap(Function.identity());
+    }
+
+    /**
+     * auth error filter to error collect api
+     * @param exchange exchange
+     * @param e auth exception
+     * @return the exchange route to /auth/error
+     */
+    private ServerWebExchange authErrorExchange(ServerWebExchange exchange, Throwable e) {
+        int statusCode;
+        if (e instanceof ProcessorNotFoundException || e instanceof UnknownAccountException
+                || e instanceof UnsupportedSubjectException) {
             logger.debug("this request is illegal");
             statusCode = HttpStatus.BAD_REQUEST.value();
-            errorMsg = e4.getMessage();
-        } catch (DisabledAccountException | ExcessiveAttemptsException e2 ) {
+        } else if (e instanceof DisabledAccountException || e instanceof ExcessiveAttemptsException) {
             logger.debug("the account is disabled");
             statusCode = HttpStatus.FORBIDDEN.value();
-            errorMsg = e2.getMessage();
-        } catch (IncorrectCredentialsException | ExpiredCredentialsException e3) {
+        } else if (e instanceof IncorrectCredentialsException || e instanceof ExpiredCredentialsException) {
             logger.debug("this account credential is incorrect or expired");
             statusCode = HttpStatus.FORBIDDEN.value();
-            errorMsg = e3.getMessage();
-        } catch (UnauthorizedException e5) {
+        } else if (e instanceof UnauthorizedException) {
             logger.debug("this account can not access this resource");
             statusCode = HttpStatus.FORBIDDEN.value();
-            errorMsg = e5.getMessage();
-        } catch (RuntimeException e) {
+        } else {
             logger.error("other exception happen: ", e);
             statusCode = HttpStatus.FORBIDDEN.value();
-            errorMsg = e.getMessage();
-        }
-
-        // auth error filter to error collect api
-        if (statusCode != null && errorMsg != null) {
-            String finalErrorMsg = errorMsg;
-            Integer finalStatusCode = statusCode;
-            request = request.mutate().headers(httpHeaders -> {
-                httpHeaders.add("statusCode", String.valueOf(finalStatusCode));
-                httpHeaders.add("errorMsg", finalErrorMsg);
-            }).path("/auth/error").build();
-            exchange =  exchange.mutate().request(request).build();
         }
-        return chain.filter(exchange).doFinally(x -> SurenessContextHolder.unbindSubject());
+        String errorMsg = String.valueOf(e.getMessage());
+        ServerHttpRequest request = exchange.getRequest().mutate().headers(httpHeaders -> {
+            httpHeaders.add("statusCode", String.valueOf(statusCode));
+            httpHeaders.add("errorMsg", errorMsg);
+        }).path("/auth/error").build();
+        return exchange.mutate().request(request).build();
     }
 }
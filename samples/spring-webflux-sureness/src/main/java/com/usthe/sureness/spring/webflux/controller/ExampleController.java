@@ -1,9 +1,11 @@
 package com.usthe.sureness.spring.webflux.controller;
 
+import com.usthe.sureness.spring.webflux.support.SurenessReactiveContextHolder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
 /**
  * @author tomsun28
@@ -19,8 +21,11 @@ public class ExampleController {
     }
 
     @GetMapping("/user")
-    public String getUser() {
-        return "hi i am tom!";
+    public Mono<String> getUser() {
+        // the subject is bound in reactor Context by SurenessFilterExample
+        return SurenessReactiveContextHolder.getBindSubject()
+                .map(subject -> "hi i am " + subject.getPrincipal() + "!")
+                .defaultIfEmpty("hi i am tom!");
     }
 
     @GetMapping("/auth/error")
@@ -0,0 +1,42 @@
+package com.usthe.sureness.spring.webflux.support;
+
+import com.usthe.sureness.mgt.SecurityManager;
+import com.usthe.sureness.subject.SubjectSum;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * reactive wrapper of sureness SecurityManager, expose checkIn as Mono
+ * the event loop never block:
+ * when the account provider or processor is blocking, checkIn is subscribed on the bounded blocking scheduler,
+ * when they are all non-blocking (AsyncSurenessAccountProvider), checkInAsync is used directly
+ * @author agent
+ * @date 20:24 2026-10-18
+ */
+public class ReactiveSurenessSecurityManager {
+
+    private final SecurityManager securityManager;
+
+    /** the bounded scheduler which run blocking checkIn, null means all components are non-blocking **/
+    private final Scheduler blockingScheduler;
+
+    /**
+     * @param securityManager sureness security manager
+     * @param blockingScheduler bounded scheduler to offload blocking checkIn, null when components are non-blocking
+     */
+    public ReactiveSurenessSecurityManager(SecurityManager securityManager, Scheduler blockingScheduler) {
+        this.securityManager = securityManager;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * auth entrance, put the request in authentication and authorization process
+     * @param request request eg: ServerHttpRequest
+     * @return Mono of subject summary, empty when the request uri===method is in excluded resource,
+     * error with BaseSurenessException when auth error
+     */
+    public Mono<SubjectSum> checkIn(Object request) {
+        Mono<SubjectSum> checkIn = Mono.fromCompletionStage(() -> securityManager.checkInAsync(request));
+        return blockingScheduler == null ? checkIn : checkIn.subscribeOn(blockingScheduler);
+    }
+}
@@ -0,0 +1,37 @@
+package com.usthe.sureness.spring.webflux.support;
+
+import com.usthe.sureness.subject.SubjectSum;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+
+/**
+ * bind the subject in reactor Context instead of ThreadLocal
+ * a reactive request is handled by many threads, SurenessContextHolder(ThreadLocal) is wrong here
+ * @author agent
+ * @date 20:24 2026-10-18
+ */
+public class SurenessReactiveContextHolder {
+
+    private static final Class<SubjectSum> SUBJECT_KEY = SubjectSum.class;
+
+    /**
+     * get the subject bound by the sureness filter
+     * @return Mono of subject summary, empty when not bind
+     */
+    public static Mono<SubjectSum> getBindSubject() {
+        return Mono.subscriberContext()
+                .filter(context -> context.hasKey(SUBJECT_KEY))
+                .map(context -> context.get(SUBJECT_KEY));
+    }
+
+    /**
+     * bind the subject to the subscriber context
+     * @param subjectSum subject summary
+     * @return context modify function, use in subscriberContext
+     */
+    public static Function<Context, Context> bindSubject(SubjectSum subjectSum) {
+        return context -> context.put(SUBJECT_KEY, subjectSum);
+    }
+}